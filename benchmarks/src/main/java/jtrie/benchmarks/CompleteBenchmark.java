@@ -0,0 +1,101 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import jtrie.structures.Completions;
+import jtrie.structures.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Latency of top-k prefix completion, as for one keystroke of a search box. The corpus 
+ * contains duplicates, which give the words their frequencies.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+public class CompleteBenchmark {
+	
+	private static final int QUERIES = 1024;
+	
+	@Param( { "1000000" } )
+	public int size;
+	
+	@Param( { "1", "2", "3" } )
+	public int prefixLength;
+	
+	@Param( { "10" } )
+	public int k;
+	
+	@Param( { "GREEK", "MIXED" } )
+	public Corpus.Kind kind;
+	
+	private Trie trie;
+	private String[] prefixes;
+	private final Completions completions = new Completions();
+	private int next;
+	
+	
+	@Setup
+	public void setUp() {
+		String[] words = Corpus.words( kind, size, 42 );
+		trie = new Trie();
+		for ( String word : words ) {
+			trie.insert( word );
+		}
+		prefixes = Corpus.sample( words, QUERIES, 7 );
+		for ( int i = 0; i < QUERIES; i++ ) {
+			prefixes[i] = prefixes[i].substring( 0, Math.min( prefixLength, prefixes[i].length() ) );
+		}
+	}
+	
+	
+	@Benchmark
+	public int reusedSink() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.complete( prefixes[next], k, completions );
+	}
+	
+	
+	@Benchmark
+	public ArrayList<String> newList() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.complete( prefixes[next], k );
+	}
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import jtrie.structures.ConcurrentTrie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Throughput of the ConcurrentTrie under concurrent lookups, concurrent inserts, and 
+ * a mix of both (three readers per writer). Run {@link #main(String[])} to measure 
+ * the scaling from one thread up to the number of processors; the usual -t option 
+ * of JMH selects a single thread count.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+public class ConcurrentTrieBenchmark {
+	
+	private static final int QUERIES = 4096;
+	
+	@Param( { "1000000" } )
+	public int size;
+	
+	@Param( { "GREEK", "MIXED" } )
+	public Corpus.Kind kind;
+	
+	private ConcurrentTrie trie;
+	private String[] hits, additions;
+	
+	
+	/**
+	 * The position of each thread in the query and insert arrays.
+	 */
+	@State( Scope.Thread )
+	public static class Cursor {
+		
+		int next, added;
+		
+	}
+	
+	
+	@Setup
+	public void setUp() {
+		String[] words = Corpus.words( kind, size * 2, 42 );
+		trie = new ConcurrentTrie();
+		for ( int i = 0; i < size; i++ ) {
+			trie.insert( words[i] );
+		}
+		String[] loaded = new String[size];
+		System.arraycopy( words, 0, loaded, 0, size );
+		hits = Corpus.sample( loaded, QUERIES, 7 );
+		additions = new String[size];
+		System.arraycopy( words, size, additions, 0, size );
+	}
+	
+	
+	@Benchmark
+	public boolean contains( Cursor cursor ) {
+		cursor.next = ( cursor.next + 1 ) & ( QUERIES - 1 );
+		return trie.contains( hits[cursor.next] );
+	}
+	
+	
+	@Benchmark
+	public boolean insert( Cursor cursor ) {
+		return insertNext( cursor );
+	}
+	
+	
+	@Benchmark
+	@Group( "mixed" )
+	@GroupThreads( 3 )
+	public boolean mixedRead( Cursor cursor ) {
+		return contains( cursor );
+	}
+	
+	
+	@Benchmark
+	@Group( "mixed" )
+	@GroupThreads( 1 )
+	public boolean mixedWrite( Cursor cursor ) {
+		return insertNext( cursor );
+	}
+	
+	
+	/* Once a thread has gone through the additions its inserts become duplicates, which still walk the whole path. */
+	private boolean insertNext( Cursor cursor ) {
+		String word = additions[cursor.added];
+		cursor.added = cursor.added + 1 == additions.length ? 0 : cursor.added + 1;
+		return trie.insert( word );
+	}
+	
+	
+	/**
+	 * Runs the contains and insert benchmarks with 1, 2, 4, ... threads up to the 
+	 * number of processors.
+	 * @param args
+	 * @throws RunnerException
+	 */
+	public static void main( String[] args ) throws RunnerException {
+		int processors = Runtime.getRuntime().availableProcessors();
+		for ( int threads = 1; ; threads = Math.min( threads * 2, processors ) ) {
+			Options options = new OptionsBuilder()
+					.include( ConcurrentTrieBenchmark.class.getName() + "\\.(contains|insert)$" )
+					.threads( threads )
+					.build();
+			new Runner( options ).run();
+			if ( threads == processors ) break;
+		}
+	}
+
+}
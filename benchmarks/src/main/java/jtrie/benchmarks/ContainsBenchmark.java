@@ -0,0 +1,126 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import jtrie.structures.DoubleArrayTrie;
+import jtrie.structures.RadixTrie;
+import jtrie.structures.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Exact lookup latency for words which are in the Trie (hit) and words which are not (miss), 
+ * on the Trie, on the off-heap DoubleArrayTrie compiled from it and on a RadixTrie of the same words.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+public class ContainsBenchmark {
+	
+	private static final int QUERIES = 4096;
+	
+	@Param( { "10000", "1000000" } )
+	public int size;
+	
+	@Param( { "GREEK", "MIXED" } )
+	public Corpus.Kind kind;
+	
+	private Trie trie;
+	private DoubleArrayTrie doubleArray;
+	private RadixTrie radix;
+	private String[] hits, misses;
+	private int next;
+	
+	
+	@Setup
+	public void setUp() {
+		String[] words = Corpus.words( kind, size, 42 );
+		trie = new Trie();
+		for ( String word : words ) {
+			trie.insert( word );
+		}
+		doubleArray = DoubleArrayTrie.build( trie );
+		radix = new RadixTrie();
+		radix.insertAll( Arrays.asList( words ) );
+		hits = Corpus.sample( words, QUERIES, 7 );
+		misses = Corpus.misses( kind, words, QUERIES, 11 );
+	}
+	
+	
+	@Benchmark
+	public boolean hit() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.contains( hits[next] );
+	}
+	
+	
+	@Benchmark
+	public boolean miss() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.contains( misses[next] );
+	}
+	
+	
+	@Benchmark
+	public boolean doubleArrayHit() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return doubleArray.contains( hits[next] );
+	}
+	
+	
+	@Benchmark
+	public boolean doubleArrayMiss() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return doubleArray.contains( misses[next] );
+	}
+	
+	
+	@Benchmark
+	public boolean radixHit() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return radix.contains( hits[next] );
+	}
+	
+	
+	@Benchmark
+	public boolean radixMiss() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return radix.contains( misses[next] );
+	}
+
+}
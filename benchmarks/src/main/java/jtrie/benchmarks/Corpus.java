@@ -0,0 +1,194 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.HashSet;
+import java.util.Random;
+
+import jtrie.structures.Trie;
+
+
+/**
+ * Reproducible synthetic word lists for the benchmarks. The same kind, size and 
+ * seed always give the same words, so results can be compared between builds.
+ * Greek words are built from syllables and a set of inflected endings, so that 
+ * they share prefixes and suffixes the way real dictionaries do.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class Corpus {
+	
+	/** The kinds of words a corpus can be made of. */
+	public enum Kind {
+		GREEK, LATIN, DIGITS, MIXED
+	}
+	
+	private static final String GREEK_CONSONANTS = "ΒΓΔΖΘΚΛΜΝΞΠΡΣΤΦΧΨ";
+	private static final String GREEK_VOWELS = "ΑΕΗΙΟΥΩάέήίόύώ";
+	private static final String[] GREEK_ENDINGS = { 
+		"ΟΣ", "ΟΥ", "Ο", "ΩΝ", "ΕΣ", "ΗΣ", "Η", "Α", "ΟΙ", "ΑΣ", "ΕΙΣ", "ΕΙ", "ΟΝΤΑΣ", "ΜΕΝΟΣ", "ΣΗ" };
+	private static final String LATIN_CONSONANTS = "BCDFGHJKLMNPQRSTVWXZ";
+	private static final String LATIN_VOWELS = "AEIOUYaeiou";
+	private static final String[] LATIN_ENDINGS = { "", "S", "ED", "ING", "ER", "LY", "TION", "NESS" };
+	private static final String DIGITS = "0123456789";
+	
+	/** The letters used for random edits and misses, one of every kind. */
+	private static final String EDIT_LETTERS = "ΑΒΓΔΕΖΗΘΙΚΛΜΝΞΟΠΡΣΤΥΦΧΨΩABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+	
+	
+	private Corpus() {
+	}
+	
+	
+	/**
+	 * Generates the given number of words, which may contain duplicates.
+	 * @param kind
+	 * @param size
+	 * @param seed
+	 * @return the words.
+	 */
+	public static String[] words( Kind kind, int size, long seed ) {
+		Random random = new Random( seed );
+		String[] words = new String[size];
+		for ( int i = 0; i < size; i++ ) {
+			words[i] = word( kind, random );
+		}
+		return words;
+	}
+	
+	
+	/**
+	 * Picks the given number of words of the corpus at random.
+	 * @param words
+	 * @param count
+	 * @param seed
+	 * @return the sample.
+	 */
+	public static String[] sample( String[] words, int count, long seed ) {
+		Random random = new Random( seed );
+		String[] sample = new String[count];
+		for ( int i = 0; i < count; i++ ) {
+			sample[i] = words[random.nextInt( words.length )];
+		}
+		return sample;
+	}
+	
+	
+	/**
+	 * Generates words of the same kind which are not part of the corpus.
+	 * @param kind
+	 * @param words
+	 * @param count
+	 * @param seed
+	 * @return the misses.
+	 */
+	public static String[] misses( Kind kind, String[] words, int count, long seed ) {
+		HashSet<String> known = new HashSet<String>();
+		for ( String word : words ) known.add( Trie.capitalize( word ) );
+		
+		Random random = new Random( seed );
+		String[] misses = new String[count];
+		for ( int i = 0; i < count; ) {
+			String word = word( kind, random );
+			if ( random.nextBoolean() ) word = edit( word, 1, random );
+			if ( !known.contains( Trie.capitalize( word ) ) ) misses[i++] = word;
+		}
+		return misses;
+	}
+	
+	
+	/**
+	 * Picks words of the corpus at random and applies the given number of random 
+	 * insertions, deletions and substitutions to every one of them.
+	 * @param words
+	 * @param count
+	 * @param edits
+	 * @param seed
+	 * @return the misspelled words.
+	 */
+	public static String[] typos( String[] words, int count, int edits, long seed ) {
+		Random random = new Random( seed );
+		String[] typos = new String[count];
+		for ( int i = 0; i < count; i++ ) {
+			typos[i] = edit( words[random.nextInt( words.length )], edits, random );
+		}
+		return typos;
+	}
+	
+	
+	private static String edit( String word, int edits, Random random ) {
+		StringBuilder builder = new StringBuilder( word );
+		for ( int edit = 0; edit < edits; edit++ ) {
+			int position = random.nextInt( builder.length() + 1 );
+			char letter = EDIT_LETTERS.charAt( random.nextInt( EDIT_LETTERS.length() ) );
+			int operation = builder.length() <= 1 ? 0 : random.nextInt( 3 );
+			if ( operation == 0 ) builder.insert( position, letter );
+			else if ( position == builder.length() ) builder.deleteCharAt( position - 1 );
+			else if ( operation == 1 ) builder.deleteCharAt( position );
+			else builder.setCharAt( position, letter );
+		}
+		return builder.toString();
+	}
+	
+	
+	private static String word( Kind kind, Random random ) {
+		switch ( kind ) {
+			case GREEK :
+				return word( random, GREEK_CONSONANTS, GREEK_VOWELS, GREEK_ENDINGS );
+			case LATIN :
+				return word( random, LATIN_CONSONANTS, LATIN_VOWELS, LATIN_ENDINGS );
+			case DIGITS :
+				return digits( random );
+			default :
+				int choice = random.nextInt( 10 );
+				if ( choice < 6 ) return word( random, GREEK_CONSONANTS, GREEK_VOWELS, GREEK_ENDINGS );
+				else if ( choice < 9 ) return word( random, LATIN_CONSONANTS, LATIN_VOWELS, LATIN_ENDINGS );
+				else return digits( random );
+		}
+	}
+	
+	
+	private static String word( Random random, String consonants, String vowels, String[] endings ) {
+		StringBuilder builder = new StringBuilder();
+		int syllables = 1 + random.nextInt( 4 );
+		for ( int i = 0; i < syllables; i++ ) {
+			builder.append( consonants.charAt( skewed( random, consonants.length() ) ) );
+			builder.append( vowels.charAt( skewed( random, vowels.length() ) ) );
+		}
+		builder.append( endings[skewed( random, endings.length )] );
+		return builder.toString();
+	}
+	
+	
+	private static String digits( Random random ) {
+		StringBuilder builder = new StringBuilder();
+		int length = 2 + random.nextInt( 8 );
+		for ( int i = 0; i < length; i++ ) {
+			builder.append( DIGITS.charAt( random.nextInt( DIGITS.length() ) ) );
+		}
+		return builder.toString();
+	}
+	
+	
+	/* Favours the first elements, like letter frequencies of real text. */
+	private static int skewed( Random random, int bound ) {
+		return Math.min( random.nextInt( bound ), random.nextInt( bound ) );
+	}
+
+}
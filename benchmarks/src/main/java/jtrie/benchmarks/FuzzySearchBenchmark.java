@@ -0,0 +1,158 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import jtrie.structures.LevenshteinAutomaton;
+import jtrie.structures.SearchResult;
+import jtrie.structures.Suggestion;
+import jtrie.structures.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Fuzzy search latency for misspelled words, at the distance of their misspelling.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+public class FuzzySearchBenchmark {
+	
+	private static final int QUERIES = 1024;
+	private static final int BATCH = 64;
+	
+	@Param( { "100000", "1000000" } )
+	public int size;
+	
+	@Param( { "1", "2", "3" } )
+	public int distance;
+	
+	@Param( { "MIXED" } )
+	public Corpus.Kind kind;
+	
+	private Trie trie;
+	private String[] queries;
+	private byte[][] encodedQueries;
+	private List<List<String>> batches;
+	private int next;
+	
+	
+	@Setup
+	public void setUp() {
+		String[] words = Corpus.words( kind, size, 42 );
+		trie = new Trie();
+		for ( String word : words ) {
+			trie.insert( word );
+		}
+		queries = Corpus.typos( words, QUERIES, distance, 13 );
+		encodedQueries = new byte[QUERIES][];
+		for ( int i = 0; i < QUERIES; i++ ) {
+			encodedQueries[i] = Trie.encode( queries[i] );
+		}
+		batches = new ArrayList<List<String>>();
+		for ( int i = 0; i < QUERIES; i += BATCH ) {
+			batches.add( Arrays.asList( queries ).subList( i, i + BATCH ) );
+		}
+	}
+	
+	
+	@Benchmark
+	public ArrayList<String> dynamicProgramming() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.search( queries[next], distance );
+	}
+	
+	
+	@Benchmark
+	public ArrayList<String> levenshteinAutomaton() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.search( LevenshteinAutomaton.forWord( queries[next], distance ) );
+	}
+	
+	
+	@Benchmark
+	public SearchResult closestWords() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.computeClosestWords( encodedQueries[next], distance );
+	}
+	
+	
+	/** The rows of closestWords as bit vectors; compare with closestWords. */
+	@Benchmark
+	public SearchResult bitParallelClosestWords() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.computeClosestWordsBitParallel( encodedQueries[next], distance );
+	}
+	
+	
+	@Benchmark
+	public SearchResult parallelClosestWords() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.computeClosestWords( encodedQueries[next], distance, ForkJoinPool.commonPool() );
+	}
+	
+	
+	/** One walk of the Trie for 64 queries; compare with sequentialBatch. */
+	@Benchmark
+	public ArrayList<ArrayList<String>> batch() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.search( batches.get( next % batches.size() ), distance );
+	}
+	
+	
+	/** The same 64 queries as batch, one walk each. */
+	@Benchmark
+	public int sequentialBatch() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		int found = 0;
+		for ( String query : batches.get( next % batches.size() ) ) {
+			found += trie.search( query, distance ).size();
+		}
+		return found;
+	}
+	
+	
+	@Benchmark
+	public List<Suggestion> topTen() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trie.topK( queries[next], 10, distance );
+	}
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import jtrie.structures.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Bulk load throughput: the time to insert a whole corpus into an empty Trie.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+public class InsertBenchmark {
+	
+	@Param( { "10000", "100000", "1000000" } )
+	public int size;
+	
+	@Param( { "GREEK", "LATIN", "MIXED" } )
+	public Corpus.Kind kind;
+	
+	private String[] words, sortedWords;
+	
+	
+	@Setup
+	public void setUp() {
+		words = Corpus.words( kind, size, 42 );
+		sortedWords = words.clone();
+		for ( int i = 0; i < sortedWords.length; i++ ) {
+			sortedWords[i] = Trie.capitalize( sortedWords[i] );
+		}
+		Arrays.sort( sortedWords );
+	}
+	
+	
+	@Benchmark
+	public Trie insert() {
+		Trie trie = new Trie();
+		for ( String word : words ) {
+			trie.insert( word );
+		}
+		return trie;
+	}
+	
+	
+	@Benchmark
+	public Trie insertAll() {
+		Trie trie = new Trie();
+		trie.insertAll( Arrays.asList( words ) );
+		return trie;
+	}
+	
+	
+	@Benchmark
+	public Trie insertAllSorted() {
+		Trie trie = new Trie();
+		trie.insertAll( Arrays.asList( sortedWords ) );
+		return trie;
+	}
+
+}
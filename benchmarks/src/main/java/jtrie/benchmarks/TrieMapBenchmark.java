@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.benchmarks;
+
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import jtrie.structures.IntTrieMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Word identifier lookups in an IntTrieMap against the HashMap&lt;String, Integer&gt; it 
+ * replaces. Run with -prof gc to compare the allocation, and look at the heap 
+ * after setup to compare the footprint.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+public class TrieMapBenchmark {
+	
+	private static final int QUERIES = 4096;
+	
+	@Param( { "10000", "1000000" } )
+	public int size;
+	
+	@Param( { "GREEK", "MIXED" } )
+	public Corpus.Kind kind;
+	
+	private IntTrieMap trieMap;
+	private HashMap<String, Integer> hashMap;
+	private String[] hits;
+	private int next;
+	
+	
+	@Setup
+	public void setUp() {
+		String[] words = Corpus.words( kind, size, 42 );
+		trieMap = new IntTrieMap( -1 );
+		hashMap = new HashMap<String, Integer>();
+		for ( String word : words ) {
+			trieMap.computeIfAbsent( word, key -> trieMap.size() );
+			hashMap.computeIfAbsent( word, key -> hashMap.size() );
+		}
+		hits = Corpus.sample( words, QUERIES, 7 );
+	}
+	
+	
+	@Benchmark
+	public int intTrieMap() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return trieMap.get( hits[next] );
+	}
+	
+	
+	@Benchmark
+	public int hashMap() {
+		next = ( next + 1 ) & ( QUERIES - 1 );
+		return hashMap.get( hits[next] );
+	}
+
+}
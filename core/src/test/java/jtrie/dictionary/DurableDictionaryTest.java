@@ -0,0 +1,342 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jtrie.structures.Alphabet;
+import jtrie.structures.TrieSnapshot;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Recovers DurableDictionaries from damaged logs and from snapshots. A crash is 
+ * simulated by copying the directory after a sync, while the dictionary is still open.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class DurableDictionaryTest {
+	
+	/* Every record of the log is forced by a sync only, and no snapshot is written on its own. */
+	private static final long SYNC_INTERVAL = 60000;
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘΙΚΛΜΝΞΟΠΡΣΤΥΦΧΨΩ";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	
+	@Test
+	public void truncatedLastRecordIsDropped() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		DurableDictionary dictionary = open( directory );
+		TrieDictionary expected = new TrieDictionary();
+		mutate( dictionary, expected, 0, 200 );
+		dictionary.insert( "ΤΕΛΟΣ", 7 );
+		Path crashed = crash( dictionary, directory );
+		
+		Path segment = lastSegment( crashed );
+		long size = Files.size( segment );
+		truncate( segment, size - 3 );
+		
+		DurableDictionary recovered = open( crashed );
+		assertSame( expected, recovered );
+		assertFalse( recovered.contains( "ΤΕΛΟΣ" ) );
+		assertTrue( Files.size( segment ) < size - 3 );
+		
+		/* The log keeps working after the damaged record was cut off. */
+		recovered.insert( "ΤΕΛΟΣ", 7 );
+		expected.insert( "ΤΕΛΟΣ", 7 );
+		recovered.close();
+		DurableDictionary reopened = open( crashed );
+		assertSame( expected, reopened );
+		reopened.close();
+	}
+	
+	
+	@Test
+	public void lastRecordWithBadChecksumIsDropped() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		DurableDictionary dictionary = open( directory );
+		TrieDictionary expected = new TrieDictionary();
+		mutate( dictionary, expected, 0, 200 );
+		dictionary.delete( word( 1 ) );
+		Path crashed = crash( dictionary, directory );
+		
+		/* The record ends with its CRC32. */
+		Path segment = lastSegment( crashed );
+		flip( segment, Files.size( segment ) - 1 );
+		
+		DurableDictionary recovered = open( crashed );
+		assertTrue( recovered.contains( word( 1 ) ) );
+		assertSame( expected, recovered );
+		recovered.close();
+	}
+	
+	
+	@Test
+	public void damageBeforeTheLastSegmentIsRejected() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		TrieDictionary expected = new TrieDictionary();
+		DurableDictionary dictionary = open( directory );
+		mutate( dictionary, expected, 0, 100 );
+		dictionary.close();
+		
+		/* Every opening starts a new segment. */
+		dictionary = open( directory );
+		mutate( dictionary, expected, 100, 200 );
+		dictionary.close();
+		
+		List<Path> segments = segments( directory );
+		assertEquals( 2, segments.size() );
+		flip( segments.get( 0 ), Files.size( segments.get( 0 ) ) / 2 );
+		try {
+			open( directory ).close();
+			fail( "A damaged segment before the last one was replayed." );
+		}
+		catch ( IOException e ) {
+		}
+	}
+	
+	
+	@Test
+	public void reopensAfterCompactionAndMoreMutations() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		DurableDictionary dictionary = open( directory );
+		TrieDictionary expected = new TrieDictionary();
+		mutate( dictionary, expected, 0, 300 );
+		dictionary.compact();
+		
+		/* The snapshot covers the old segments, which are gone. */
+		assertTrue( Files.exists( directory.resolve( "snapshot" ) ) );
+		assertEquals( 1, segments( directory ).size() );
+		
+		mutate( dictionary, expected, 300, 600 );
+		Path crashed = crash( dictionary, directory );
+		
+		DurableDictionary recovered = open( crashed );
+		assertSame( expected, recovered );
+		
+		/* A second compaction on the recovered dictionary keeps the same words. */
+		mutate( recovered, expected, 600, 700 );
+		recovered.compact();
+		recovered.close();
+		DurableDictionary reopened = open( crashed );
+		assertSame( expected, reopened );
+		reopened.close();
+	}
+	
+	
+	@Test
+	public void mutationsDuringCompactionAreKept() throws Exception {
+		Path directory = folder.newFolder().toPath();
+		final DurableDictionary dictionary = open( directory );
+		TrieDictionary expected = new TrieDictionary();
+		mutate( dictionary, expected, 0, 2000 );
+		
+		final IOException[] failure = new IOException[1];
+		Thread compactor = new Thread() {
+			
+			public void run() {
+				try {
+					for ( int i = 0; i < 5; i++ ) {
+						dictionary.compact();
+					}
+				}
+				catch ( IOException e ) {
+					failure[0] = e;
+				}
+			}
+		};
+		compactor.start();
+		mutate( dictionary, expected, 2000, 6000 );
+		compactor.join();
+		if ( failure[0] != null ) throw failure[0];
+		
+		Path crashed = crash( dictionary, directory );
+		DurableDictionary recovered = open( crashed );
+		assertSame( expected, recovered );
+		recovered.close();
+	}
+	
+	
+	@Test
+	public void readsDuringMutationsSeeStoredWords() throws Exception {
+		Path directory = folder.newFolder().toPath();
+		final DurableDictionary dictionary = open( directory );
+		for ( int i = 0; i < 1000; i++ ) {
+			dictionary.insert( word( i ) );
+		}
+		
+		final boolean[] missed = new boolean[1];
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread reader = new Thread() {
+			
+			public void run() {
+				while ( !done.get() ) {
+					for ( int i = 0; i < 1000; i++ ) {
+						if ( !dictionary.contains( word( i ) ) ) missed[0] = true;
+					}
+				}
+			}
+		};
+		reader.start();
+		/* The words after the first thousand are inserted and deleted again, which splits and frees nodes. */
+		for ( int round = 0; round < 5; round++ ) {
+			for ( int i = 1000; i < 8000; i++ ) {
+				dictionary.insert( word( i ) );
+			}
+			for ( int i = 1000; i < 8000; i++ ) {
+				dictionary.delete( word( i ) );
+			}
+		}
+		done.set( true );
+		reader.join();
+		
+		assertFalse( missed[0] );
+		assertEquals( 1000, dictionary.size() );
+		dictionary.close();
+	}
+	
+	
+	private static DurableDictionary open( Path directory ) throws IOException {
+		return new DurableDictionary( directory, Alphabet.DEFAULT, SYNC_INTERVAL, 0 );
+	}
+	
+	
+	/* Inserts words with weights and deletes some of them, in both dictionaries. */
+	private static void mutate( DurableDictionary dictionary, TrieDictionary expected, int from, int to ) {
+		for ( int i = from; i < to; i++ ) {
+			dictionary.insert( word( i ), i % 5 );
+			expected.insert( word( i ), i % 5 );
+			if ( i % 7 == 0 ) {
+				dictionary.delete( word( i / 2 ) );
+				expected.delete( word( i / 2 ) );
+			}
+		}
+	}
+	
+	
+	private static String word( int i ) {
+		StringBuilder word = new StringBuilder();
+		do {
+			word.append( LETTERS.charAt( i % LETTERS.length() ) );
+			i /= LETTERS.length();
+		} while ( i > 0 );
+		return word.append( 'Σ' ).toString();
+	}
+	
+	
+	/* Forces the log and copies the directory, as a crash would leave it. */
+	private Path crash( DurableDictionary dictionary, Path directory ) throws IOException {
+		dictionary.sync();
+		Path copy = folder.newFolder().toPath();
+		DirectoryStream<Path> files = Files.newDirectoryStream( directory );
+		try {
+			for ( Path file : files ) {
+				Files.copy( file, copy.resolve( file.getFileName() ) );
+			}
+		}
+		finally {
+			files.close();
+		}
+		dictionary.close();
+		return copy;
+	}
+	
+	
+	private static List<Path> segments( Path directory ) throws IOException {
+		List<Path> segments = new ArrayList<Path>();
+		DirectoryStream<Path> files = Files.newDirectoryStream( directory, "wal-*.log" );
+		try {
+			for ( Path file : files ) {
+				segments.add( file );
+			}
+		}
+		finally {
+			files.close();
+		}
+		Collections.sort( segments );
+		return segments;
+	}
+	
+	
+	private static Path lastSegment( Path directory ) throws IOException {
+		List<Path> segments = segments( directory );
+		return segments.get( segments.size() - 1 );
+	}
+	
+	
+	private static void truncate( Path file, long size ) throws IOException {
+		RandomAccessFile access = new RandomAccessFile( file.toFile(), "rw" );
+		try {
+			access.setLength( size );
+		}
+		finally {
+			access.close();
+		}
+	}
+	
+	
+	private static void flip( Path file, long position ) throws IOException {
+		RandomAccessFile access = new RandomAccessFile( file.toFile(), "rw" );
+		try {
+			access.seek( position );
+			int b = access.read();
+			access.seek( position );
+			access.write( b ^ 0x5A );
+		}
+		finally {
+			access.close();
+		}
+	}
+	
+	
+	/* Compares the words and their frequencies through the snapshots of both Tries. */
+	private static void assertSame( TrieDictionary expected, DurableDictionary actual ) throws IOException {
+		assertEquals( expected.size(), actual.size() );
+		assertArrayEquals( snapshot( expected ), snapshot( actual.getDictionary() ) );
+	}
+	
+	
+	private static byte[] snapshot( TrieDictionary dictionary ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TrieSnapshot.write( dictionary.getTrie(), bytes );
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jtrie.structures.Alphabet;
+import jtrie.structures.Trie;
+
+import org.junit.Test;
+
+
+/**
+ * Checks the routing of the words to the shards, and that rebalancing keeps the words 
+ * and their frequencies, also while other threads insert.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class ShardedTrieDictionaryTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘ";
+	
+	private final Random random = new Random( 24 );
+	
+	
+	@Test
+	public void wordsAreRoutedByTheirFirstLetter() {
+		Alphabet alphabet = Alphabet.DEFAULT;
+		ShardedTrieDictionary dictionary = new ShardedTrieDictionary( 3 );
+		int[] expected = new int[3];
+		for ( int code = 1; code <= alphabet.size(); code++ ) {
+			String word = alphabet.letter( (byte) code ) + "ΑΒ";
+			dictionary.insert( word );
+			expected[( code - 1 ) % 3]++;
+			assertTrue( word, dictionary.contains( word ) );
+		}
+		assertArrayEquals( expected, dictionary.getShardSizes() );
+		
+		/* Words which cannot be routed are ignored. */
+		dictionary.insert( "" );
+		dictionary.insert( "-ΑΒ" );
+		assertEquals( alphabet.size(), dictionary.size() );
+		assertFalse( dictionary.contains( "-ΑΒ" ) );
+	}
+	
+	
+	@Test
+	public void rebalanceKeepsWordsAndFrequencies() throws Exception {
+		ShardedTrieDictionary dictionary = new ShardedTrieDictionary( 4 );
+		Trie expected = new Trie();
+		
+		/* Α and Ε share the first shard, so it holds most of the words. */
+		for ( int i = 0; i < 3000; i++ ) {
+			String word = randomWord( i % 4 == 0 ? LETTERS : "ΑΕ" );
+			long weight = random.nextInt( 5 );
+			dictionary.insert( word, weight );
+			expected.insert( word, weight );
+		}
+		for ( int i = 0; i < 300; i++ ) {
+			String word = randomWord( LETTERS );
+			dictionary.delete( word );
+			expected.delete( word );
+		}
+		double skew = dictionary.getSkew();
+		
+		assertTrue( dictionary.rebalance() );
+		assertTrue( dictionary.getSkew() < skew );
+		check( dictionary, expected );
+		assertFalse( dictionary.rebalance() );
+		
+		/* The moved letters are found on their new shards. */
+		for ( int i = 0; i < 1000; i++ ) {
+			String word = randomWord( LETTERS );
+			if ( i % 3 == 0 ) {
+				dictionary.delete( word );
+				expected.delete( word );
+			}
+			else {
+				dictionary.insert( word, 2 );
+				expected.insert( word, 2 );
+			}
+		}
+		check( dictionary, expected );
+	}
+	
+	
+	@Test
+	public void automaticRebalanceKeepsConcurrentInsertions() throws Exception {
+		final ShardedTrieDictionary dictionary = new ShardedTrieDictionary( 4 );
+		dictionary.setRebalanceSkew( 1.2 );
+		
+		/* Every thread inserts its own words twice, most of them on the first shard. */
+		final int threads = 4;
+		final List<List<String>> words = new ArrayList<List<String>>();
+		HashSet<String> seen = new HashSet<String>();
+		for ( int t = 0; t < threads; t++ ) {
+			List<String> own = new ArrayList<String>();
+			while ( own.size() < 6000 ) {
+				String word = randomWord( own.size() % 8 == 0 ? LETTERS : "ΑΕ" ) + "ΑΒΓ".charAt( t % 3 );
+				if ( seen.add( word ) ) own.add( word );
+			}
+			words.add( own );
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool( threads );
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for ( int t = 0; t < threads; t++ ) {
+				final List<String> own = words.get( t );
+				futures.add( executor.submit( new Callable<Void>() {
+					
+					public Void call() {
+						for ( int round = 0; round < 2; round++ ) {
+							for ( String word : own ) {
+								dictionary.insert( word );
+							}
+						}
+						return null;
+					}
+				} ) );
+			}
+			for ( Future<Void> future : futures ) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		/* Without a rebalance the first shard would hold seven eighths of the words. */
+		assertTrue( dictionary.getSkew() < 2.5 );
+		assertEquals( seen.size(), dictionary.size() );
+		for ( String word : seen ) {
+			assertEquals( word, 2, dictionary.getFrequency( word ) );
+		}
+	}
+	
+	
+	private String randomWord( String first ) {
+		StringBuilder word = new StringBuilder();
+		word.append( first.charAt( random.nextInt( first.length() ) ) );
+		for ( int i = random.nextInt( 6 ); i > 0; i-- ) {
+			word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+		}
+		return word.toString();
+	}
+	
+	
+	private void check( ShardedTrieDictionary dictionary, Trie expected ) throws Exception {
+		assertEquals( expected.size(), dictionary.size() );
+		for ( int i = 0; i < 2000; i++ ) {
+			String word = randomWord( LETTERS );
+			assertEquals( word, expected.contains( word ), dictionary.contains( word ) );
+			assertEquals( word, expected.getFrequency( word ), dictionary.getFrequency( word ) );
+		}
+		for ( int i = 0; i < 50; i++ ) {
+			String word = randomWord( LETTERS );
+			assertEquals( word, new HashSet<String>( expected.search( word, 1 ) ), dictionary.getClosestWords( word ) );
+		}
+	}
+
+}
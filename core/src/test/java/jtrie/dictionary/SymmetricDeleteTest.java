@@ -0,0 +1,178 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import jtrie.structures.SymmetricDeleteIndex;
+import jtrie.structures.Trie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Checks that the index of the {@link FuzzyBackend#SYMMETRIC_DELETE} backend answers 
+ * like the walk of the Trie after every kind of mutation of a TrieDictionary.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class SymmetricDeleteTest {
+	
+	/* Few letters, so that many words are close to each other. */
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘ";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private final Random random = new Random( 25 );
+	
+	
+	@Test
+	public void indexFollowsEveryMutation() throws Exception {
+		TrieDictionary dictionary = new TrieDictionary();
+		dictionary.setFuzzyBackend( FuzzyBackend.SYMMETRIC_DELETE, 2 );
+		List<String> queries = randomWords( 100 );
+		
+		for ( String word : randomWords( 800 ) ) {
+			dictionary.insert( word );
+		}
+		check( dictionary, queries );
+		
+		for ( String word : randomWords( 300 ) ) {
+			dictionary.delete( word );
+		}
+		for ( String word : randomWords( 200 ) ) {
+			dictionary.insert( word, random.nextInt( 10 ) );
+		}
+		check( dictionary, queries );
+		
+		dictionary.insertAll( randomWords( 500 ) );
+		check( dictionary, queries );
+		
+		dictionary.insertAll( randomWords( 500 ).stream() );
+		check( dictionary, queries );
+		
+		Path file = folder.newFile().toPath();
+		Files.write( file, randomWords( 500 ), StandardCharsets.UTF_8 );
+		dictionary.load( file, StandardCharsets.UTF_8 );
+		check( dictionary, queries );
+		
+		for ( String word : randomWords( 500 ) ) {
+			dictionary.delete( word );
+		}
+		check( dictionary, queries );
+	}
+	
+	
+	@Test
+	public void backendSwitchesRebuildTheIndex() throws Exception {
+		TrieDictionary dictionary = new TrieDictionary();
+		dictionary.setFuzzyBackend( FuzzyBackend.SYMMETRIC_DELETE );
+		dictionary.insertAll( randomWords( 1000 ) );
+		List<String> queries = randomWords( 100 );
+		assertEquals( TrieDictionary.DISTANCE_THRESHOLD - 1, dictionary.getDeleteIndex().getMaxDistance() );
+		check( dictionary, queries );
+		
+		/* Mutations without the index must show up once it is built again. */
+		dictionary.setFuzzyBackend( FuzzyBackend.BIT_PARALLEL );
+		assertNull( dictionary.getDeleteIndex() );
+		for ( String word : randomWords( 300 ) ) {
+			dictionary.delete( word );
+		}
+		dictionary.insertAll( randomWords( 300 ) );
+		
+		dictionary.setFuzzyBackend( FuzzyBackend.SYMMETRIC_DELETE, 3 );
+		assertEquals( 3, dictionary.getDeleteIndex().getMaxDistance() );
+		check( dictionary, queries );
+		
+		/* The single argument form keeps the larger index. */
+		dictionary.setFuzzyBackend( FuzzyBackend.SYMMETRIC_DELETE );
+		assertEquals( 3, dictionary.getDeleteIndex().getMaxDistance() );
+		dictionary.insertAll( randomWords( 300 ) );
+		check( dictionary, queries );
+		
+		dictionary.setFuzzyBackend( FuzzyBackend.SYMMETRIC_DELETE, 1 );
+		assertEquals( 1, dictionary.getDeleteIndex().getMaxDistance() );
+		check( dictionary, queries );
+	}
+	
+	
+	@Test( expected = IllegalArgumentException.class )
+	public void indexBelowTheThresholdIsRejected() {
+		new TrieDictionary().setFuzzyBackend( FuzzyBackend.SYMMETRIC_DELETE, TrieDictionary.DISTANCE_THRESHOLD - 2 );
+	}
+	
+	
+	/* Compares the index with the Trie at every distance the index answers, and the dictionary with both. */
+	private static void check( TrieDictionary dictionary, List<String> queries ) throws Exception {
+		SymmetricDeleteIndex index = dictionary.getDeleteIndex();
+		assertNotNull( index );
+		Trie trie = dictionary.getTrie();
+		assertEquals( trie.size(), index.size() );
+		
+		for ( String query : queries ) {
+			for ( int distance = 0; distance <= index.getMaxDistance(); distance++ ) {
+				assertEquals( query + " " + distance, 
+						new TreeSet<String>( trie.search( query, distance ) ), 
+						new TreeSet<String>( index.search( query, distance ) ) );
+			}
+			assertEquals( query, new HashSet<String>( trie.search( query, TrieDictionary.DISTANCE_THRESHOLD - 1 ) ), 
+					dictionary.getClosestWords( query ) );
+		}
+		
+		/* Past the distance of the index, the batch walks the Trie. */
+		for ( int distance = 0; distance <= index.getMaxDistance() + 1; distance++ ) {
+			ArrayList<ArrayList<String>> expected = trie.search( queries, distance );
+			ArrayList<HashSet<String>> found = new ArrayList<HashSet<String>>( dictionary.getClosestWords( queries, distance ).values() );
+			for ( int i = 0; i < queries.size(); i++ ) {
+				assertEquals( queries.get( i ) + " " + distance, new HashSet<String>( expected.get( i ) ), found.get( i ) );
+			}
+		}
+	}
+	
+	
+	/* Distinct words, so that the batch results line up with the queries. */
+	private List<String> randomWords( int count ) {
+		ArrayList<String> words = new ArrayList<String>( count );
+		HashSet<String> seen = new HashSet<String>();
+		while ( words.size() < count ) {
+			int length = 1 + random.nextInt( 7 );
+			StringBuilder word = new StringBuilder( length );
+			for ( int i = 0; i < length; i++ ) {
+				word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+			}
+			if ( seen.add( word.toString() ) ) words.add( word.toString() );
+		}
+		return words;
+	}
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import jtrie.dictionary.QueryCache;
+import jtrie.dictionary.TrieDictionary;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Checks that a batch of fuzzy queries finds, for every query, the words of a search 
+ * of that query on its own.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class BatchSearchTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘΙΚ";
+	
+	private final Random random = new Random( 16 );
+	private Trie trie;
+	private TrieDictionary dictionary;
+	private List<String> queries;
+	
+	
+	@Before
+	public void setUp() {
+		trie = new Trie();
+		dictionary = new TrieDictionary();
+		ArrayList<String> words = new ArrayList<String>();
+		for ( int i = 0; i < 3000; i++ ) {
+			String word = randomWord( 1 + random.nextInt( 9 ) );
+			words.add( word );
+			trie.insert( word );
+			dictionary.insert( word );
+		}
+		
+		/* Stored words, random words, an empty query, and repeated queries. */
+		queries = new ArrayList<String>();
+		for ( int i = 0; i < 100; i++ ) {
+			queries.add( i % 2 == 0 ? words.get( random.nextInt( words.size() ) ) : randomWord( 1 + random.nextInt( 10 ) ) );
+		}
+		queries.add( "" );
+		queries.add( queries.get( 3 ) );
+		queries.add( queries.get( 10 ) );
+		queries.add( "" );
+	}
+	
+	
+	private String randomWord( int length ) {
+		StringBuilder word = new StringBuilder( length );
+		for ( int i = 0; i < length; i++ ) {
+			word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+		}
+		return word.toString();
+	}
+	
+	
+	@Test
+	public void batchMatchesSingleSearches() {
+		for ( int distance = 0; distance <= 3; distance++ ) {
+			ArrayList<ArrayList<String>> results = trie.search( queries, distance );
+			assertEquals( queries.size(), results.size() );
+			for ( int i = 0; i < queries.size(); i++ ) {
+				assertEquals( queries.get( i ) + " " + distance, 
+						new HashSet<String>( trie.search( queries.get( i ), distance ) ), 
+						new HashSet<String>( results.get( i ) ) );
+			}
+		}
+	}
+	
+	
+	@Test
+	public void emptyBatchFindsNothing() throws Exception {
+		assertTrue( trie.search( new ArrayList<String>(), 2 ).isEmpty() );
+		assertTrue( dictionary.getClosestWords( new ArrayList<String>(), 2 ).isEmpty() );
+	}
+	
+	
+	@Test
+	public void dictionaryBatchMatchesSingleSearches() throws Exception {
+		for ( int distance = 0; distance <= 3; distance++ ) {
+			checkDictionary( dictionary.getClosestWords( queries, distance ), distance );
+		}
+	}
+	
+	
+	@Test
+	public void cachedResultsMatchSingleSearches() throws Exception {
+		QueryCache cache = new QueryCache( 10000, 1L << 24 );
+		dictionary.setQueryCache( cache );
+		
+		/* Half of the queries are cached by single searches, the others by the first batch. */
+		for ( int i = 0; i < queries.size(); i += 2 ) {
+			dictionary.getClosestWords( queries.get( i ) );
+		}
+		int distance = TrieDictionary.DISTANCE_THRESHOLD - 1;
+		checkDictionary( dictionary.getClosestWords( queries, distance ), distance );
+		
+		long hits = cache.getHitCount();
+		checkDictionary( dictionary.getClosestWords( queries, distance ), distance );
+		assertTrue( cache.getHitCount() > hits );
+		
+		/* A mutation drops the cached results. */
+		String added = queries.get( 1 ) + "Α";
+		trie.insert( added );
+		dictionary.insert( added );
+		checkDictionary( dictionary.getClosestWords( queries, distance ), distance );
+		assertTrue( dictionary.getClosestWords( queries, distance ).get( queries.get( 1 ) ).contains( added ) );
+	}
+	
+	
+	/* Every distinct query has one entry, in the order of the queries, with the words of a single search. */
+	private void checkDictionary( LinkedHashMap<String, HashSet<String>> results, int distance ) throws Exception {
+		assertEquals( new ArrayList<String>( new LinkedHashSet<String>( queries ) ), new ArrayList<String>( results.keySet() ) );
+		
+		for ( Map.Entry<String, HashSet<String>> entry : results.entrySet() ) {
+			String query = entry.getKey();
+			assertEquals( query + " " + distance, new HashSet<String>( trie.search( query, distance ) ), entry.getValue() );
+			if ( distance == TrieDictionary.DISTANCE_THRESHOLD - 1 ) {
+				assertEquals( query, dictionary.getClosestWords( query ), entry.getValue() );
+			}
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Checks that the bit-parallel rows of computeClosestWordsBitParallel give the results 
+ * of the scalar rows of computeClosestWords, for queries around the 64 letters which 
+ * fit in a machine word.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class BitParallelSearchTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘΙΚΛΜ";
+	
+	private static Trie trie;
+	private static List<String> words;
+	private static Random random;
+	
+	
+	@BeforeClass
+	public static void setUp() {
+		random = new Random( 19 );
+		trie = new Trie();
+		words = new ArrayList<String>();
+		for ( int i = 0; i < 1500; i++ ) {
+			add( randomWord( 1 + random.nextInt( 10 ) ) );
+		}
+		/* Long words, with neighbours one and two edits away. */
+		for ( int length : new int[] { 63, 64, 65, 100 } ) {
+			for ( int i = 0; i < 2; i++ ) {
+				String word = randomWord( length );
+				add( word );
+				add( edit( edit( word ) ) );
+				add( edit( word ) );
+			}
+		}
+	}
+	
+	
+	private static void add( String word ) {
+		trie.insert( word );
+		words.add( word );
+	}
+	
+	
+	private static String randomWord( int length ) {
+		StringBuilder word = new StringBuilder( length );
+		for ( int i = 0; i < length; i++ ) {
+			word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+		}
+		return word.toString();
+	}
+	
+	
+	/* Substitutes, inserts or deletes one letter. */
+	private static String edit( String word ) {
+		int position = random.nextInt( word.length() );
+		String letter = randomWord( 1 );
+		switch ( random.nextInt( 3 ) ) {
+			case 0 :
+				return word.substring( 0, position ) + letter + word.substring( position + 1 );
+			case 1 :
+				return word.substring( 0, position ) + letter + word.substring( position );
+			default :
+				return word.substring( 0, position ) + word.substring( position + 1 );
+		}
+	}
+	
+	
+	@Test
+	public void shortQueriesMatchTheScalarRows() {
+		for ( int i = 0; i < 200; i++ ) {
+			String query = i % 2 == 0 ? edit( words.get( random.nextInt( 1500 ) ) ) : randomWord( 1 + random.nextInt( 10 ) );
+			check( query );
+		}
+	}
+	
+	
+	@Test
+	public void emptyQueryMatchesTheScalarRows() {
+		check( "" );
+	}
+	
+	
+	@Test
+	public void queriesAroundSixtyFourLettersMatchTheScalarRows() {
+		for ( String word : words.subList( 1500, words.size() ) ) {
+			check( word );
+			check( edit( word ) );
+		}
+		for ( int length : new int[] { 63, 64, 65, 128 } ) {
+			check( randomWord( length ) );
+		}
+	}
+	
+	
+	private static void check( String query ) {
+		byte[] word = Trie.encode( query );
+		for ( int distance = 0; distance <= 3; distance++ ) {
+			assertEquals( query.length() + " " + query + " " + distance, 
+					describe( trie.computeClosestWords( word, distance ) ), 
+					describe( trie.computeClosestWordsBitParallel( word, distance ) ) );
+		}
+	}
+	
+	
+	private static String describe( SearchResult result ) {
+		return result.getMinLevDist() + " " + result.getClosestWord() + " " + new TreeSet<String>( result.getClosestWords() );
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jtrie.dictionary.TrieDictionary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Runs fuzzy searches from many threads on a shared Trie which is not modified, and 
+ * checks every result against the one of a single-threaded run.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class ConcurrentSearchTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘΙΚΛΜΝΞΟΠΡΣΤΥΦΧΨΩABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 2;
+	
+	private static Trie trie;
+	private static TrieDictionary dictionary;
+	private static List<String> queries;
+	
+	
+	@BeforeClass
+	public static void setUp() {
+		Random random = new Random( 4 );
+		trie = new Trie();
+		dictionary = new TrieDictionary();
+		ArrayList<String> words = new ArrayList<String>();
+		for ( int i = 0; i < 10000; i++ ) {
+			String word = randomWord( random, 2 + random.nextInt( 8 ) );
+			words.add( word );
+			trie.insert( word );
+			dictionary.insert( word );
+		}
+		
+		/* Stored words, words with one letter changed, and random words. */
+		queries = new ArrayList<String>();
+		for ( int i = 0; i < 150; i++ ) {
+			String word = words.get( random.nextInt( words.size() ) );
+			switch ( i % 3 ) {
+				case 0 :
+					queries.add( word );
+					break;
+				case 1 :
+					int position = random.nextInt( word.length() );
+					queries.add( word.substring( 0, position ) + randomWord( random, 1 ) + word.substring( position + 1 ) );
+					break;
+				default :
+					queries.add( randomWord( random, 1 + random.nextInt( 10 ) ) );
+			}
+		}
+	}
+	
+	
+	private static String randomWord( Random random, int length ) {
+		StringBuilder word = new StringBuilder( length );
+		for ( int i = 0; i < length; i++ ) {
+			word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+		}
+		return word.toString();
+	}
+	
+	
+	@Test
+	public void computeClosestWordsMatchesSingleThreadedRuns() throws Exception {
+		for ( final int distance : new int[] { 1, 2 } ) {
+			final List<String> expected = new ArrayList<String>();
+			for ( String query : queries ) {
+				expected.add( describe( trie.computeClosestWords( Trie.encode( query ), distance ) ) );
+			}
+			
+			runConcurrently( new Check() {
+				
+				public void run( int query ) {
+					String found = describe( trie.computeClosestWords( Trie.encode( queries.get( query ) ), distance ) );
+					assertEquals( queries.get( query ), expected.get( query ), found );
+				}
+			} );
+		}
+	}
+	
+	
+	@Test
+	public void getClosestWordsMatchesSingleThreadedRuns() throws Exception {
+		final List<HashSet<String>> expected = new ArrayList<HashSet<String>>();
+		for ( String query : queries ) {
+			expected.add( dictionary.getClosestWords( query ) );
+		}
+		
+		runConcurrently( new Check() {
+			
+			public void run( int query ) throws Exception {
+				assertEquals( queries.get( query ), expected.get( query ), dictionary.getClosestWords( queries.get( query ) ) );
+			}
+		} );
+	}
+	
+	
+	private static String describe( SearchResult result ) {
+		return result.getMinLevDist() + " " + result.getClosestWord() + " " + new TreeSet<String>( result.getClosestWords() );
+	}
+	
+	
+	private interface Check {
+		
+		void run( int query ) throws Exception;
+	}
+	
+	
+	/* Every thread runs every query ROUNDS times, each thread in its own order. */
+	private static void runConcurrently( final Check check ) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for ( int t = 0; t < THREADS; t++ ) {
+				final long seed = t;
+				futures.add( executor.submit( new Callable<Void>() {
+					
+					public Void call() throws Exception {
+						List<Integer> order = new ArrayList<Integer>();
+						for ( int round = 0; round < ROUNDS; round++ ) {
+							for ( int i = 0; i < queries.size(); i++ ) {
+								order.add( i );
+							}
+						}
+						Collections.shuffle( order, new Random( seed ) );
+						for ( int query : order ) {
+							check.run( query );
+						}
+						return null;
+					}
+				} ) );
+			}
+			for ( Future<Void> future : futures ) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
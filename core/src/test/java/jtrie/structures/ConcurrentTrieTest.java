@@ -0,0 +1,207 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+/**
+ * Runs overlapping insertions, deletions and lookups from many threads on a 
+ * ConcurrentTrie and checks its words and size against a concurrent set.
+ * <p>
+ * The words under Ψ use 60 letters after it, so the node of Ψ and its children grow 
+ * past the dense threshold while they are being written and are swapped to an 
+ * AtomicReferenceArray. The words under Ω use the letters A, B and C only, so their 
+ * nodes keep the sparse child arrays which are replaced with compare-and-set.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class ConcurrentTrieTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘΙΚΛΜΝΞΟΠΡΣΤΥΦΧΨΩABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+	private static final int THREADS = 8;
+	private static final int OPERATIONS = 40000;
+	
+	
+	@Test
+	public void overlappingInsertsMatchTheOracle() throws Exception {
+		final ConcurrentTrie trie = new ConcurrentTrie();
+		final List<String> words = words();
+		final Set<String> oracle = ConcurrentHashMap.newKeySet();
+		final AtomicInteger added = new AtomicInteger();
+		
+		run( new Worker() {
+			
+			public void run( Random random ) {
+				for ( int i = 0; i < OPERATIONS; i++ ) {
+					String word = words.get( random.nextInt( words.size() ) );
+					if ( random.nextBoolean() ) {
+						if ( trie.insert( word ) ) added.incrementAndGet();
+						oracle.add( word );
+						assertTrue( word, trie.contains( word ) );
+					}
+					else if ( oracle.contains( word ) ) {
+						assertTrue( word, trie.contains( word ) );
+					}
+				}
+			}
+		} );
+		
+		assertEquals( oracle.size(), added.get() );
+		assertContents( trie, words, oracle );
+	}
+	
+	
+	@Test
+	public void overlappingInsertsAndDeletesMatchTheOracle() throws Exception {
+		final ConcurrentTrie trie = new ConcurrentTrie();
+		final List<String> words = words();
+		
+		/* Words which are never deleted must be found at any time. */
+		final List<String> stable = new ArrayList<String>();
+		for ( String word : words() ) {
+			stable.add( word + "ZZZZ" );
+		}
+		for ( String word : stable ) {
+			trie.insert( word );
+		}
+		
+		/* Only one call may insert or delete a word at a time, so the winners add up to 0 or 1 for every word. */
+		final ConcurrentHashMap<String, AtomicInteger> winners = new ConcurrentHashMap<String, AtomicInteger>();
+		for ( String word : words ) {
+			winners.put( word, new AtomicInteger() );
+		}
+		
+		run( new Worker() {
+			
+			public void run( Random random ) {
+				for ( int i = 0; i < OPERATIONS; i++ ) {
+					String word = words.get( random.nextInt( words.size() ) );
+					switch ( random.nextInt( 3 ) ) {
+						case 0 :
+							if ( trie.insert( word ) ) winners.get( word ).incrementAndGet();
+							break;
+						case 1 :
+							if ( trie.delete( word ) ) winners.get( word ).decrementAndGet();
+							break;
+						default :
+							trie.contains( word );
+							String kept = stable.get( random.nextInt( stable.size() ) );
+							assertTrue( kept, trie.contains( kept ) );
+					}
+				}
+			}
+		} );
+		
+		Set<String> oracle = ConcurrentHashMap.newKeySet();
+		oracle.addAll( stable );
+		for ( String word : words ) {
+			int count = winners.get( word ).get();
+			assertTrue( word + " " + count, count == 0 || count == 1 );
+			if ( count == 1 ) oracle.add( word );
+		}
+		assertContents( trie, words, oracle );
+	}
+	
+	
+	private static void assertContents( ConcurrentTrie trie, List<String> words, Set<String> oracle ) {
+		for ( String word : words ) {
+			assertEquals( word, oracle.contains( word ), trie.contains( word ) );
+		}
+		for ( String word : oracle ) {
+			assertTrue( word, trie.contains( word ) );
+		}
+		assertEquals( oracle.size(), trie.size() );
+	}
+	
+	
+	/* Words under Ψ, with 60 letters after it, and under Ω, with the letters A, B and C only. */
+	private static List<String> words() {
+		List<String> words = new ArrayList<String>();
+		Random random = new Random( 11 );
+		for ( int i = 0; i < 400; i++ ) {
+			StringBuilder word = new StringBuilder( "Ψ" );
+			for ( int length = 1 + random.nextInt( 3 ); length > 0; length-- ) {
+				word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+			}
+			if ( !words.contains( word.toString() ) ) words.add( word.toString() );
+		}
+		addSparse( words, "Ω", 4 );
+		return words;
+	}
+	
+	
+	private static void addSparse( List<String> words, String prefix, int depth ) {
+		words.add( prefix );
+		if ( depth == 0 ) return;
+		for ( char letter = 'A'; letter <= 'C'; letter++ ) {
+			addSparse( words, prefix + letter, depth - 1 );
+		}
+	}
+	
+	
+	private interface Worker {
+		
+		void run( Random random );
+	}
+	
+	
+	/* Runs the worker on every thread, starting them together, and rethrows the first failure. */
+	private static void run( final Worker worker ) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+		try {
+			final CountDownLatch start = new CountDownLatch( 1 );
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for ( int t = 0; t < THREADS; t++ ) {
+				final long seed = t;
+				futures.add( executor.submit( new Callable<Void>() {
+					
+					public Void call() throws Exception {
+						start.await();
+						worker.run( new Random( seed ) );
+						return null;
+					}
+				} ) );
+			}
+			start.countDown();
+			for ( Future<Void> future : futures ) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
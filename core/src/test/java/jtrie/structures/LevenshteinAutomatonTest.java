@@ -0,0 +1,152 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import jtrie.dictionary.FuzzyBackend;
+import jtrie.dictionary.TrieDictionary;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Checks that the walks of a Levenshtein automaton over a Trie and over the word graphs 
+ * find exactly the words of the dynamic programming search.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class LevenshteinAutomatonTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘABCD0";
+	
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+	
+	private static Trie trie;
+	private static List<WordGraph> graphs;
+	private static List<String> queries;
+	
+	
+	@BeforeClass
+	public static void setUp() throws Exception {
+		Random random = new Random( 5 );
+		trie = new Trie();
+		ArrayList<String> words = new ArrayList<String>();
+		for ( int i = 0; i < 3000; i++ ) {
+			String word = randomWord( random, 1 + random.nextInt( 9 ) );
+			words.add( word );
+			trie.insert( word );
+		}
+		
+		Path file = folder.newFile().toPath();
+		trie.save( file );
+		graphs = new ArrayList<WordGraph>();
+		graphs.add( DoubleArrayTrie.build( trie ) );
+		graphs.add( DawgBuilder.build( trie ) );
+		graphs.add( TrieFile.open( file ) );
+		
+		/* Stored words, their neighbours, random words, and words with invalid characters. */
+		queries = new ArrayList<String>();
+		queries.add( "" );
+		queries.add( "Α-Β" );
+		queries.add( "ΑΒ?" );
+		for ( int i = 0; i < 150; i++ ) {
+			String word = words.get( random.nextInt( words.size() ) );
+			int position = random.nextInt( word.length() );
+			switch ( i % 3 ) {
+				case 0 :
+					queries.add( word );
+					break;
+				case 1 :
+					queries.add( word.substring( 0, position ) + randomWord( random, 1 ) + word.substring( position + 1 ) );
+					break;
+				default :
+					queries.add( randomWord( random, 1 + random.nextInt( 12 ) ) );
+			}
+		}
+	}
+	
+	
+	private static String randomWord( Random random, int length ) {
+		StringBuilder word = new StringBuilder( length );
+		for ( int i = 0; i < length; i++ ) {
+			word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+		}
+		return word.toString();
+	}
+	
+	
+	@Test
+	public void trieWalkMatchesTheDynamicProgrammingSearch() {
+		for ( String query : queries ) {
+			for ( int distance = 0; distance <= 3; distance++ ) {
+				assertEquals( query + " " + distance, 
+						new TreeSet<String>( trie.search( query, distance ) ), 
+						new TreeSet<String>( trie.search( LevenshteinAutomaton.forWord( query, distance ) ) ) );
+			}
+		}
+	}
+	
+	
+	@Test
+	public void graphWalksMatchTheDynamicProgrammingSearch() {
+		for ( String query : queries ) {
+			for ( int distance = 0; distance <= 3; distance++ ) {
+				TreeSet<String> expected = new TreeSet<String>( trie.search( query, distance ) );
+				LevenshteinAutomaton automaton = LevenshteinAutomaton.forWord( query, distance );
+				for ( WordGraph graph : graphs ) {
+					assertEquals( graph.getClass().getSimpleName() + " " + query + " " + distance, 
+							expected, new TreeSet<String>( graph.search( automaton ) ) );
+				}
+			}
+		}
+	}
+	
+	
+	@Test
+	public void automatonBackendMatchesTheDynamicProgrammingBackend() throws Exception {
+		TrieDictionary expected = new TrieDictionary();
+		TrieDictionary automaton = new TrieDictionary();
+		automaton.setFuzzyBackend( FuzzyBackend.LEVENSHTEIN_AUTOMATON );
+		Random random = new Random( 6 );
+		for ( int i = 0; i < 3000; i++ ) {
+			String word = randomWord( random, 1 + random.nextInt( 9 ) );
+			expected.insert( word );
+			automaton.insert( word );
+		}
+		
+		for ( String query : queries ) {
+			if ( query.indexOf( '-' ) >= 0 || query.indexOf( '?' ) >= 0 ) continue;
+			HashSet<String> words = expected.getClosestWords( query );
+			assertEquals( query, words, automaton.getClosestWords( query ) );
+		}
+	}
+
+}
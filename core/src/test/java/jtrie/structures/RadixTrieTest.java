@@ -0,0 +1,153 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+
+/**
+ * Checks a RadixTrie against a Trie holding the same words while edges are split by 
+ * insertions and merged by deletions.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class RadixTrieTest {
+	
+	/* Few letters give shared prefixes and splits, the long words give long edges. */
+	private static final String LETTERS = "ΑΒΓΔΕ";
+	
+	private final Random random = new Random( 20 );
+	private final RadixTrie radix = new RadixTrie();
+	private final Trie trie = new Trie();
+	private final List<String> words = new ArrayList<String>();
+	
+	
+	@Test
+	public void randomInsertsAndDeletesMatchTheTrie() {
+		for ( int round = 0; round < 6; round++ ) {
+			for ( int i = 0; i < 400; i++ ) {
+				String word = randomWord();
+				assertEquals( word, trie.insert( word ), radix.insert( word ) );
+				words.add( word );
+			}
+			check();
+			
+			/* Deletes stored words, their prefixes, which may end inside an edge, and missing words. */
+			for ( int i = 0; i < 300; i++ ) {
+				String word = words.get( random.nextInt( words.size() ) );
+				if ( i % 3 == 1 ) word = word.substring( 0, 1 + random.nextInt( word.length() ) );
+				if ( i % 3 == 2 ) word = randomWord();
+				assertEquals( word, trie.delete( word ), radix.delete( word ) );
+			}
+			check();
+		}
+		
+		for ( String word : words ) {
+			trie.delete( word );
+			radix.delete( word );
+		}
+		check();
+		assertEquals( 1, radix.getNodeCount() );
+	}
+	
+	
+	@Test
+	public void splitAndMergeOfASingleEdge() {
+		radix.insert( "ΑΒΓΔΕ" );
+		assertEquals( 2, radix.getNodeCount() );
+		
+		/* Leaving the edge halfway splits it, and a prefix of it marks the split node. */
+		radix.insert( "ΑΒΕ" );
+		assertEquals( 4, radix.getNodeCount() );
+		radix.insert( "ΑΒ" );
+		assertEquals( 4, radix.getNodeCount() );
+		
+		/* Deleting the branch merges the edges back. */
+		radix.delete( "ΑΒΕ" );
+		assertEquals( 3, radix.getNodeCount() );
+		radix.delete( "ΑΒ" );
+		assertEquals( 2, radix.getNodeCount() );
+		assertEquals( 1, radix.size() );
+		assertEquals( "[ΑΒΓΔΕ]", radix.wordsWithPrefix( "ΑΒΓ" ).toString() );
+	}
+	
+	
+	private String randomWord() {
+		int length = random.nextInt( 10 ) == 0 ? 12 + random.nextInt( 20 ) : 1 + random.nextInt( 6 );
+		StringBuilder word = new StringBuilder( length );
+		for ( int i = 0; i < length; i++ ) {
+			word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+		}
+		return word.toString();
+	}
+	
+	
+	private void check() {
+		assertEquals( trie.size(), radix.size() );
+		assertEquals( nodeCount( trie.getRoot() ), radix.getNodeCount() );
+		
+		for ( int i = 0; i < 200; i++ ) {
+			String word = i % 2 == 0 && !words.isEmpty() ? words.get( random.nextInt( words.size() ) ) : randomWord();
+			assertEquals( word, trie.contains( word ), radix.contains( word ) );
+			
+			String prefix = word.substring( 0, random.nextInt( word.length() + 1 ) );
+			assertEquals( prefix, new TreeSet<String>( trie.complete( prefix, Integer.MAX_VALUE ) ), 
+					new TreeSet<String>( radix.wordsWithPrefix( prefix ) ) );
+			
+			if ( i % 10 == 0 ) {
+				for ( int distance = 0; distance <= 2; distance++ ) {
+					assertEquals( word + " " + distance, new TreeSet<String>( trie.search( word, distance ) ), 
+							new TreeSet<String>( radix.search( word, distance ) ) );
+					SearchResult expected = trie.computeClosestWords( Trie.encode( word ), distance );
+					SearchResult found = radix.computeClosestWords( Trie.encode( word ), distance );
+					assertEquals( word + " " + distance, expected.getMinLevDist(), found.getMinLevDist() );
+					assertEquals( word + " " + distance, expected.getClosestWord(), found.getClosestWord() );
+				}
+			}
+		}
+	}
+	
+	
+	/* The nodes a radix tree of the words of the Trie has: the root, the words and the branches. */
+	private static int nodeCount( TrieNode root ) {
+		int count = 1;
+		ArrayList<TrieNode> stack = new ArrayList<TrieNode>();
+		stack.add( root );
+		while ( !stack.isEmpty() ) {
+			TrieNode node = stack.remove( stack.size() - 1 );
+			int children = 0;
+			for ( int slot = 0; slot < node.getChildSlots(); slot++ ) {
+				TrieNode child = node.getChildAt( slot );
+				if ( child == null ) continue;
+				children++;
+				stack.add( child );
+			}
+			if ( node != root && ( node.isWord() || children > 1 ) ) count++;
+		}
+		return count;
+	}
+
+}
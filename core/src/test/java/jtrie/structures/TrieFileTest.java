@@ -0,0 +1,128 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Checks that a saved TrieFile opens with its words, and that a damaged or truncated 
+ * one is rejected.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class TrieFileTest {
+	
+	private static final String LETTERS = "ΑΒΓΔΕΖΗΘ";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private Trie trie;
+	private byte[] saved;
+	
+	
+	@Before
+	public void setUp() throws IOException {
+		Random random = new Random( 7 );
+		trie = new Trie();
+		for ( int i = 0; i < 500; i++ ) {
+			StringBuilder word = new StringBuilder();
+			for ( int length = 1 + random.nextInt( 8 ); length > 0; length-- ) {
+				word.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+			}
+			trie.insert( word.toString() );
+		}
+		Path file = folder.newFile().toPath();
+		TrieFile.save( trie, file );
+		saved = Files.readAllBytes( file );
+	}
+	
+	
+	@Test
+	public void savedFileHoldsTheWords() throws IOException {
+		MappedWordGraph graph = TrieFile.open( write( saved ) );
+		assertEquals( trie.size(), graph.size() );
+		assertEquals( trie.search( "ΑΒΓ", 1 ).size(), graph.search( "ΑΒΓ", 1 ).size() );
+		assertTrue( graph.contains( trie.search( "ΑΒΓ", 2 ).get( 0 ) ) );
+	}
+	
+	
+	@Test
+	public void everyFlippedHeaderBitIsRejected() throws IOException {
+		for ( int bit = 0; bit < TrieFile.HEADER_SIZE * 8; bit++ ) {
+			byte[] damaged = saved.clone();
+			damaged[bit / 8] ^= 1 << ( bit % 8 );
+			assertRejected( "header bit " + bit, damaged, true );
+		}
+	}
+	
+	
+	@Test
+	public void flippedBodyBytesAreRejected() throws IOException {
+		Random random = new Random( 8 );
+		for ( int i = 0; i < 200; i++ ) {
+			byte[] damaged = saved.clone();
+			int position = TrieFile.HEADER_SIZE + random.nextInt( saved.length - TrieFile.HEADER_SIZE );
+			damaged[position] ^= 1 << random.nextInt( 8 );
+			assertRejected( "body byte " + position, damaged, true );
+		}
+	}
+	
+	
+	@Test
+	public void truncatedOrExtendedFilesAreRejected() throws IOException {
+		for ( int length : new int[] { 0, 1, 16, TrieFile.HEADER_SIZE - 1, TrieFile.HEADER_SIZE, 
+				TrieFile.HEADER_SIZE + 4, saved.length / 2, saved.length - 4, saved.length - 1 } ) {
+			assertRejected( "length " + length, Arrays.copyOf( saved, length ), false );
+		}
+		assertRejected( "extended", Arrays.copyOf( saved, saved.length + 4 ), false );
+	}
+	
+	
+	private Path write( byte[] bytes ) throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write( file, bytes );
+		return file;
+	}
+	
+	
+	private void assertRejected( String message, byte[] bytes, boolean verify ) throws IOException {
+		try {
+			TrieFile.open( write( bytes ), verify );
+			fail( message + " was opened." );
+		}
+		catch ( IOException e ) {
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import jtrie.structures.ConcurrentTrie;
+
+
+/**
+ * A dictionary which can be read and updated by any number of threads at the same 
+ * time. Lookups never block, even while words are being inserted.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class ConcurrentTrieDictionary implements Dictionary {
+	
+	private final ConcurrentTrie trie;
+	
+	
+	/**
+	 * 
+	 */
+	public ConcurrentTrieDictionary() {
+		trie = new ConcurrentTrie();
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 */
+	public void insert( String word ) {
+		trie.insert( word );
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 */
+	public void delete( String word ) {
+		trie.delete( word );
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 * @return
+	 */
+	public boolean contains( CharSequence word ) {
+		return trie.contains( word );
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		return trie.contains( word, offset, length );
+	}
+	
+	
+	/**
+	 * 
+	 * @return The size of the dictionary.
+	 */
+	public int size() {
+		return trie.size();
+	}
+
+}
@@ -27,7 +27,9 @@ public interface Dictionary {
 	 
 	 public void delete( String word );
 	 
-	 public boolean contains( String word );
+	 public boolean contains( CharSequence word );
+	 
+	 public boolean contains( char[] word, int offset, int length );
 	 
 	 public int size();
 	
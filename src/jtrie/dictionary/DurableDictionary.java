@@ -0,0 +1,488 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import jtrie.structures.Alphabet;
+import jtrie.structures.Trie;
+import jtrie.structures.TrieSnapshot;
+
+
+/**
+ * A dictionary kept in a directory, which survives a crash. Every insertion and deletion 
+ * is appended to a write-ahead log, whose records are forced to the disk together every 
+ * few milliseconds, so a mutation costs no more than an append to a buffer in memory. 
+ * Once the log has grown past a limit, a {@link TrieSnapshot snapshot} of the dictionary 
+ * is rebuilt in the background from the previous snapshot and the closed log segments, 
+ * and the log before it is deleted. Opening the directory 
+ * loads the snapshot and replays the rest of the log.
+ * <p>
+ * Mutations are serialized, and the mutations of the last sync interval may be lost 
+ * in a crash; a sync interval of 0 forces every mutation before it returns. The reads 
+ * of this class share a read lock, which mutations exclude. Searches go to the 
+ * {@link #getDictionary() dictionary} itself, which must not be modified directly, 
+ * and take no lock.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class DurableDictionary implements Dictionary, Closeable {
+	
+	/** The default time between two forces of the log, in milliseconds. */
+	public static final long DEFAULT_SYNC_INTERVAL = 10;
+	
+	/** The default size of the log which triggers a snapshot, in bytes. */
+	public static final long DEFAULT_COMPACTION_SIZE = 64L * 1024 * 1024;
+	
+	private static final int MAGIC = 0x4A544453;
+	private static final int VERSION = 1;
+	private static final String SNAPSHOT = "snapshot", SNAPSHOT_TEMP = "snapshot.tmp";
+	
+	/* How often the size of the log is checked when every mutation is forced. */
+	private static final long COMPACTION_CHECK_INTERVAL = 100;
+	
+	private final Path directory;
+	private final TrieDictionary dictionary;
+	private final WriteAheadLog log;
+	private final long syncInterval;
+	private final long compactionSize;
+	
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final Object compaction = new Object();
+	private final AtomicBoolean compacting = new AtomicBoolean();
+	
+	/* Mutations take the write lock, reads the read lock. */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/* Guarded by the write lock. */
+	private boolean closed;
+	
+	/* The first failure of the background sync or compaction, which fails the later mutations. */
+	private volatile IOException failure;
+	
+	
+	/**
+	 * Opens the dictionary kept in the given directory, with the default alphabet, 
+	 * sync interval and compaction size.
+	 * @param directory the directory, which is created if it does not exist
+	 * @throws IOException if the directory cannot be read, or its files are damaged.
+	 */
+	public DurableDictionary( Path directory ) throws IOException {
+		this( directory, Alphabet.DEFAULT, DEFAULT_SYNC_INTERVAL, DEFAULT_COMPACTION_SIZE );
+	}
+	
+	
+	/**
+	 * Opens the dictionary kept in the given directory, recovering its words from the 
+	 * snapshot and the log found there.
+	 * @param directory the directory, which is created if it does not exist
+	 * @param alphabet the alphabet the dictionary was created with
+	 * @param syncInterval the milliseconds between two forces of the log, or 0 to force 
+	 * every mutation
+	 * @param compactionSize the size of the log which triggers a snapshot, in bytes, 
+	 * or 0 to write snapshots only on {@link #compact()}
+	 * @throws IOException if the directory cannot be read, or its files are damaged.
+	 */
+	public DurableDictionary( Path directory, Alphabet alphabet, long syncInterval, long compactionSize ) 
+			throws IOException {
+		
+		if ( syncInterval < 0 ) throw new IllegalArgumentException( "Negative sync interval: " + syncInterval );
+		if ( compactionSize < 0 ) throw new IllegalArgumentException( "Negative compaction size: " + compactionSize );
+		
+		this.directory = directory;
+		this.syncInterval = syncInterval;
+		this.compactionSize = compactionSize;
+		
+		Files.createDirectories( directory );
+		Files.deleteIfExists( directory.resolve( SNAPSHOT_TEMP ) );
+		
+		Snapshot snapshot = Snapshot.read( directory.resolve( SNAPSHOT ), alphabet );
+		log = WriteAheadLog.open( directory, snapshot.first, replayer( snapshot.trie ) );
+		dictionary = new TrieDictionary( snapshot.trie );
+		
+		scheduler = new ScheduledThreadPoolExecutor( 2, new ThreadFactory() {
+			
+			public Thread newThread( Runnable task ) {
+				Thread thread = new Thread( task, "jtrie-durable-" + DurableDictionary.this.directory.getFileName() );
+				thread.setDaemon( true );
+				return thread;
+			}
+		} );
+		long period = syncInterval > 0 ? syncInterval : COMPACTION_CHECK_INTERVAL;
+		scheduler.scheduleWithFixedDelay( new Runnable() {
+			
+			public void run() {
+				maintain();
+			}
+		}, period, period, TimeUnit.MILLISECONDS );
+	}
+	
+	
+	/* Applies the records of the log to the given Trie. */
+	private static WriteAheadLog.Handler replayer( final Trie trie ) {
+		final Alphabet alphabet = trie.getAlphabet();
+		return new WriteAheadLog.Handler() {
+			
+			public void apply( byte type, byte[] word, int length, long weight ) {
+				String decoded = alphabet.decode( word, 0, length );
+				if ( type == WriteAheadLog.INSERT ) trie.insert( decoded, weight );
+				else trie.delete( decoded );
+			}
+		};
+	}
+	
+	
+	/* Runs on the scheduler: forces the log, and starts a compaction once it has grown too large. */
+	private void maintain() {
+		try {
+			if ( syncInterval > 0 ) log.sync();
+		}
+		catch ( IOException e ) {
+			fail( e );
+			return;
+		}
+		
+		if ( compactionSize > 0 && log.size() >= compactionSize && compacting.compareAndSet( false, true ) ) {
+			scheduler.execute( new Runnable() {
+				
+				public void run() {
+					try {
+						compact();
+					}
+					catch ( IOException e ) {
+						fail( e );
+					}
+					catch ( IllegalStateException e ) {
+						// closed in the meantime
+					}
+					finally {
+						compacting.set( false );
+					}
+				}
+			} );
+		}
+	}
+	
+	
+	private void fail( IOException e ) {
+		if ( failure == null ) failure = e;
+	}
+	
+	
+	/**
+	 * Inserts the given word and logs the insertion. Words with characters outside the 
+	 * alphabet are ignored, as in a {@link TrieDictionary}.
+	 * @param word
+	 * @throws UncheckedIOException if the log cannot be written.
+	 */
+	public void insert( String word ) {
+		insert( word, 1 );
+	}
+	
+	
+	/**
+	 * Inserts the given word with the given weight, which is added to its frequency, 
+	 * and logs the insertion.
+	 * @param word
+	 * @param weight a weight of at least 0
+	 * @throws UncheckedIOException if the log cannot be written.
+	 */
+	public void insert( String word, long weight ) {
+		byte[] codes = encode( word );
+		long position;
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			dictionary.insert( word, weight );
+			if ( codes == null ) return;
+			position = log.append( WriteAheadLog.INSERT, codes, weight );
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		commit( position );
+	}
+	
+	
+	/**
+	 * Deletes the given word and logs the deletion.
+	 * @param word
+	 * @throws UncheckedIOException if the log cannot be written.
+	 */
+	public void delete( String word ) {
+		byte[] codes = encode( word );
+		long position;
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			dictionary.delete( word );
+			if ( codes == null ) return;
+			position = log.append( WriteAheadLog.DELETE, codes, 0 );
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		commit( position );
+	}
+	
+	
+	/* The letter codes of the word, or null if it cannot be stored and needs no record. */
+	private byte[] encode( String word ) {
+		byte[] codes = dictionary.getAlphabet().encode( word );
+		if ( codes.length == 0 ) return null;
+		for ( byte code : codes ) {
+			if ( code == 0 ) return null;
+		}
+		return codes;
+	}
+	
+	
+	private void checkOpen() {
+		if ( closed ) throw new IllegalStateException( "The dictionary is closed." );
+		IOException failure = this.failure;
+		if ( failure != null ) throw new UncheckedIOException( "The log cannot be written.", failure );
+	}
+	
+	
+	/* Forces the record when every mutation is synced; concurrent callers share the force. */
+	private void commit( long position ) {
+		if ( syncInterval > 0 ) return;
+		try {
+			log.sync( position );
+		}
+		catch ( IOException e ) {
+			fail( e );
+			throw new UncheckedIOException( "The log cannot be written.", e );
+		}
+	}
+	
+	
+	/**
+	 * Waits for a mutation in progress, and runs alongside the other reads.
+	 * @param word
+	 * @return
+	 */
+	public boolean contains( CharSequence word ) {
+		lock.readLock().lock();
+		try {
+			return dictionary.contains( word );
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * Waits for a mutation in progress, and runs alongside the other reads.
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		lock.readLock().lock();
+		try {
+			return dictionary.contains( word, offset, length );
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * 
+	 * @return The size of the dictionary.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return dictionary.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * @return the dictionary, for searches. It must only be modified through this object, 
+	 * and searches must not run concurrently with mutations.
+	 */
+	public TrieDictionary getDictionary() {
+		return dictionary;
+	}
+	
+	
+	/**
+	 * @return the size of the log which is not covered by the snapshot yet, in bytes.
+	 */
+	public long getLogSize() {
+		return log.size();
+	}
+	
+	
+	/**
+	 * Forces all the mutations logged so far to the disk.
+	 * @throws IOException
+	 */
+	public void sync() throws IOException {
+		log.sync();
+	}
+	
+	
+	/**
+	 * Writes a snapshot of the dictionary and deletes the log it replaces. Mutations 
+	 * only wait while the log moves to a new segment: the snapshot is rebuilt from the 
+	 * previous one and the closed segments, and streamed to the disk.
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+		synchronized ( compaction ) {
+			long segment;
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				segment = log.rotate();
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+			
+			Snapshot previous = Snapshot.read( directory.resolve( SNAPSHOT ), dictionary.getAlphabet() );
+			log.replay( previous.first, segment, replayer( previous.trie ) );
+			
+			Path temp = directory.resolve( SNAPSHOT_TEMP );
+			FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE, 
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+			try {
+				DataOutputStream out = new DataOutputStream( 
+						new BufferedOutputStream( Channels.newOutputStream( channel ), 64 * 1024 ) );
+				out.writeInt( MAGIC );
+				out.writeInt( VERSION );
+				out.writeLong( segment );
+				TrieSnapshot.write( previous.trie, out );
+				out.flush();
+				channel.force( true );
+			}
+			finally {
+				channel.close();
+			}
+			Files.move( temp, directory.resolve( SNAPSHOT ), 
+					StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+			forceDirectory();
+			
+			log.deleteBefore( segment );
+		}
+	}
+	
+	
+	/* Makes the rename durable where the platform allows a directory to be forced. */
+	private void forceDirectory() {
+		try {
+			FileChannel channel = FileChannel.open( directory, StandardOpenOption.READ );
+			try {
+				channel.force( true );
+			}
+			finally {
+				channel.close();
+			}
+		}
+		catch ( IOException e ) {
+		}
+	}
+	
+	
+	/**
+	 * Forces the log and closes the dictionary. A compaction in progress is completed first.
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if ( closed ) return;
+			closed = true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized ( compaction ) {
+			log.close();
+		}
+	}
+	
+	
+	/* The words of a snapshot file, and the first segment of the log which follows it. */
+	private static final class Snapshot {
+		
+		final Trie trie;
+		final long first;
+		
+		
+		Snapshot( Trie trie, long first ) {
+			this.trie = trie;
+			this.first = first;
+		}
+		
+		
+		/* Reads the given snapshot file, or returns an empty Trie if there is none. */
+		static Snapshot read( Path file, Alphabet alphabet ) throws IOException {
+			if ( !Files.exists( file ) ) return new Snapshot( new Trie( alphabet ), 0 );
+			
+			DataInputStream in = new DataInputStream( 
+					new BufferedInputStream( Files.newInputStream( file ), 64 * 1024 ) );
+			try {
+				if ( in.readInt() != MAGIC || in.readInt() != VERSION ) {
+					throw new IOException( "Not a snapshot: " + file );
+				}
+				long first = in.readLong();
+				return new Snapshot( TrieSnapshot.read( in, alphabet ), first );
+			}
+			finally {
+				in.close();
+			}
+		}
+	}
+
+}
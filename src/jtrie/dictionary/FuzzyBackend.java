@@ -0,0 +1,49 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+/**
+ * The engines which can answer the fuzzy queries of a TrieDictionary. 
+ * All of them return exactly the same words.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public enum FuzzyBackend {
+	
+	/** Computes a row of the Levenshtein Distance matrix at every visited node. */
+	DYNAMIC_PROGRAMMING,
+	
+	/** Walks a Levenshtein automaton built for the query together with the Trie. */
+	LEVENSHTEIN_AUTOMATON,
+	
+	/** 
+	 * Computes the rows of the dynamic programming backend as bit vectors, with a few 
+	 * word-level operations per visited node. Words longer than 64 letters use the scalar rows.
+	 */
+	BIT_PARALLEL,
+	
+	/** 
+	 * Probes a {@link jtrie.structures.SymmetricDeleteIndex} of the delete variants of the words 
+	 * instead of walking the Trie. The index is built when the backend is selected, for the 
+	 * distance threshold or a larger distance, kept up to date by every insertion and deletion, 
+	 * and dropped when another backend is selected.
+	 */
+	SYMMETRIC_DELETE
+
+}
@@ -0,0 +1,334 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * A bounded cache of fuzzy search results, keyed by the capitalized query and the 
+ * search distance. The cache holds at most a given number of results and a given total 
+ * weight, the weight of a result being its number of words plus one.
+ * <p>
+ * The entries are kept in least recently used order, and a new result is only admitted 
+ * in place of the least recently used one if its query has been asked more often. The 
+ * frequencies of the queries are estimated by a count-min sketch which is halved 
+ * periodically, so the cache follows changes of the traffic while a burst of one-off 
+ * queries cannot flush the popular ones.
+ * <p>
+ * Every entry carries the version of the dictionary it was computed from. An entry of 
+ * an older version is never returned, so an insert or delete which changes the 
+ * dictionary invalidates all the cached results at once. The cache is safe for use 
+ * by concurrent threads.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class QueryCache {
+	
+	private final int maximumSize;
+	private final long maximumWeight;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LinkedHashMap<Key, Entry> entries;
+	private final FrequencySketch sketch;
+	private long weight;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	
+	/**
+	 * @param maximumSize the maximum number of cached results
+	 * @param maximumWeight the maximum total weight of the cached results
+	 */
+	public QueryCache( int maximumSize, long maximumWeight ) {
+		if ( maximumSize <= 0 ) throw new IllegalArgumentException( "maximumSize: " + maximumSize );
+		if ( maximumWeight <= 0 ) throw new IllegalArgumentException( "maximumWeight: " + maximumWeight );
+		this.maximumSize = maximumSize;
+		this.maximumWeight = maximumWeight;
+		this.entries = new LinkedHashMap<Key, Entry>( 16, 0.75f, true );
+		this.sketch = new FrequencySketch( maximumSize );
+	}
+	
+	
+	/**
+	 * Returns the cached words of the given query, if they were computed from the given 
+	 * version of the dictionary.
+	 * @param word the capitalized query
+	 * @param distance
+	 * @param version the current version of the dictionary
+	 * @return the words, or null on a miss.
+	 */
+	String[] get( String word, int distance, long version ) {
+		Key key = new Key( word, distance );
+		lock.lock();
+		try {
+			sketch.increment( key.hashCode() );
+			Entry entry = entries.get( key );
+			if ( entry != null && entry.version != version ) {
+				remove( key, entry );
+				entry = null;
+			}
+			if ( entry == null ) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.words;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * Offers the words of the given query to the cache, which admits them if they fit 
+	 * and their query is asked at least as often as the one they would evict.
+	 * @param word the capitalized query
+	 * @param distance
+	 * @param version the version of the dictionary the words were computed from
+	 * @param words
+	 */
+	void put( String word, int distance, long version, Collection<String> words ) {
+		long entryWeight = words.size() + 1L;
+		if ( entryWeight > maximumWeight ) return;
+		
+		Key key = new Key( word, distance );
+		Entry entry = new Entry( words.toArray( new String[words.size()] ), version, entryWeight );
+		lock.lock();
+		try {
+			Entry previous = entries.remove( key );
+			if ( previous != null ) weight -= previous.weight;
+			
+			Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+			boolean admitted = false;
+			while ( entries.size() >= maximumSize || weight + entryWeight > maximumWeight ) {
+				Map.Entry<Key, Entry> victim = eldest.next();
+				if ( !admitted && victim.getValue().version == version 
+						&& sketch.frequency( key.hashCode() ) < sketch.frequency( victim.getKey().hashCode() ) ) return;
+				admitted = true;
+				eldest.remove();
+				weight -= victim.getValue().weight;
+				evictions.increment();
+			}
+			
+			entries.put( key, entry );
+			weight += entryWeight;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	
+	private void remove( Key key, Entry entry ) {
+		entries.remove( key );
+		weight -= entry.weight;
+	}
+	
+	
+	/**
+	 * Removes all the cached results.
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			entries.clear();
+			weight = 0;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * @return the number of cached results.
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return entries.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * @return the total weight of the cached results.
+	 */
+	public long weight() {
+		lock.lock();
+		try {
+			return weight;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * @return the number of queries answered from the cache.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+	
+	
+	/**
+	 * @return the number of queries which were not in the cache or were out of date.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+	
+	
+	/**
+	 * @return the number of results removed to make room for others.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+	
+	
+	/**
+	 * @return the maximum number of cached results.
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+	
+	
+	/**
+	 * @return the maximum total weight of the cached results.
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "QueryCache[size=" + size() + ", weight=" + weight() + ", hits=" + getHitCount() 
+				+ ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+	
+	
+	private static final class Key {
+		
+		private final String word;
+		private final int distance;
+		private final int hash;
+		
+		Key( String word, int distance ) {
+			this.word = word;
+			this.distance = distance;
+			this.hash = word.hashCode() * 31 + distance;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals( Object object ) {
+			if ( !( object instanceof Key ) ) return false;
+			Key key = (Key) object;
+			return hash == key.hash && distance == key.distance && word.equals( key.word );
+		}
+		
+	}
+	
+	
+	private static final class Entry {
+		
+		final String[] words;
+		final long version, weight;
+		
+		Entry( String[] words, long version, long weight ) {
+			this.words = words;
+			this.version = version;
+			this.weight = weight;
+		}
+		
+	}
+	
+	
+	/**
+	 * A count-min sketch of 4 rows of counters capped at 15. After every ten increments 
+	 * per cached result all the counters are halved, so old popularity fades away.
+	 */
+	private static final class FrequencySketch {
+		
+		private static final int DEPTH = 4;
+		private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+		
+		private final byte[] counters;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+		
+		FrequencySketch( int maximumSize ) {
+			int width = Integer.highestOneBit( Math.max( 16, Math.min( maximumSize, 1 << 24 ) ) * 2 - 1 );
+			counters = new byte[width * DEPTH];
+			mask = width - 1;
+			sampleSize = (int) Math.min( Integer.MAX_VALUE, maximumSize * 10L );
+		}
+		
+		int frequency( int hash ) {
+			int frequency = Integer.MAX_VALUE;
+			for ( int row = 0; row < DEPTH; row++ ) {
+				frequency = Math.min( frequency, counters[index( hash, row )] );
+			}
+			return frequency;
+		}
+		
+		void increment( int hash ) {
+			for ( int row = 0; row < DEPTH; row++ ) {
+				int index = index( hash, row );
+				if ( counters[index] < 15 ) counters[index]++;
+			}
+			if ( ++additions == sampleSize ) {
+				additions = 0;
+				for ( int i = 0; i < counters.length; i++ ) {
+					counters[i] >>= 1;
+				}
+			}
+		}
+		
+		private int index( int hash, int row ) {
+			int h = ( hash ^ SEEDS[row] ) * SEEDS[( row + 1 ) & 3];
+			h ^= h >>> 16;
+			return row * ( mask + 1 ) + ( h & mask );
+		}
+		
+	}
+
+}
@@ -0,0 +1,602 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import jtrie.exceptions.InvalidCharacterException;
+import jtrie.structures.Alphabet;
+import jtrie.structures.Trie;
+import jtrie.structures.TrieNode;
+
+
+/**
+ * A dictionary split across independent Tries, each behind its own read/write lock, 
+ * so threads working on different shards never wait for each other. A word belongs 
+ * to the shard of its first letter: insertions, deletions and lookups lock one shard, 
+ * and getClosestWords searches all the shards in parallel and merges their words.
+ * <p>
+ * As all the words of a first letter share a shard, the shards are as even as the 
+ * first letters allow. {@link #rebalance()} reassigns the first letters to the shards 
+ * by their number of words, and can run automatically once the shards become skewed.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class ShardedTrieDictionary implements Dictionary {
+	
+	/* How many mutations of a shard pass between two checks of the skew. */
+	private static final int SKEW_CHECK_INTERVAL = 4096;
+	
+	private final Alphabet alphabet;
+	private final Shard[] shards;
+	
+	/* The shard of every first letter, replaced by a copy for every letter rebalance moves. */
+	private volatile byte[] routes;
+	
+	/* Held by the rebalance, the only writer of the routes. */
+	private final ReentrantLock rebalancing = new ReentrantLock();
+	
+	private volatile ForkJoinPool searchPool = ForkJoinPool.commonPool();
+	private volatile double rebalanceSkew;
+	
+	
+	/**
+	 * Creates a dictionary with a shard per available processor.
+	 */
+	public ShardedTrieDictionary() {
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+	
+	
+	/**
+	 * 
+	 * @param shards the number of shards
+	 */
+	public ShardedTrieDictionary( int shards ) {
+		this( shards, Alphabet.DEFAULT );
+	}
+	
+	
+	/**
+	 * 
+	 * @param shards the number of shards, at most the number of letters of the alphabet
+	 * @param alphabet the alphabet of the words
+	 */
+	public ShardedTrieDictionary( int shards, Alphabet alphabet ) {
+		if ( shards < 1 || shards > alphabet.size() ) {
+			throw new IllegalArgumentException( "Between 1 and " + alphabet.size() + " shards: " + shards );
+		}
+		
+		this.alphabet = alphabet;
+		this.shards = new Shard[shards];
+		for ( int i = 0; i < shards; i++ ) {
+			this.shards[i] = new Shard( new Trie( alphabet ) );
+		}
+		
+		byte[] routes = new byte[Alphabet.MAX_LETTERS + 1];
+		for ( int code = 1; code <= alphabet.size(); code++ ) {
+			routes[code] = (byte) ( ( code - 1 ) % shards );
+		}
+		this.routes = routes;
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 */
+	public void insert( String word ) {
+		insert( word, 1 );
+	}
+	
+	
+	/**
+	 * Inserts the given word with the given weight, which is added to its frequency.
+	 * @param word
+	 * @param weight a weight of at least 0
+	 */
+	public void insert( String word, long weight ) {
+		if ( weight < 0 ) throw new IllegalArgumentException( "Negative weight: " + weight );
+		
+		byte code = firstCode( word );
+		if ( code == 0 ) return;
+		
+		Shard shard = lock( code, true );
+		boolean check;
+		try {
+			if ( shard.trie.insert( word, weight ) ) shard.words[code]++;
+			check = ++shard.mutations % SKEW_CHECK_INTERVAL == 0;
+		}
+		finally {
+			shard.lock.writeLock().unlock();
+		}
+		if ( check ) checkSkew();
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 */
+	public void delete( String word ) {
+		byte code = firstCode( word );
+		if ( code == 0 ) return;
+		
+		Shard shard = lock( code, true );
+		boolean check;
+		try {
+			if ( shard.trie.delete( word ) ) shard.words[code]--;
+			check = ++shard.mutations % SKEW_CHECK_INTERVAL == 0;
+		}
+		finally {
+			shard.lock.writeLock().unlock();
+		}
+		if ( check ) checkSkew();
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 * @return
+	 */
+	public boolean contains( CharSequence word ) {
+		byte code = firstCode( word );
+		if ( code == 0 ) return false;
+		
+		Shard shard = lock( code, false );
+		try {
+			return shard.trie.contains( word );
+		}
+		finally {
+			shard.lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * 
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		if ( length == 0 ) return false;
+		byte code = alphabet.code( word[offset] );
+		if ( code == 0 ) return false;
+		
+		Shard shard = lock( code, false );
+		try {
+			return shard.trie.contains( word, offset, length );
+		}
+		finally {
+			shard.lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * @param word
+	 * @return the sum of the weights the given word was inserted with, or 0 if it is not stored.
+	 */
+	public long getFrequency( CharSequence word ) {
+		byte code = firstCode( word );
+		if ( code == 0 ) return 0;
+		
+		Shard shard = lock( code, false );
+		try {
+			return shard.trie.getFrequency( word );
+		}
+		finally {
+			shard.lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * 
+	 * @return The size of the dictionary. Each shard is counted at a different moment, 
+	 * so the size is approximate while words are being inserted or deleted.
+	 */
+	public int size() {
+		int size = 0;
+		for ( int shard : getShardSizes() ) {
+			size += shard;
+		}
+		return size;
+	}
+	
+	
+	private byte firstCode( CharSequence word ) {
+		return word.length() == 0 ? 0 : alphabet.code( word.charAt( 0 ) );
+	}
+	
+	
+	/* Locks the shard of the given first letter, which a rebalance may move until it is locked. */
+	private Shard lock( byte code, boolean write ) {
+		while ( true ) {
+			int route = routes[code];
+			Shard shard = shards[route];
+			if ( write ) shard.lock.writeLock().lock();
+			else shard.lock.readLock().lock();
+			
+			if ( routes[code] == route ) return shard;
+			
+			if ( write ) shard.lock.writeLock().unlock();
+			else shard.lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * Returns the words of the dictionary whose Levenshtein Distance from the given word 
+	 * is less than the distance threshold of {@link TrieDictionary}.
+	 * @param word
+	 * @return the closest words, in capitals.
+	 * @throws InvalidCharacterException if the word contains an invalid character.
+	 */
+	public HashSet<String> getClosestWords( String word ) throws InvalidCharacterException {
+		return getClosestWords( word, TrieDictionary.DISTANCE_THRESHOLD - 1 );
+	}
+	
+	
+	/**
+	 * Returns the words of the dictionary within maxDistance of the given word. The 
+	 * shards are searched on the {@link #getSearchPool() search pool}, each under its 
+	 * read lock, and the calling thread searches one of them.
+	 * @param word
+	 * @param maxDistance
+	 * @return the closest words, in capitals.
+	 * @throws InvalidCharacterException if the word contains an invalid character.
+	 */
+	public HashSet<String> getClosestWords( String word, final int maxDistance ) throws InvalidCharacterException {
+		final String normalized = alphabet.normalize( word );
+		if ( normalized == null ) throw new InvalidCharacterException();
+		
+		ForkJoinPool pool = searchPool;
+		ArrayList<ForkJoinTask<ArrayList<String>>> tasks = new ArrayList<ForkJoinTask<ArrayList<String>>>();
+		Shard local = null;
+		for ( final Shard shard : shards ) {
+			if ( local == null ) {
+				local = shard;
+				continue;
+			}
+			tasks.add( pool.submit( new Callable<ArrayList<String>>() {
+				
+				public ArrayList<String> call() {
+					return shard.search( normalized, maxDistance );
+				}
+			} ) );
+		}
+		
+		HashSet<String> words = new HashSet<String>();
+		if ( local != null ) words.addAll( local.search( normalized, maxDistance ) );
+		for ( ForkJoinTask<ArrayList<String>> task : tasks ) {
+			try {
+				words.addAll( task.get() );
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException( "Interrupted while searching the shards.", e );
+			}
+			catch ( ExecutionException e ) {
+				throw new IllegalStateException( "A shard could not be searched.", e.getCause() );
+			}
+		}
+		return words;
+	}
+	
+	
+	/**
+	 * Reassigns the first letters to the shards so that the largest shard is as small as 
+	 * possible: the letters are placed from the most words down, each on the smallest 
+	 * shard so far. The words of the letters which change shard are moved one letter 
+	 * at a time, locking only the two shards of the letter, so the other shards stay 
+	 * available. A search running meanwhile may miss the words of the letter being moved.
+	 * @return true if words were moved, false if the shards were already as even as they can be.
+	 */
+	public boolean rebalance() {
+		rebalancing.lock();
+		try {
+			byte[] current = routes;
+			int letters = alphabet.size();
+			long[] counts = new long[letters + 1];
+			long[] loads = new long[shards.length];
+			for ( int i = 0; i < shards.length; i++ ) {
+				Shard shard = shards[i];
+				shard.lock.readLock().lock();
+				try {
+					for ( int code = 1; code <= letters; code++ ) {
+						if ( current[code] == i ) counts[code] = shard.words[code];
+					}
+				}
+				finally {
+					shard.lock.readLock().unlock();
+				}
+			}
+			for ( int code = 1; code <= letters; code++ ) {
+				loads[current[code]] += counts[code];
+			}
+			
+			Integer[] order = new Integer[letters];
+			for ( int code = 1; code <= letters; code++ ) {
+				order[code - 1] = code;
+			}
+			final long[] sorted = counts;
+			Arrays.sort( order, new Comparator<Integer>() {
+				
+				public int compare( Integer a, Integer b ) {
+					return Long.compare( sorted[b], sorted[a] );
+				}
+			} );
+			
+			byte[] balanced = current.clone();
+			long[] balancedLoads = new long[shards.length];
+			for ( int code : order ) {
+				int smallest = current[code];
+				for ( int i = 0; i < shards.length; i++ ) {
+					if ( balancedLoads[i] < balancedLoads[smallest] ) smallest = i;
+				}
+				balanced[code] = (byte) smallest;
+				balancedLoads[smallest] += counts[code];
+			}
+			if ( max( balancedLoads ) >= max( loads ) ) return false;
+			
+			for ( int code = 1; code <= letters; code++ ) {
+				if ( balanced[code] != current[code] ) move( (byte) code, current[code], balanced[code] );
+			}
+			return true;
+		}
+		finally {
+			rebalancing.unlock();
+		}
+	}
+	
+	
+	private static long max( long[] values ) {
+		long max = 0;
+		for ( long value : values ) {
+			max = Math.max( max, value );
+		}
+		return max;
+	}
+	
+	
+	/*
+	 * Moves the words of a first letter between two shards with their frequencies, and 
+	 * routes the letter to its new shard. The shards are locked in the order of their 
+	 * indexes, and the threads waiting for the old shard find the new route once they 
+	 * get its lock.
+	 */
+	private void move( final byte code, int source, int target ) {
+		final Shard from = shards[source], to = shards[target];
+		Shard first = shards[Math.min( source, target )], second = shards[Math.max( source, target )];
+		first.lock.writeLock().lock();
+		second.lock.writeLock().lock();
+		try {
+			/* The copies are walked for the deletions, as the deletions change the nodes of the source. */
+			TrieNode words = from.trie.getRoot().getChild( code );
+			if ( words != null ) {
+				walk( words, new WordVisitor() {
+					
+					public void visit( String word, long frequency ) {
+						to.trie.insert( word, frequency );
+					}
+				} );
+				walk( to.trie.getRoot().getChild( code ), new WordVisitor() {
+					
+					public void visit( String word, long frequency ) {
+						from.trie.delete( word );
+					}
+				} );
+			}
+			to.words[code] += from.words[code];
+			from.words[code] = 0;
+			
+			byte[] moved = routes.clone();
+			moved[code] = (byte) target;
+			routes = moved;
+		}
+		finally {
+			second.lock.writeLock().unlock();
+			first.lock.writeLock().unlock();
+		}
+	}
+	
+	
+	private interface WordVisitor {
+		
+		void visit( String word, long frequency );
+	}
+	
+	
+	/* Visits the words below the given node, itself included, depth first without recursion. */
+	private void walk( TrieNode top, WordVisitor visitor ) {
+		TrieNode[] nodes = new TrieNode[32];
+		int[] slots = new int[32];
+		StringBuilder word = new StringBuilder();
+		nodes[0] = top;
+		word.append( alphabet.letter( top.getLetter() ) );
+		if ( top.isWord() ) visitor.visit( word.toString(), top.getFrequency() );
+		
+		/* word holds the letters of nodes[0 .. depth]. */
+		int depth = 0;
+		while ( depth >= 0 ) {
+			TrieNode node = nodes[depth];
+			TrieNode next = null;
+			while ( slots[depth] < node.getChildSlots() && next == null ) {
+				next = node.getChildAt( slots[depth]++ );
+			}
+			if ( next == null ) {
+				slots[depth] = 0;
+				word.setLength( depth-- );
+				continue;
+			}
+			
+			if ( depth + 1 == nodes.length ) {
+				nodes = Arrays.copyOf( nodes, nodes.length * 2 );
+				slots = Arrays.copyOf( slots, slots.length * 2 );
+			}
+			nodes[++depth] = next;
+			word.append( alphabet.letter( next.getLetter() ) );
+			if ( next.isWord() ) visitor.visit( word.toString(), next.getFrequency() );
+		}
+	}
+	
+	
+	/* An insertion finding a rebalance under way leaves the skew to it. */
+	private void checkSkew() {
+		double skew = rebalanceSkew;
+		if ( skew <= 0 || getSkew() <= skew || !rebalancing.tryLock() ) return;
+		try {
+			rebalance();
+		}
+		finally {
+			rebalancing.unlock();
+		}
+	}
+	
+	
+	/**
+	 * @return the size of the largest shard over the average size of a shard, 1 for even 
+	 * shards, or 0 if the dictionary is empty.
+	 */
+	public double getSkew() {
+		int[] sizes = getShardSizes();
+		long total = 0, largest = 0;
+		for ( int size : sizes ) {
+			total += size;
+			largest = Math.max( largest, size );
+		}
+		return total == 0 ? 0 : largest * (double) sizes.length / total;
+	}
+	
+	
+	/**
+	 * @return the number of words of every shard.
+	 */
+	public int[] getShardSizes() {
+		int[] sizes = new int[shards.length];
+		for ( int i = 0; i < shards.length; i++ ) {
+			shards[i].lock.readLock().lock();
+			try {
+				sizes[i] = shards[i].trie.size();
+			}
+			finally {
+				shards[i].lock.readLock().unlock();
+			}
+		}
+		return sizes;
+	}
+	
+	
+	/**
+	 * @return the number of shards.
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+	
+	
+	/**
+	 * @return the alphabet of the words of the dictionary.
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+	
+	
+	/**
+	 * @return the skew which triggers a rebalance, or 0 if rebalancing is manual.
+	 */
+	public double getRebalanceSkew() {
+		return rebalanceSkew;
+	}
+	
+	
+	/**
+	 * Makes the dictionary rebalance itself whenever the largest shard grows past the 
+	 * given multiple of the average size of a shard. The skew is checked every few 
+	 * thousand mutations of a shard.
+	 * @param rebalanceSkew the skew, above 1, or 0 to rebalance only on request
+	 */
+	public void setRebalanceSkew( double rebalanceSkew ) {
+		if ( rebalanceSkew != 0 && !( rebalanceSkew > 1 ) ) {
+			throw new IllegalArgumentException( "The skew must be above 1: " + rebalanceSkew );
+		}
+		this.rebalanceSkew = rebalanceSkew;
+	}
+	
+	
+	/**
+	 * @return the pool the shards are searched on.
+	 */
+	public ForkJoinPool getSearchPool() {
+		return searchPool;
+	}
+	
+	
+	/**
+	 * Makes getClosestWords search the shards on the given pool.
+	 * @param searchPool the pool, {@link ForkJoinPool#commonPool()} by default
+	 */
+	public void setSearchPool( ForkJoinPool searchPool ) {
+		if ( searchPool == null ) throw new NullPointerException( "searchPool" );
+		this.searchPool = searchPool;
+	}
+	
+	
+	/* A Trie with its lock and the number of its words of every first letter. */
+	private static final class Shard {
+		
+		final Trie trie;
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		
+		/* Guarded by the lock. */
+		final int[] words = new int[Alphabet.MAX_LETTERS + 1];
+		int mutations;
+		
+		
+		Shard( Trie trie ) {
+			this.trie = trie;
+		}
+		
+		
+		ArrayList<String> search( String word, int maxDistance ) {
+			lock.readLock().lock();
+			try {
+				return trie.search( word, maxDistance );
+			}
+			finally {
+				lock.readLock().unlock();
+			}
+		}
+	}
+
+}
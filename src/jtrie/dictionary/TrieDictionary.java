@@ -17,12 +17,33 @@
 package jtrie.dictionary;
 
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import jtrie.exceptions.InvalidCharacterException;
 import jtrie.exceptions.InvalidNumberException;
+import jtrie.metrics.TrieMetrics;
+import jtrie.structures.Alphabet;
+import jtrie.structures.Completions;
+import jtrie.structures.LevenshteinAutomaton;
+import jtrie.structures.LoadResult;
+import jtrie.structures.SearchResult;
+import jtrie.structures.Suggestion;
+import jtrie.structures.SymmetricDeleteIndex;
 import jtrie.structures.Trie;
+import jtrie.structures.TrieFootprint;
+import jtrie.structures.TrieLoader;
 
 
 /**
@@ -31,9 +52,17 @@ import jtrie.structures.Trie;
  */
 public class TrieDictionary implements Dictionary {
 
+	/** The words closer than this distance are returned by getClosestWords. */
+	public static final int DISTANCE_THRESHOLD = 2;
+
 	private final Trie trie;
-	private int totalWords;
-	private HashSet<String> closestWords;
+	private volatile FuzzyBackend fuzzyBackend = FuzzyBackend.DYNAMIC_PROGRAMMING;
+	private volatile ForkJoinPool searchPool;
+	private volatile QueryCache queryCache;
+	private volatile SymmetricDeleteIndex deleteIndex;
+	
+	/* Changes whenever a word is added or removed, which invalidates the cached results. */
+	private final AtomicLong version = new AtomicLong();
 
 	
 	/**
@@ -41,7 +70,21 @@ public class TrieDictionary implements Dictionary {
 	 */
 	public TrieDictionary() {
 		trie = new Trie();
-		totalWords = 0;
+	}
+	
+	
+	/**
+	 * Creates a dictionary of the words of the given alphabet.
+	 * @param alphabet
+	 */
+	public TrieDictionary( Alphabet alphabet ) {
+		trie = new Trie( alphabet );
+	}
+	
+	
+	/* A dictionary of the words of the given Trie, such as one read back from a snapshot. */
+	TrieDictionary( Trie trie ) {
+		this.trie = trie;
 	}
 
 		
@@ -51,8 +94,66 @@ public class TrieDictionary implements Dictionary {
 	 * @param word
 	 */
 	public void insert( String word ) {
-		trie.insert( Trie.capitalize( word ) );
-		totalWords++;
+		insert( word, 1 );
+	}
+	
+	
+	/**
+	 * Inserts the given word with the given weight, which is added to its frequency.
+	 * @param word
+	 * @param weight a weight of at least 0
+	 */
+	public void insert( String word, long weight ) {
+		if ( !trie.insert( word, weight ) ) return;
+		
+		version.incrementAndGet();
+		SymmetricDeleteIndex index = deleteIndex;
+		if ( index != null ) index.insert( word );
+	}
+	
+	
+	/**
+	 * Inserts all the given words. Sorted words are inserted faster, as every word 
+	 * resumes from the prefix it shares with the previous one.
+	 * @param words
+	 * @return the number of inserted, duplicate and rejected words.
+	 */
+	public LoadResult insertAll( Iterable<? extends CharSequence> words ) {
+		return changed( trie.insertAll( words, deleteIndex ) );
+	}
+	
+	
+	/**
+	 * Inserts all the words of the given stream.
+	 * @param words
+	 * @return the number of inserted, duplicate and rejected words.
+	 */
+	public LoadResult insertAll( Stream<? extends CharSequence> words ) {
+		TrieLoader loader = new TrieLoader( trie, deleteIndex );
+		Iterator<? extends CharSequence> iterator = words.iterator();
+		while ( iterator.hasNext() ) {
+			loader.add( iterator.next() );
+		}
+		return changed( loader.getResult() );
+	}
+	
+	
+	/**
+	 * Inserts the words of the given file, one word per line.
+	 * @param path
+	 * @param charset
+	 * @return the number of inserted, duplicate and rejected words.
+	 * @throws IOException
+	 */
+	public LoadResult load( Path path, Charset charset ) throws IOException {
+		return changed( trie.load( path, charset, deleteIndex ) );
+	}
+	
+	
+	/* The loaders have already added the new words to the delete index. */
+	private LoadResult changed( LoadResult result ) {
+		if ( result.getInserted() > 0 ) version.incrementAndGet();
+		return result;
 	}
 	
 	
@@ -61,8 +162,11 @@ public class TrieDictionary implements Dictionary {
 	 * @param word
 	 */
 	public void delete( String word ) {
-		trie.delete( word );
-		totalWords--;
+		if ( !trie.delete( word ) ) return;
+		
+		version.incrementAndGet();
+		SymmetricDeleteIndex index = deleteIndex;
+		if ( index != null ) index.delete( word );
 	}
 		
 		
@@ -79,7 +183,29 @@ public class TrieDictionary implements Dictionary {
 	 * @param word
 	 * @return
 	 */
-	public boolean contains( String word ) {
+	public boolean contains( CharSequence word ) {
+		return trie.contains( word );
+	}	
+		
+		
+	/**
+	 * 
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		return trie.contains( word, offset, length );
+	}	
+		
+		
+	/**
+	 * 
+	 * @param word a word encoded with the {@link #getAlphabet() alphabet} of the dictionary
+	 * @return
+	 */
+	public boolean contains( byte[] word ) {
 		return trie.contains( word );
 	}	
 		
@@ -89,48 +215,323 @@ public class TrieDictionary implements Dictionary {
 	 * @return The size of the dictionary.
 	 */
 	public int size() {
-		return totalWords;
+		return trie.size();
 	}
 	
 	
-	private void computeClosestWords( String word ) 
+	/**
+	 * Returns the words of the dictionary whose Levenshtein Distance from the given word 
+	 * is less than the distance threshold. Every call works on its own search state, so 
+	 * concurrent calls need no synchronization while the dictionary is not modified. 
+	 * When a query cache is set, repeated queries are answered from it until the 
+	 * dictionary changes.
+	 * 
+	 * @param word
+	 * @return the closest words, in capitals.
+	 * @throws InvalidCharacterException if the word contains an invalid character.
+	 * @throws InvalidNumberException
+	 */
+	public HashSet<String> getClosestWords( String word ) 
 				throws InvalidCharacterException, InvalidNumberException {
 		
-		word = Trie.capitalize( word );
-		System.out.println( word );
-		
-		//	if( !word.matches( onlyGreekRegExp ) ) return word;
+		word = normalize( word );
+		byte[] byteWord = trie.getAlphabet().encode( word );
 		
-		ArrayList<Byte> byteWord = new ArrayList<Byte>();
-		byteWord.add( (byte)0 );
-		for( int i = 0; i < word.length(); i++ ) 
-			byteWord.add( Trie.charToNumber( word.charAt(i) ) );
+		QueryCache cache = queryCache;
+		if ( cache == null ) return search( byteWord );
 		
-		if( contains( byteWord ) ) {
-			System.out.println( "Vrethike mesa to idio to tag: word" );
-		}
-		else {
-			trie.computeMinimumLevenshteinDistance( byteWord );
+		long current = version.get();
+		String[] cached = cache.get( word, DISTANCE_THRESHOLD - 1, current );
+		if ( cached != null ) {
+			HashSet<String> words = new HashSet<String>( cached.length * 2 );
+			Collections.addAll( words, cached );
+			return words;
 		}
 		
-		ArrayList< ArrayList<Byte> > closestWordsArrayList = trie.getClosestWords();
+		HashSet<String> words = search( byteWord );
+		cache.put( word, DISTANCE_THRESHOLD - 1, current, words );
+		return words;
+	}
+	
+	
+	/**
+	 * Returns the words of the dictionary within maxDistance of every given word. The 
+	 * dictionary is walked once for the whole batch, so a batch of tokens costs far less 
+	 * than a call per token. The results are the ones of getClosestWords for every word. 
+	 * With the {@link FuzzyBackend#SYMMETRIC_DELETE} backend the words are looked up in 
+	 * the index, unless maxDistance exceeds the distance it was built for, in which case 
+	 * the batch falls back to the walk of the Trie.
+	 * 
+	 * @param words
+	 * @param maxDistance
+	 * @return the closest words of every given word, in capitals, in the order of the given words.
+	 * @throws InvalidCharacterException if a word contains an invalid character.
+	 * @throws InvalidNumberException
+	 */
+	public LinkedHashMap<String, HashSet<String>> getClosestWords( Collection<String> words, int maxDistance ) 
+				throws InvalidCharacterException, InvalidNumberException {
+		
+		LinkedHashMap<String, HashSet<String>> results = new LinkedHashMap<String, HashSet<String>>();
+		ArrayList<String> misses = new ArrayList<String>();
+		ArrayList<String> capitalized = new ArrayList<String>();
+		QueryCache cache = queryCache;
+		long current = version.get();
 		
-		closestWords = new HashSet<String>();
-		for( ArrayList<Byte> closestWordArrayList : closestWordsArrayList ) {
-			StringBuilder closestWord = new StringBuilder();
-			for( byte b : closestWordArrayList ) 
-				closestWord.append( Trie.numberToChar( b ) );
-				closestWords.add( closestWord.toString() );
+		for ( String word : words ) {
+			if ( results.containsKey( word ) ) continue;
+			
+			String capital = normalize( word );
+			
+			String[] cached = cache == null ? null : cache.get( capital, maxDistance, current );
+			if ( cached != null ) {
+				HashSet<String> closest = new HashSet<String>( cached.length * 2 );
+				Collections.addAll( closest, cached );
+				results.put( word, closest );
+			}
+			else {
+				results.put( word, null );
+				misses.add( word );
+				capitalized.add( capital );
 			}
-				
 		}
 		
-		
-		public HashSet<String> getClosestWords( String word ) 
-					throws InvalidCharacterException, InvalidNumberException {
-
-			computeClosestWords( word );
-			return closestWords;
+		SymmetricDeleteIndex index = deleteIndex;
+		ArrayList<ArrayList<String>> found;
+		if ( index != null && maxDistance <= index.getMaxDistance() ) {
+			found = new ArrayList<ArrayList<String>>( capitalized.size() );
+			for ( String capital : capitalized ) {
+				found.add( index.search( capital, maxDistance ) );
+			}
+		}
+		else {
+			found = trie.search( capitalized, maxDistance );
+		}
+		for ( int i = 0; i < misses.size(); i++ ) {
+			HashSet<String> closest = new HashSet<String>( found.get( i ) );
+			results.put( misses.get( i ), closest );
+			if ( cache != null ) cache.put( capitalized.get( i ), maxDistance, current, closest );
+		}
+		return results;
+	}
+	
+	
+	/* Folds the word to the letters of the alphabet, which also checks its characters. */
+	private String normalize( String word ) throws InvalidCharacterException {
+		String normalized = trie.getAlphabet().normalize( word );
+		if ( normalized == null ) throw new InvalidCharacterException();
+		return normalized;
+	}
+	
+	
+	private HashSet<String> search( byte[] byteWord ) {
+		switch ( fuzzyBackend ) {
+			case LEVENSHTEIN_AUTOMATON :
+				return new HashSet<String>( 
+						trie.search( new LevenshteinAutomaton( byteWord, DISTANCE_THRESHOLD - 1 ) ) );
+			
+			case BIT_PARALLEL :
+				return new HashSet<String>( 
+						trie.computeClosestWordsBitParallel( byteWord, DISTANCE_THRESHOLD - 1 ).getClosestWords() );
+			
+			case SYMMETRIC_DELETE :
+				SymmetricDeleteIndex index = deleteIndex;
+				/* The backend may have been changed meanwhile, which drops the index. */
+				if ( index == null ) return searchTrie( byteWord );
+				return new HashSet<String>( index.search( byteWord, DISTANCE_THRESHOLD - 1 ) );
+			
+			default :
+				return searchTrie( byteWord );
 		}
+	}
+	
+	
+	/* The dynamic programming search over the Trie, split across the search pool if one is set. */
+	private HashSet<String> searchTrie( byte[] byteWord ) {
+		ForkJoinPool pool = searchPool;
+		SearchResult result = pool == null 
+				? trie.computeClosestWords( byteWord, DISTANCE_THRESHOLD - 1 ) 
+				: trie.computeClosestWords( byteWord, DISTANCE_THRESHOLD - 1, pool );
+		return new HashSet<String>( result.getClosestWords() );
+	}
+	
+	
+	/**
+	 * Returns the k best words within maxDistance of the given word, ranked by their 
+	 * distance and then by their frequency.
+	 * @param word
+	 * @param k the maximum number of suggestions
+	 * @param maxDistance
+	 * @return the suggestions, best first.
+	 */
+	public List<Suggestion> topK( String word, int k, int maxDistance ) {
+		return trie.topK( word, k, maxDistance );
+	}
+	
+	
+	/**
+	 * Returns the k words starting with the given prefix which have the highest frequency.
+	 * @param prefix
+	 * @param k the maximum number of completions
+	 * @return the completions, highest frequency first.
+	 */
+	public ArrayList<String> complete( String prefix, int k ) {
+		return trie.complete( prefix, k );
+	}
+	
+	
+	/**
+	 * Writes the k words starting with the given prefix which have the highest frequency 
+	 * to the given sink, which may be reused across calls to avoid allocation.
+	 * @param prefix
+	 * @param k the maximum number of completions
+	 * @param completions
+	 * @return the number of completions.
+	 */
+	public int complete( String prefix, int k, Completions completions ) {
+		return trie.complete( prefix, k, completions );
+	}
+	
+	
+	/**
+	 * @return the alphabet of the words of the dictionary.
+	 */
+	public Alphabet getAlphabet() {
+		return trie.getAlphabet();
+	}
+	
+	
+	/* The Trie of the dictionary, for the wrappers of this package. */
+	Trie getTrie() {
+		return trie;
+	}
+	
+	
+	/**
+	 * @return the cache of getClosestWords, or null if results are not cached.
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+	
+	
+	/**
+	 * Makes getClosestWords keep its results in the given cache. The cached results 
+	 * are dropped as soon as a word is inserted or deleted.
+	 * @param queryCache the cache, or null to stop caching
+	 */
+	public void setQueryCache( QueryCache queryCache ) {
+		this.queryCache = queryCache;
+	}
+	
+	
+	/**
+	 * @return the metrics of the dictionary, or null if they are disabled.
+	 */
+	public TrieMetrics getMetrics() {
+		return trie.getMetrics();
+	}
+	
+	
+	/**
+	 * Enables or disables the recording of metrics, which can be published over JMX 
+	 * with a {@link jtrie.metrics.TrieMonitor}.
+	 * @param metrics the metrics to record to, or null to disable them
+	 */
+	public void setMetrics( TrieMetrics metrics ) {
+		trie.setMetrics( metrics );
+	}
+	
+	
+	/**
+	 * @return a report of the shape and estimated heap footprint of the dictionary.
+	 */
+	public TrieFootprint footprint() {
+		return trie.footprint();
+	}
+	
+	
+	/**
+	 * @return a number which changes whenever a word is inserted or deleted.
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+	
+	
+	/**
+	 * @return the pool of the parallel fuzzy search, or null if the search is sequential.
+	 */
+	public ForkJoinPool getSearchPool() {
+		return searchPool;
+	}
+	
+	
+	/**
+	 * Makes getClosestWords split the dynamic programming search across the subtrees 
+	 * of the Trie on the given pool, for example {@link ForkJoinPool#commonPool()}. 
+	 * Small dictionaries and short words are still searched sequentially.
+	 * @param searchPool the pool, or null for a sequential search
+	 */
+	public void setSearchPool( ForkJoinPool searchPool ) {
+		this.searchPool = searchPool;
+	}
+	
+	
+	/**
+	 * @return the engine used by getClosestWords.
+	 */
+	public FuzzyBackend getFuzzyBackend() {
+		return fuzzyBackend;
+	}
+	
+	
+	/**
+	 * Selects the engine used by getClosestWords. All the engines return the same words. 
+	 * The {@link FuzzyBackend#SYMMETRIC_DELETE} backend keeps its current index, or builds 
+	 * one for the distance threshold.
+	 * @param fuzzyBackend
+	 */
+	public void setFuzzyBackend( FuzzyBackend fuzzyBackend ) {
+		SymmetricDeleteIndex index = deleteIndex;
+		setFuzzyBackend( fuzzyBackend, index == null ? DISTANCE_THRESHOLD - 1 : index.getMaxDistance() );
+	}
+	
+	
+	/**
+	 * Selects the engine used by getClosestWords. The {@link FuzzyBackend#SYMMETRIC_DELETE} 
+	 * backend indexes the words for the given distance, which the batched getClosestWords 
+	 * can also use up to that distance. Every extra unit of distance multiplies the memory 
+	 * of the index. The other backends ignore the distance.
+	 * @param fuzzyBackend
+	 * @param maxIndexDistance the largest distance of the index, at least DISTANCE_THRESHOLD - 1
+	 */
+	public void setFuzzyBackend( FuzzyBackend fuzzyBackend, int maxIndexDistance ) {
+		if ( fuzzyBackend == null ) throw new NullPointerException( "fuzzyBackend" );
+		if ( fuzzyBackend == FuzzyBackend.SYMMETRIC_DELETE ) {
+			if ( maxIndexDistance < DISTANCE_THRESHOLD - 1 ) {
+				throw new IllegalArgumentException( "The index must answer distances up to " 
+						+ ( DISTANCE_THRESHOLD - 1 ) + ": " + maxIndexDistance );
+			}
+			SymmetricDeleteIndex index = deleteIndex;
+			if ( index == null || index.getMaxDistance() != maxIndexDistance ) {
+				deleteIndex = new SymmetricDeleteIndex( trie, maxIndexDistance );
+			}
+			this.fuzzyBackend = fuzzyBackend;
+		}
+		else {
+			this.fuzzyBackend = fuzzyBackend;
+			deleteIndex = null;
+		}
+	}
+	
+	
+	/**
+	 * @return the index of the {@link FuzzyBackend#SYMMETRIC_DELETE} backend, whose 
+	 * {@link SymmetricDeleteIndex#getEstimatedBytes() estimated bytes} are its memory cost, 
+	 * or null if another backend is selected.
+	 */
+	public SymmetricDeleteIndex getDeleteIndex() {
+		return deleteIndex;
+	}
 
 }
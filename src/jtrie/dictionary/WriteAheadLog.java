@@ -0,0 +1,466 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.dictionary;
+
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+
+/**
+ * The write-ahead log of a DurableDictionary: a sequence of numbered segment files, 
+ * each holding a header and the mutations appended to it:
+ * <pre>
+ * header  magic "JTWL", version (ints), number of the segment (long), big endian
+ * record  type (byte), letters (varint), the letter codes, weight of an insertion (varint),
+ *         CRC32 of the record (int)
+ * </pre>
+ * Records are appended to a buffer in memory and written and forced to the disk 
+ * by {@link #sync(long)}, so all the records appended since the last sync share one 
+ * force. A record cut short by a crash, at the end of the last segment, is dropped 
+ * on replay.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class WriteAheadLog {
+	
+	static final byte INSERT = 1;
+	static final byte DELETE = 2;
+	
+	private static final int MAGIC = 0x4A54574C;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final String PREFIX = "wal-", SUFFIX = ".log";
+	
+	/**
+	 * Receives the records of the log on replay.
+	 */
+	interface Handler {
+		
+		/**
+		 * @param type {@link #INSERT} or {@link #DELETE}
+		 * @param word the letter codes of the word, in a buffer reused by the next record
+		 * @param length the number of letters of the word
+		 * @param weight the weight of an insertion, 0 for a deletion
+		 */
+		void apply( byte type, byte[] word, int length, long weight );
+	}
+	
+	private final Path directory;
+	private final CRC32 crc = new CRC32();
+	
+	/* Guarded by this: the records not written yet, and the count of bytes ever appended. */
+	private ByteBuffer pending = ByteBuffer.allocate( 64 * 1024 );
+	private long appended;
+	
+	/* Guarded by io: the buffer being written, the count of bytes forced to the disk. */
+	private final Object io = new Object();
+	private ByteBuffer spare = ByteBuffer.allocate( 64 * 1024 );
+	private volatile long durable;
+	
+	/* Guarded by this and io, changed by rotate only. */
+	private FileChannel channel;
+	private long segment;
+	
+	/* The bytes of the segments which have not been compacted yet. */
+	private volatile long size;
+	
+	
+	private WriteAheadLog( Path directory, long segment, long size ) throws IOException {
+		this.directory = directory;
+		this.size = size;
+		open( segment );
+	}
+	
+	
+	/**
+	 * Replays the segments numbered from the given one onwards, deleting the older ones, 
+	 * and opens a new segment after the last of them for appending.
+	 * @param directory
+	 * @param first the number of the first segment which is not part of the snapshot
+	 * @param handler
+	 * @return the log.
+	 * @throws IOException if a segment cannot be read, or is damaged anywhere but at its end.
+	 */
+	static WriteAheadLog open( Path directory, long first, Handler handler ) throws IOException {
+		ArrayList<Long> segments = segments( directory );
+		long next = first, size = 0;
+		for ( int i = 0; i < segments.size(); i++ ) {
+			long number = segments.get( i );
+			if ( number < first ) {
+				Files.delete( path( directory, number ) );
+				continue;
+			}
+			size += replay( path( directory, number ), number, i == segments.size() - 1, handler );
+			next = number + 1;
+		}
+		return new WriteAheadLog( directory, next, size );
+	}
+	
+	
+	/* The numbers of the segments in the directory, in ascending order. */
+	private static ArrayList<Long> segments( Path directory ) throws IOException {
+		ArrayList<Long> segments = new ArrayList<Long>();
+		DirectoryStream<Path> files = Files.newDirectoryStream( directory, PREFIX + "*" + SUFFIX );
+		try {
+			for ( Path file : files ) {
+				String name = file.getFileName().toString();
+				try {
+					segments.add( Long.parseLong( name.substring( PREFIX.length(), name.length() - SUFFIX.length() ) ) );
+				}
+				catch ( NumberFormatException e ) {
+				}
+			}
+		}
+		finally {
+			files.close();
+		}
+		Collections.sort( segments );
+		return segments;
+	}
+	
+	
+	/**
+	 * Replays the closed segments numbered from first up to, but not including, last. 
+	 * They were forced by {@link #rotate()}, so any damage in them is an error.
+	 * @param first
+	 * @param last a number returned by {@link #rotate()}
+	 * @param handler
+	 * @throws IOException if a segment cannot be read or is damaged.
+	 */
+	void replay( long first, long last, Handler handler ) throws IOException {
+		for ( long number : segments( directory ) ) {
+			if ( number >= first && number < last ) replay( path( directory, number ), number, false, handler );
+		}
+	}
+	
+	
+	private static Path path( Path directory, long segment ) {
+		return directory.resolve( String.format( "%s%019d%s", PREFIX, segment, SUFFIX ) );
+	}
+	
+	
+	/* Replays one segment and returns its size. A damaged end of the last segment is cut off. */
+	private static long replay( Path file, long number, boolean last, Handler handler ) throws IOException {
+		FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		try {
+			long size = channel.size();
+			RecordReader reader = new RecordReader( 
+					new BufferedInputStream( Channels.newInputStream( channel ), 64 * 1024 ) );
+			
+			long valid = 0;
+			if ( reader.readHeader( number ) ) {
+				valid = HEADER_SIZE;
+				while ( reader.next() ) {
+					handler.apply( reader.type, reader.word, reader.length, reader.weight );
+					valid = reader.position;
+				}
+			}
+			
+			if ( valid < size ) {
+				if ( !last ) throw new IOException( "Damaged log segment: " + file );
+				channel.truncate( valid );
+				channel.force( true );
+			}
+			return valid;
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	
+	private void open( long number ) throws IOException {
+		FileChannel created = FileChannel.open( path( directory, number ), 
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE );
+		ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+		header.putInt( MAGIC ).putInt( VERSION ).putLong( number ).flip();
+		while ( header.hasRemaining() ) created.write( header );
+		created.force( true );
+		
+		channel = created;
+		segment = number;
+		size += HEADER_SIZE;
+	}
+	
+	
+	/**
+	 * Appends a record to the buffer of the log.
+	 * @param type {@link #INSERT} or {@link #DELETE}
+	 * @param word the letter codes of the word
+	 * @param weight the weight of an insertion
+	 * @return the position of the log after the record, to be passed to {@link #sync(long)}.
+	 */
+	synchronized long append( byte type, byte[] word, long weight ) {
+		int maximum = 1 + 5 + word.length + 10 + 4;
+		if ( pending.remaining() < maximum ) {
+			ByteBuffer larger = ByteBuffer.allocate( Math.max( pending.capacity() * 2, pending.position() + maximum ) );
+			pending.flip();
+			larger.put( pending );
+			pending = larger;
+		}
+		
+		int start = pending.position();
+		pending.put( type );
+		putVarlong( pending, word.length );
+		pending.put( word );
+		if ( type == INSERT ) putVarlong( pending, weight );
+		
+		crc.reset();
+		crc.update( pending.array(), start, pending.position() - start );
+		pending.putInt( (int) crc.getValue() );
+		
+		appended += pending.position() - start;
+		return appended;
+	}
+	
+	
+	private static void putVarlong( ByteBuffer buffer, long value ) {
+		while ( ( value & ~0x7FL ) != 0 ) {
+			buffer.put( (byte) ( ( value & 0x7F ) | 0x80 ) );
+			value >>>= 7;
+		}
+		buffer.put( (byte) value );
+	}
+	
+	
+	/**
+	 * Writes and forces the buffered records, unless the given position is already on 
+	 * the disk. Concurrent callers wait for each other, and a caller finding its records 
+	 * forced by another returns at once: this is the group commit.
+	 * @param position a position returned by {@link #append(byte, byte[], long)}
+	 * @throws IOException
+	 */
+	void sync( long position ) throws IOException {
+		if ( durable >= position ) return;
+		
+		synchronized ( io ) {
+			if ( durable >= position ) return;
+			
+			ByteBuffer batch;
+			long end;
+			synchronized ( this ) {
+				batch = pending;
+				pending = spare;
+				spare = batch;
+				end = appended;
+			}
+			
+			batch.flip();
+			int written = batch.remaining();
+			while ( batch.hasRemaining() ) channel.write( batch );
+			batch.clear();
+			channel.force( false );
+			size += written;
+			durable = end;
+		}
+	}
+	
+	
+	/**
+	 * Writes and forces all the records appended so far.
+	 * @throws IOException
+	 */
+	void sync() throws IOException {
+		long position;
+		synchronized ( this ) {
+			position = appended;
+		}
+		sync( position );
+	}
+	
+	
+	/**
+	 * Forces the records of the current segment and starts a new one. Records appended 
+	 * concurrently go to one segment or the other, so the caller must hold off the writers.
+	 * @return the number of the new segment.
+	 * @throws IOException
+	 */
+	long rotate() throws IOException {
+		sync();
+		synchronized ( io ) {
+			synchronized ( this ) {
+				channel.close();
+				open( segment + 1 );
+				return segment;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Deletes the segments numbered below the given one, which a snapshot has replaced.
+	 * @param number
+	 * @throws IOException
+	 */
+	void deleteBefore( long number ) throws IOException {
+		long removed = 0;
+		DirectoryStream<Path> files = Files.newDirectoryStream( directory, PREFIX + "*" + SUFFIX );
+		try {
+			for ( Path file : files ) {
+				String name = file.getFileName().toString();
+				try {
+					long segment = Long.parseLong( name.substring( PREFIX.length(), name.length() - SUFFIX.length() ) );
+					if ( segment < number ) {
+						removed += Files.size( file );
+						Files.delete( file );
+					}
+				}
+				catch ( NumberFormatException e ) {
+				}
+			}
+		}
+		finally {
+			files.close();
+		}
+		synchronized ( io ) {
+			size -= removed;
+		}
+	}
+	
+	
+	/**
+	 * @return the number of bytes of the log on the disk which a snapshot has not replaced yet.
+	 */
+	long size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Forces the buffered records and closes the current segment.
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		sync();
+		synchronized ( io ) {
+			channel.close();
+		}
+	}
+	
+	
+	/* Reads the records of a segment, keeping the position after the last complete one. */
+	private static final class RecordReader {
+		
+		final InputStream in;
+		final CRC32 crc = new CRC32();
+		long position;
+		
+		byte type;
+		byte[] word = new byte[32];
+		int length;
+		long weight;
+		
+		
+		RecordReader( InputStream in ) {
+			this.in = in;
+		}
+		
+		
+		boolean readHeader( long number ) throws IOException {
+			byte[] header = new byte[HEADER_SIZE];
+			for ( int i = 0; i < HEADER_SIZE; i++ ) {
+				int b = in.read();
+				if ( b < 0 ) return false;
+				header[i] = (byte) b;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap( header );
+			if ( buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != number ) {
+				throw new IOException( "Not a log segment " + number );
+			}
+			position = HEADER_SIZE;
+			return true;
+		}
+		
+		
+		/* Reads the next record, returning false at the end of the segment or at a damaged record. */
+		boolean next() throws IOException {
+			crc.reset();
+			int read = readByte();
+			if ( read != INSERT && read != DELETE ) return false;
+			type = (byte) read;
+			
+			long letters = readVarlong();
+			if ( letters <= 0 || letters > Integer.MAX_VALUE ) return false;
+			length = (int) letters;
+			if ( word.length < length ) word = new byte[Math.max( length, word.length * 2 )];
+			for ( int i = 0; i < length; i++ ) {
+				int b = readByte();
+				if ( b < 0 ) return false;
+				word[i] = (byte) b;
+			}
+			
+			weight = type == INSERT ? readVarlong() : 0;
+			if ( weight < 0 ) return false;
+			
+			int expected = (int) crc.getValue();
+			int checksum = 0;
+			for ( int i = 0; i < 4; i++ ) {
+				int b = in.read();
+				if ( b < 0 ) return false;
+				checksum = checksum << 8 | b;
+			}
+			if ( checksum != expected ) return false;
+			
+			position += 1 + varlongSize( letters ) + length + ( type == INSERT ? varlongSize( weight ) : 0 ) + 4;
+			return true;
+		}
+		
+		
+		private int readByte() throws IOException {
+			int b = in.read();
+			if ( b >= 0 ) crc.update( b );
+			return b;
+		}
+		
+		
+		/* A varint, or -1 if it is cut short or too long. */
+		private long readVarlong() throws IOException {
+			long value = 0;
+			for ( int shift = 0; shift < 63; shift += 7 ) {
+				int b = readByte();
+				if ( b < 0 ) return -1;
+				value |= (long) ( b & 0x7F ) << shift;
+				if ( ( b & 0x80 ) == 0 ) return value;
+			}
+			return -1;
+		}
+		
+		
+		private static int varlongSize( long value ) {
+			int size = 1;
+			while ( ( value & ~0x7FL ) != 0 ) {
+				value >>>= 7;
+				size++;
+			}
+			return size;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.metrics;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A histogram of latencies in power of two buckets of nanoseconds: bucket b counts 
+ * the latencies from 2^(b-1) up to 2^b - 1. Recording is a single striped increment, 
+ * so concurrent threads do not contend, and percentiles are read at the precision 
+ * of a bucket.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class LatencyHistogram {
+	
+	private static final int BUCKETS = 64;
+	
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder total = new LongAdder();
+	
+	
+	/**
+	 * 
+	 */
+	public LatencyHistogram() {
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			buckets[i] = new LongAdder();
+		}
+	}
+	
+	
+	/**
+	 * @param nanos a latency
+	 */
+	public void record( long nanos ) {
+		if ( nanos < 0 ) nanos = 0;
+		buckets[Math.min( BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros( nanos ) )].increment();
+		total.add( nanos );
+	}
+	
+	
+	/**
+	 * @return the number of recorded latencies.
+	 */
+	public long getCount() {
+		long count = 0;
+		for ( LongAdder bucket : buckets ) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+	
+	
+	/**
+	 * @return the mean latency in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) total.sum() / count;
+	}
+	
+	
+	/**
+	 * Returns the upper bound of the bucket which holds the given percentile.
+	 * @param percentile between 0 and 100
+	 * @return the latency in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getPercentile( double percentile ) {
+		long[] counts = getBuckets();
+		long count = 0;
+		for ( long bucket : counts ) {
+			count += bucket;
+		}
+		if ( count == 0 ) return 0;
+		
+		long rank = (long) Math.ceil( count * Math.min( 100, Math.max( 0, percentile ) ) / 100 );
+		if ( rank == 0 ) rank = 1;
+		long seen = 0;
+		for ( int b = 0; b < BUCKETS; b++ ) {
+			seen += counts[b];
+			if ( seen >= rank ) return b == BUCKETS - 1 ? Long.MAX_VALUE : ( 1L << b ) - 1;
+		}
+		return Long.MAX_VALUE;
+	}
+	
+	
+	/**
+	 * @return the counts of the buckets.
+	 */
+	public long[] getBuckets() {
+		long[] counts = new long[BUCKETS];
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			counts[i] = buckets[i].sum();
+		}
+		return counts;
+	}
+	
+	
+	/**
+	 * Clears the histogram.
+	 */
+	public void reset() {
+		for ( LongAdder bucket : buckets ) {
+			bucket.reset();
+		}
+		total.reset();
+	}
+
+}
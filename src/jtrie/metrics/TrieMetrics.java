@@ -0,0 +1,208 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.metrics;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Opt-in counters and latency histograms for the operations of a Trie. A Trie without 
+ * metrics only pays a null check per operation; with metrics every operation is timed 
+ * and counted on striped counters, so threads recording at the same time do not 
+ * contend.
+ * <p>
+ * For the fuzzy searches the rows of the Levenshtein Distance matrix (one per visited 
+ * node) and the subtrees pruned are counted too. Searches which do not compute 
+ * rows, as the automaton and the ranked ones, are only timed.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class TrieMetrics {
+	
+	/** The operations which are counted and timed. */
+	public enum Operation {
+		INSERT, DELETE, LOOKUP, FUZZY_SEARCH, COMPLETE
+	}
+	
+	private static final Operation[] OPERATIONS = Operation.values();
+	
+	private final LongAdder[] counts = new LongAdder[OPERATIONS.length];
+	private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+	private final LongAdder rowsComputed = new LongAdder();
+	private final LongAdder subtreesPruned = new LongAdder();
+	private final LongAdder rejectedWords = new LongAdder();
+	
+	
+	/**
+	 * 
+	 */
+	public TrieMetrics() {
+		for ( int i = 0; i < OPERATIONS.length; i++ ) {
+			counts[i] = new LongAdder();
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+	
+	
+	/**
+	 * Records one operation.
+	 * @param operation
+	 * @param nanos the latency of the operation
+	 */
+	public void record( Operation operation, long nanos ) {
+		counts[operation.ordinal()].increment();
+		latencies[operation.ordinal()].record( nanos );
+	}
+	
+	
+	/**
+	 * Records operations which were not timed one by one, as the words of a bulk load.
+	 * @param operation
+	 * @param count
+	 */
+	public void count( Operation operation, long count ) {
+		counts[operation.ordinal()].add( count );
+	}
+	
+	
+	/**
+	 * Records one fuzzy search.
+	 * @param nanos the latency of the search
+	 * @param rows the rows of the Levenshtein Distance matrix computed
+	 * @param pruned the subtrees which were not searched
+	 */
+	public void recordSearch( long nanos, long rows, long pruned ) {
+		record( Operation.FUZZY_SEARCH, nanos );
+		rowsComputed.add( rows );
+		subtreesPruned.add( pruned );
+	}
+	
+	
+	/**
+	 * Records a batch of fuzzy searches which shared one walk.
+	 * @param searches the number of searches
+	 * @param rows the rows of the Levenshtein Distance matrix computed
+	 * @param pruned the subtrees which were not searched
+	 */
+	public void recordSearches( long searches, long rows, long pruned ) {
+		count( Operation.FUZZY_SEARCH, searches );
+		rowsComputed.add( rows );
+		subtreesPruned.add( pruned );
+	}
+	
+	
+	/**
+	 * Records a word which was rejected for containing an invalid character.
+	 */
+	public void recordRejected() {
+		rejectedWords.increment();
+	}
+	
+	
+	/**
+	 * Records words which were rejected for containing an invalid character.
+	 * @param count
+	 */
+	public void recordRejected( long count ) {
+		rejectedWords.add( count );
+	}
+	
+	
+	/**
+	 * @param operation
+	 * @return the number of recorded operations.
+	 */
+	public long getCount( Operation operation ) {
+		return counts[operation.ordinal()].sum();
+	}
+	
+	
+	/**
+	 * @param operation
+	 * @return the latencies of the timed operations.
+	 */
+	public LatencyHistogram getLatency( Operation operation ) {
+		return latencies[operation.ordinal()];
+	}
+	
+	
+	/**
+	 * @return the number of rows of the Levenshtein Distance matrix computed by the fuzzy 
+	 * searches, which is the number of nodes they visited.
+	 */
+	public long getRowsComputed() {
+		return rowsComputed.sum();
+	}
+	
+	
+	/**
+	 * @return the number of visited nodes whose subtrees the fuzzy searches skipped.
+	 */
+	public long getSubtreesPruned() {
+		return subtreesPruned.sum();
+	}
+	
+	
+	/**
+	 * @return the share of the visited nodes whose subtrees were skipped, between 0 and 1.
+	 */
+	public double getPruneRatio() {
+		long rows = rowsComputed.sum();
+		return rows == 0 ? 0 : (double) subtreesPruned.sum() / rows;
+	}
+	
+	
+	/**
+	 * @return the number of words rejected for containing an invalid character.
+	 */
+	public long getRejectedWords() {
+		return rejectedWords.sum();
+	}
+	
+	
+	/**
+	 * Clears all the counters and histograms.
+	 */
+	public void reset() {
+		for ( int i = 0; i < OPERATIONS.length; i++ ) {
+			counts[i].reset();
+			latencies[i].reset();
+		}
+		rowsComputed.reset();
+		subtreesPruned.reset();
+		rejectedWords.reset();
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for ( Operation operation : OPERATIONS ) {
+			LatencyHistogram latency = getLatency( operation );
+			builder.append( operation ).append( ": count " ).append( getCount( operation ) )
+					.append( ", p50 " ).append( latency.getPercentile( 50 ) )
+					.append( " ns, p99 " ).append( latency.getPercentile( 99 ) ).append( " ns\n" );
+		}
+		builder.append( "rows computed " ).append( getRowsComputed() )
+				.append( ", subtrees pruned " ).append( getSubtreesPruned() )
+				.append( ", rejected words " ).append( getRejectedWords() ).append( '\n' );
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.metrics;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jtrie.metrics.TrieMetrics.Operation;
+import jtrie.structures.Trie;
+import jtrie.structures.TrieFootprint;
+
+
+/**
+ * Publishes the metrics and the footprint of a Trie over JMX. The metrics are read 
+ * from the Trie every time, so they may be enabled or replaced after the monitor is 
+ * registered; while they are disabled the counters read 0. The footprint takes a walk 
+ * of the whole Trie, so it is computed at most once a minute and the Trie should 
+ * not be modified during that walk.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class TrieMonitor implements TrieMonitorMXBean {
+	
+	private static final long FOOTPRINT_MAX_AGE = 60L * 1000 * 1000 * 1000;
+	
+	private final Supplier<TrieMetrics> metrics;
+	private final Supplier<TrieFootprint> footprint;
+	
+	private TrieFootprint lastFootprint;
+	private long lastFootprintTime;
+	private ObjectName name;
+	
+	
+	/**
+	 * @param trie
+	 */
+	public TrieMonitor( final Trie trie ) {
+		this( trie::getMetrics, trie::footprint );
+	}
+	
+	
+	/**
+	 * @param metrics supplies the current metrics, or null while they are disabled
+	 * @param footprint computes a footprint report
+	 */
+	public TrieMonitor( Supplier<TrieMetrics> metrics, Supplier<TrieFootprint> footprint ) {
+		this.metrics = metrics;
+		this.footprint = footprint;
+	}
+	
+	
+	/**
+	 * Registers this monitor on the platform MBean server as jtrie:type=Trie,name=&lt;name&gt;.
+	 * @param name
+	 * @return the name of the MBean.
+	 * @throws JMException
+	 */
+	public synchronized ObjectName register( String name ) throws JMException {
+		ObjectName objectName = new ObjectName( "jtrie:type=Trie,name=" + ObjectName.quote( name ) );
+		ManagementFactory.getPlatformMBeanServer().registerMBean( this, objectName );
+		this.name = objectName;
+		return objectName;
+	}
+	
+	
+	/**
+	 * Removes this monitor from the platform MBean server, if it was registered.
+	 * @throws JMException
+	 */
+	public synchronized void unregister() throws JMException {
+		if ( name == null ) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if ( server.isRegistered( name ) ) server.unregisterMBean( name );
+		name = null;
+	}
+	
+	
+	public boolean isEnabled() {
+		return metrics.get() != null;
+	}
+	
+	
+	public long getInsertCount() {
+		return count( Operation.INSERT );
+	}
+	
+	
+	public long getDeleteCount() {
+		return count( Operation.DELETE );
+	}
+	
+	
+	public long getLookupCount() {
+		return count( Operation.LOOKUP );
+	}
+	
+	
+	public long getFuzzySearchCount() {
+		return count( Operation.FUZZY_SEARCH );
+	}
+	
+	
+	public long getCompleteCount() {
+		return count( Operation.COMPLETE );
+	}
+	
+	
+	public long getLookupP50Nanos() {
+		return percentile( Operation.LOOKUP, 50 );
+	}
+	
+	
+	public long getLookupP99Nanos() {
+		return percentile( Operation.LOOKUP, 99 );
+	}
+	
+	
+	public long getFuzzySearchP50Nanos() {
+		return percentile( Operation.FUZZY_SEARCH, 50 );
+	}
+	
+	
+	public long getFuzzySearchP99Nanos() {
+		return percentile( Operation.FUZZY_SEARCH, 99 );
+	}
+	
+	
+	public long getCompleteP99Nanos() {
+		return percentile( Operation.COMPLETE, 99 );
+	}
+	
+	
+	public long getRowsComputed() {
+		TrieMetrics current = metrics.get();
+		return current == null ? 0 : current.getRowsComputed();
+	}
+	
+	
+	public long getSubtreesPruned() {
+		TrieMetrics current = metrics.get();
+		return current == null ? 0 : current.getSubtreesPruned();
+	}
+	
+	
+	public double getPruneRatio() {
+		TrieMetrics current = metrics.get();
+		return current == null ? 0 : current.getPruneRatio();
+	}
+	
+	
+	public long getRejectedWords() {
+		TrieMetrics current = metrics.get();
+		return current == null ? 0 : current.getRejectedWords();
+	}
+	
+	
+	public long getNodeCount() {
+		return footprint().getNodes();
+	}
+	
+	
+	public long getWordNodeCount() {
+		return footprint().getWordNodes();
+	}
+	
+	
+	public long getEstimatedBytes() {
+		return footprint().getEstimatedBytes();
+	}
+	
+	
+	public String getFootprintReport() {
+		return footprint().toString();
+	}
+	
+	
+	public long getLatencyNanos( String operation, double percentile ) {
+		return percentile( Operation.valueOf( operation ), percentile );
+	}
+	
+	
+	public void reset() {
+		TrieMetrics current = metrics.get();
+		if ( current != null ) current.reset();
+	}
+	
+	
+	private long count( Operation operation ) {
+		TrieMetrics current = metrics.get();
+		return current == null ? 0 : current.getCount( operation );
+	}
+	
+	
+	private long percentile( Operation operation, double percentile ) {
+		TrieMetrics current = metrics.get();
+		return current == null ? 0 : current.getLatency( operation ).getPercentile( percentile );
+	}
+	
+	
+	private synchronized TrieFootprint footprint() {
+		long now = System.nanoTime();
+		if ( lastFootprint == null || now - lastFootprintTime > FOOTPRINT_MAX_AGE ) {
+			lastFootprint = footprint.get();
+			lastFootprintTime = now;
+		}
+		return lastFootprint;
+	}
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.metrics;
+
+
+/**
+ * The JMX view of the metrics and the footprint of a Trie, see {@link TrieMonitor}. 
+ * Latencies are in nanoseconds, at the precision of a power of two.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public interface TrieMonitorMXBean {
+	
+	/** @return true if metrics are being recorded. */
+	boolean isEnabled();
+	
+	long getInsertCount();
+	
+	long getDeleteCount();
+	
+	long getLookupCount();
+	
+	long getFuzzySearchCount();
+	
+	long getCompleteCount();
+	
+	long getLookupP50Nanos();
+	
+	long getLookupP99Nanos();
+	
+	long getFuzzySearchP50Nanos();
+	
+	long getFuzzySearchP99Nanos();
+	
+	long getCompleteP99Nanos();
+	
+	long getRowsComputed();
+	
+	long getSubtreesPruned();
+	
+	double getPruneRatio();
+	
+	long getRejectedWords();
+	
+	long getNodeCount();
+	
+	long getWordNodeCount();
+	
+	long getEstimatedBytes();
+	
+	String getFootprintReport();
+	
+	/**
+	 * @param operation the name of a {@link TrieMetrics.Operation}
+	 * @param percentile between 0 and 100
+	 * @return the latency of the given percentile of the operation.
+	 */
+	long getLatencyNanos( String operation, double percentile );
+	
+	/** Clears the counters and histograms. */
+	void reset();
+	
+}
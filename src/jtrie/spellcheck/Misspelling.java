@@ -0,0 +1,91 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.spellcheck;
+
+
+import java.util.List;
+
+
+/**
+ * A token of a text which is not a word of the dictionary, with its place in the 
+ * text and the words of the dictionary close to it.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class Misspelling {
+	
+	private final String token, word;
+	private final long offset;
+	private final List<String> suggestions;
+	
+	
+	Misspelling( String token, String word, long offset, List<String> suggestions ) {
+		this.token = token;
+		this.word = word;
+		this.offset = offset;
+		this.suggestions = suggestions;
+	}
+	
+	
+	/**
+	 * @return the token as it appears in the text.
+	 */
+	public String getToken() {
+		return token;
+	}
+	
+	
+	/**
+	 * @return the token folded to the letters of the alphabet, as it was looked up.
+	 */
+	public String getWord() {
+		return word;
+	}
+	
+	
+	/**
+	 * @return the offset in characters of the token from the start of the text.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+	
+	
+	/**
+	 * @return the length of the token in characters.
+	 */
+	public int getLength() {
+		return token.length();
+	}
+	
+	
+	/**
+	 * @return the words of the dictionary within the distance of the spell checker, 
+	 * in alphabetical order. It is empty if there are none.
+	 */
+	public List<String> getSuggestions() {
+		return suggestions;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return token + "@" + offset + " " + suggestions;
+	}
+
+}
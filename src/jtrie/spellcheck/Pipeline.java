@@ -0,0 +1,259 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.spellcheck;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import jtrie.dictionary.TrieDictionary;
+import jtrie.structures.Alphabet;
+
+
+/**
+ * The stages of a spell check run, pulled by the stream of the run: the text is 
+ * tokenized into batches, every batch is checked by a task of the executor, and the 
+ * misspellings of the batches are emitted in the order of the text.
+ * <p>
+ * A word seen in the last window words is not looked up again: its token takes the 
+ * result of the batch which looked it up. At most maxPending batches are read ahead 
+ * of the consumer, so a slow consumer stops the reading of the text and the fuzzy 
+ * searches wait for the consumer instead of piling up.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class Pipeline extends Spliterators.AbstractSpliterator<Misspelling> {
+	
+	private final TrieDictionary dictionary;
+	private final int maxDistance, batchSize, maxPending;
+	private final ExecutorService executor;
+	private final SpellCheckStats stats;
+	
+	private final Alphabet alphabet;
+	private final Tokenizer tokenizer;
+	private boolean exhausted;
+	
+	/* The batch which looked up every recent word, least recently seen first. */
+	private final LinkedHashMap<String, Batch> window;
+	
+	private final ArrayDeque<Batch> pending = new ArrayDeque<Batch>();
+	private final ArrayDeque<Misspelling> ready = new ArrayDeque<Misspelling>();
+	
+	
+	Pipeline( TrieDictionary dictionary, int maxDistance, int batchSize, final int windowSize, int maxPending, 
+			ExecutorService executor, Reader reader, SpellCheckStats stats ) {
+		super( Long.MAX_VALUE, ORDERED | NONNULL );
+		this.dictionary = dictionary;
+		this.maxDistance = maxDistance;
+		this.batchSize = batchSize;
+		this.maxPending = maxPending;
+		this.executor = executor;
+		this.alphabet = dictionary.getAlphabet();
+		this.tokenizer = new Tokenizer( reader, alphabet );
+		this.stats = stats;
+		this.window = new LinkedHashMap<String, Batch>( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, Batch> eldest ) {
+				return size() > windowSize;
+			}
+		};
+	}
+	
+	
+	@Override
+	public boolean tryAdvance( Consumer<? super Misspelling> action ) {
+		while ( ready.isEmpty() ) {
+			while ( !exhausted && pending.size() < maxPending ) {
+				read();
+			}
+			if ( pending.isEmpty() ) {
+				stats.ended();
+				return false;
+			}
+			emit( pending.poll() );
+		}
+		
+		action.accept( ready.poll() );
+		return true;
+	}
+	
+	
+	/* Reads the tokens of the next batch and submits the words it looks up first. */
+	private void read() {
+		stats.started();
+		Batch batch = new Batch();
+		int tokens = 0, skipped = 0;
+		
+		try {
+			while ( batch.size < batchSize ) {
+				if ( !tokenizer.next() ) {
+					exhausted = true;
+					break;
+				}
+				tokens++;
+				
+				String token = tokenizer.getToken();
+				String word = alphabet.normalize( token );
+				if ( word == null ) {
+					skipped++;
+					continue;
+				}
+				
+				Batch source = window.get( word );
+				if ( source == null ) {
+					source = batch;
+					window.put( word, batch );
+					batch.lookups.add( word );
+				}
+				batch.add( token, word, tokenizer.getOffset(), source );
+			}
+		}
+		catch ( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+		
+		stats.addTokens( tokens );
+		stats.addSkipped( skipped );
+		if ( batch.size == 0 ) return;
+		
+		batch.result = batch.lookups.isEmpty() ? null : executor.submit( batch );
+		pending.add( batch );
+	}
+	
+	
+	/* Waits for the words looked up by the given batch and queues its misspellings. */
+	private void emit( Batch batch ) {
+		int misspellings = 0;
+		for ( int i = 0; i < batch.size; i++ ) {
+			List<String> suggestions = batch.sources[i].getSuggestions( batch.words[i] );
+			if ( suggestions != null ) {
+				ready.add( new Misspelling( batch.tokens[i], batch.words[i], batch.offsets[i], suggestions ) );
+				misspellings++;
+			}
+		}
+		stats.addMisspellings( misspellings );
+		
+		/* The window may keep the batch for its result, the tokens are no longer needed. */
+		batch.release();
+	}
+	
+	
+	/**
+	 * Cancels the searches of the batches which have not been emitted.
+	 */
+	void cancel() {
+		for ( Batch batch : pending ) {
+			if ( batch.result != null ) batch.result.cancel( true );
+		}
+		pending.clear();
+		ready.clear();
+		stats.ended();
+	}
+	
+	
+	/*
+	 * The tokens of a batch, the source of the result of every token, and the new 
+	 * words of the batch with the search which checks them.
+	 */
+	private final class Batch implements Callable<Map<String, List<String>>> {
+		
+		String[] tokens = new String[batchSize];
+		String[] words = new String[batchSize];
+		long[] offsets = new long[batchSize];
+		Batch[] sources = new Batch[batchSize];
+		int size;
+		
+		final ArrayList<String> lookups = new ArrayList<String>();
+		Future<Map<String, List<String>>> result;
+		
+		
+		void add( String token, String word, long offset, Batch source ) {
+			tokens[size] = token;
+			words[size] = word;
+			offsets[size] = offset;
+			sources[size] = source;
+			size++;
+		}
+		
+		
+		void release() {
+			tokens = words = null;
+			offsets = null;
+			sources = null;
+			size = 0;
+		}
+		
+		
+		/* Looks up the new words of the batch and searches the misses all at once. */
+		@Override
+		public Map<String, List<String>> call() throws Exception {
+			ArrayList<String> misses = new ArrayList<String>();
+			for ( String word : lookups ) {
+				if ( !dictionary.contains( word ) ) misses.add( word );
+			}
+			stats.addLookups( lookups.size() );
+			if ( misses.isEmpty() ) return Collections.emptyMap();
+			
+			stats.addFuzzySearches( misses.size() );
+			LinkedHashMap<String, HashSet<String>> found = dictionary.getClosestWords( misses, maxDistance );
+			Map<String, List<String>> suggestions = new LinkedHashMap<String, List<String>>( misses.size() * 2 );
+			for ( Map.Entry<String, HashSet<String>> entry : found.entrySet() ) {
+				ArrayList<String> sorted = new ArrayList<String>( entry.getValue() );
+				Collections.sort( sorted );
+				suggestions.put( entry.getKey(), Collections.unmodifiableList( sorted ) );
+			}
+			return suggestions;
+		}
+		
+		
+		/* The suggestions for the given word, one of the words of this batch, or null if it is correct. */
+		List<String> getSuggestions( String word ) {
+			try {
+				return result.get().get( word );
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException( "Interrupted while waiting for a batch." );
+			}
+			catch ( ExecutionException e ) {
+				Throwable cause = e.getCause();
+				if ( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+				if ( cause instanceof Error ) throw (Error) cause;
+				throw new IllegalStateException( cause );
+			}
+		}
+	}
+
+}
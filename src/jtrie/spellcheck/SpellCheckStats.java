@@ -0,0 +1,144 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.spellcheck;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The counters of a spell check run. They are updated while the stream of the run 
+ * is consumed, so they may be read at any time, from any thread.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class SpellCheckStats {
+	
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder fuzzySearches = new LongAdder();
+	private final LongAdder misspellings = new LongAdder();
+	
+	private volatile long start, end;
+	
+	
+	void started() {
+		if ( start == 0 ) start = System.nanoTime();
+	}
+	
+	
+	void ended() {
+		if ( end == 0 ) end = System.nanoTime();
+	}
+	
+	
+	void addTokens( long count ) {
+		tokens.add( count );
+	}
+	
+	
+	void addSkipped( long count ) {
+		skipped.add( count );
+	}
+	
+	
+	void addLookups( long count ) {
+		lookups.add( count );
+	}
+	
+	
+	void addFuzzySearches( long count ) {
+		fuzzySearches.add( count );
+	}
+	
+	
+	void addMisspellings( long count ) {
+		misspellings.add( count );
+	}
+	
+	
+	/**
+	 * @return the number of tokens read, the skipped ones included.
+	 */
+	public long getTokens() {
+		return tokens.sum();
+	}
+	
+	
+	/**
+	 * @return the number of tokens which were not checked because they hold 
+	 * characters which cannot be part of a word of the dictionary.
+	 */
+	public long getSkipped() {
+		return skipped.sum();
+	}
+	
+	
+	/**
+	 * @return the number of exact lookups, one for every distinct word of a window.
+	 */
+	public long getLookups() {
+		return lookups.sum();
+	}
+	
+	
+	/**
+	 * @return the number of words searched for suggestions.
+	 */
+	public long getFuzzySearches() {
+		return fuzzySearches.sum();
+	}
+	
+	
+	/**
+	 * @return the number of misspellings emitted.
+	 */
+	public long getMisspellings() {
+		return misspellings.sum();
+	}
+	
+	
+	/**
+	 * @return the time from the first read of the text to the end of the stream, 
+	 * or to now if the stream has not ended, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		long start = this.start;
+		if ( start == 0 ) return 0;
+		long end = this.end;
+		return ( end == 0 ? System.nanoTime() : end ) - start;
+	}
+	
+	
+	/**
+	 * @return the throughput of the run in tokens per second.
+	 */
+	public double getTokensPerSecond() {
+		long elapsed = getElapsedNanos();
+		return elapsed == 0 ? 0 : getTokens() * 1e9 / elapsed;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return String.format( "%d tokens (%d skipped), %d lookups, %d fuzzy searches, %d misspellings, %.0f tokens/s", 
+				getTokens(), getSkipped(), getLookups(), getFuzzySearches(), getMisspellings(), getTokensPerSecond() );
+	}
+
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.spellcheck;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import jtrie.dictionary.TrieDictionary;
+
+
+/**
+ * Checks the spelling of whole texts against a TrieDictionary. The text is split into 
+ * tokens, the runs of letters, digits and characters of the alphabet of the dictionary, 
+ * which are folded to the letters of the alphabet like {@link jtrie.structures.Alphabet#normalize(CharSequence)}. 
+ * Tokens are grouped in batches; the distinct words of a batch which were not seen 
+ * in the recent words are looked up together by a task, and the ones which are not in 
+ * the dictionary are searched with a single walk of the Trie for the whole batch.
+ * <p>
+ * The misspellings are returned as a lazy stream in the order of the text. The tasks run 
+ * on virtual threads when the runtime has them and on a fixed pool of platform threads 
+ * otherwise; either way at most parallelism batches of a text are read ahead of the 
+ * consumer of its stream. The dictionary must not be modified during a check.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class SpellChecker implements AutoCloseable {
+	
+	/** The default number of tokens of a batch. */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	
+	/** The default number of recent distinct words which are not looked up again. */
+	public static final int DEFAULT_WINDOW_SIZE = 4096;
+	
+	private final TrieDictionary dictionary;
+	private final int maxDistance, parallelism;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+	private volatile int windowSize = DEFAULT_WINDOW_SIZE;
+	
+	
+	/**
+	 * Creates a spell checker with an executor of its own, which is shut down by {@link #close()}, 
+	 * and one batch in flight for every processor.
+	 * @param dictionary
+	 * @param maxDistance the maximum distance of the suggestions from a misspelled word
+	 */
+	public SpellChecker( TrieDictionary dictionary, int maxDistance ) {
+		this( dictionary, maxDistance, Runtime.getRuntime().availableProcessors() );
+	}
+	
+	
+	/**
+	 * Creates a spell checker with an executor of its own, which is shut down by {@link #close()}.
+	 * @param dictionary
+	 * @param maxDistance the maximum distance of the suggestions from a misspelled word
+	 * @param parallelism the maximum number of batches of a text checked at the same time
+	 */
+	public SpellChecker( TrieDictionary dictionary, int maxDistance, int parallelism ) {
+		this( dictionary, maxDistance, parallelism, newExecutor( parallelism ), true );
+	}
+	
+	
+	/**
+	 * Creates a spell checker running its tasks on the given executor, which is not shut down by {@link #close()}.
+	 * @param dictionary
+	 * @param maxDistance the maximum distance of the suggestions from a misspelled word
+	 * @param parallelism the maximum number of batches of a text checked at the same time
+	 * @param executor
+	 */
+	public SpellChecker( TrieDictionary dictionary, int maxDistance, int parallelism, ExecutorService executor ) {
+		this( dictionary, maxDistance, parallelism, executor, false );
+	}
+	
+	
+	private SpellChecker( TrieDictionary dictionary, int maxDistance, int parallelism, ExecutorService executor, 
+			boolean ownsExecutor ) {
+		if ( dictionary == null ) throw new NullPointerException( "dictionary" );
+		if ( executor == null ) throw new NullPointerException( "executor" );
+		if ( maxDistance < 0 ) throw new IllegalArgumentException( "Negative distance: " + maxDistance );
+		if ( parallelism < 1 ) throw new IllegalArgumentException( "Parallelism below 1: " + parallelism );
+		this.dictionary = dictionary;
+		this.maxDistance = maxDistance;
+		this.parallelism = parallelism;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+	}
+	
+	
+	/* 
+	 * Executors.newVirtualThreadPerTaskExecutor is looked up at run time, since the library 
+	 * is built for Java 8. The number of tasks is bounded by the pipeline in both cases.
+	 */
+	private static ExecutorService newExecutor( int parallelism ) {
+		try {
+			Method factory = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+			return (ExecutorService) factory.invoke( null );
+		}
+		catch ( ReflectiveOperationException e ) {
+			return Executors.newFixedThreadPool( parallelism, new ThreadFactory() {
+				private int next;
+				
+				@Override
+				public synchronized Thread newThread( Runnable task ) {
+					Thread thread = new Thread( task, "jtrie-spellcheck-" + next++ );
+					thread.setDaemon( true );
+					return thread;
+				}
+			} );
+		}
+	}
+	
+	
+	/**
+	 * Checks the text of the given reader, which is not closed.
+	 * @param reader
+	 * @return the misspellings of the text, in order.
+	 */
+	public Stream<Misspelling> check( Reader reader ) {
+		return check( reader, new SpellCheckStats() );
+	}
+	
+	
+	/**
+	 * Checks the text of the given reader, which is not closed, counting the run in the given stats. 
+	 * An IOException of the reader is thrown as an UncheckedIOException by the stream.
+	 * @param reader
+	 * @param stats
+	 * @return the misspellings of the text, in order. Closing the stream cancels the 
+	 * searches which are still running.
+	 */
+	public Stream<Misspelling> check( Reader reader, SpellCheckStats stats ) {
+		final Pipeline pipeline = new Pipeline( dictionary, maxDistance, batchSize, windowSize, parallelism, 
+				executor, reader, stats );
+		return StreamSupport.stream( pipeline, false ).onClose( new Runnable() {
+			@Override
+			public void run() {
+				pipeline.cancel();
+			}
+		} );
+	}
+	
+	
+	/**
+	 * Checks the text of the given stream, which is not closed.
+	 * @param in
+	 * @param charset
+	 * @param stats
+	 * @return the misspellings of the text, in order.
+	 */
+	public Stream<Misspelling> check( InputStream in, Charset charset, SpellCheckStats stats ) {
+		return check( new InputStreamReader( in, charset ), stats );
+	}
+	
+	
+	/**
+	 * Checks the text of the given file. The file is closed when the returned stream is closed.
+	 * @param path
+	 * @param charset
+	 * @param stats
+	 * @return the misspellings of the text, in order.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public Stream<Misspelling> check( Path path, Charset charset, SpellCheckStats stats ) throws IOException {
+		final Reader reader = Files.newBufferedReader( path, charset );
+		return check( reader, stats ).onClose( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reader.close();
+				}
+				catch ( IOException e ) {
+					throw new UncheckedIOException( e );
+				}
+			}
+		} );
+	}
+	
+	
+	/**
+	 * @return the number of tokens of a batch.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	
+	/**
+	 * Sets the number of tokens of a batch, for the texts checked from now on. Larger 
+	 * batches share a walk of the Trie among more misses but are read further ahead.
+	 * @param batchSize
+	 */
+	public void setBatchSize( int batchSize ) {
+		if ( batchSize < 1 ) throw new IllegalArgumentException( "Batch size below 1: " + batchSize );
+		this.batchSize = batchSize;
+	}
+	
+	
+	/**
+	 * @return the number of recent distinct words which are not looked up again.
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+	
+	
+	/**
+	 * Sets the number of recent distinct words which are not looked up again, for the texts checked from now on.
+	 * @param windowSize
+	 */
+	public void setWindowSize( int windowSize ) {
+		if ( windowSize < 0 ) throw new IllegalArgumentException( "Negative window size: " + windowSize );
+		this.windowSize = windowSize;
+	}
+	
+	
+	/**
+	 * Shuts down the executor of the spell checker, unless it was given to the constructor.
+	 */
+	@Override
+	public void close() {
+		if ( ownsExecutor ) executor.shutdownNow();
+	}
+
+}
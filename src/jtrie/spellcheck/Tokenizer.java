@@ -0,0 +1,107 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.spellcheck;
+
+
+import java.io.IOException;
+import java.io.Reader;
+
+import jtrie.structures.Alphabet;
+
+
+/**
+ * Splits the text of a Reader into tokens, the maximal runs of letters, digits and 
+ * characters of an alphabet, keeping the offset of every token in the text. The text 
+ * is read in chunks.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class Tokenizer {
+	
+	private static final int CHUNK = 8192;
+	
+	private final Reader reader;
+	private final Alphabet alphabet;
+	private final char[] buffer = new char[CHUNK];
+	private int position, limit;
+	
+	/* The offset in the text of buffer[0]. */
+	private long base;
+	
+	private final StringBuilder token = new StringBuilder();
+	private long offset;
+	
+	
+	/**
+	 * @param reader
+	 * @param alphabet whose characters are part of the tokens, like the letters and digits
+	 */
+	Tokenizer( Reader reader, Alphabet alphabet ) {
+		this.reader = reader;
+		this.alphabet = alphabet;
+	}
+	
+	
+	/**
+	 * Reads the next token.
+	 * @return false if the text has ended.
+	 * @throws IOException
+	 */
+	boolean next() throws IOException {
+		token.setLength( 0 );
+		
+		while ( true ) {
+			if ( position == limit && !fill() ) return token.length() > 0;
+			
+			char character = buffer[position];
+			if ( Character.isLetterOrDigit( character ) || alphabet.contains( character ) ) {
+				if ( token.length() == 0 ) offset = base + position;
+				token.append( character );
+			}
+			else if ( token.length() > 0 ) return true;
+			position++;
+		}
+	}
+	
+	
+	private boolean fill() throws IOException {
+		base += limit;
+		position = limit = 0;
+		int read = reader.read( buffer, 0, CHUNK );
+		if ( read < 0 ) return false;
+		limit = read;
+		return true;
+	}
+	
+	
+	/**
+	 * @return the text of the current token.
+	 */
+	String getToken() {
+		return token.toString();
+	}
+	
+	
+	/**
+	 * @return the offset in the text of the first character of the current token.
+	 */
+	long getOffset() {
+		return offset;
+	}
+
+}
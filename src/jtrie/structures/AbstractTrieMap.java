@@ -0,0 +1,398 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * The base of the trie maps. The keys are stored in the nodes of a Trie, encoded with 
+ * {@link Trie#code(char)}, and the node which ends a key holds the index of a slot 
+ * in the value array of the map. The subclasses keep the values in arrays of their 
+ * own type, so the primitive maps never box. Slots of removed keys are reused.
+ * <p>
+ * Keys are case and accent insensitive in the same way as the words of a Trie, and 
+ * are returned in capitals. The maps are not synchronized, and iterators fail with a 
+ * ConcurrentModificationException when the map is modified while they are in use.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public abstract class AbstractTrieMap {
+	
+	private TrieNode root = new TrieNode( (byte) 0 );
+	private int size, modCount;
+	
+	/* The number of slots handed out so far, and the slots of removed keys. */
+	private int slots;
+	private int[] freeSlots = new int[8];
+	private int freeCount;
+	
+	
+	/**
+	 * 
+	 */
+	AbstractTrieMap() {
+	}
+	
+	
+	/**
+	 * @return the number of keys of the map.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * @return true if the map has no keys.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	
+	/**
+	 * @param key
+	 * @return true if the map holds the given key.
+	 */
+	public boolean containsKey( CharSequence key ) {
+		return find( key ) >= 0;
+	}
+	
+	
+	/**
+	 * Removes all the keys of the map.
+	 */
+	public void clear() {
+		root = new TrieNode( (byte) 0 );
+		clearValues( slots );
+		size = 0;
+		slots = 0;
+		freeCount = 0;
+		modCount++;
+	}
+	
+	
+	/**
+	 * Returns the keys which start with the given prefix, in the order of their letter codes.
+	 * The keys are read from the map while iterating.
+	 * @param prefix
+	 * @return the keys, in capitals.
+	 */
+	public Iterable<String> keysWithPrefix( final CharSequence prefix ) {
+		return new Iterable<String>() {
+			public Iterator<String> iterator() {
+				final Cursor cursor = cursor( prefix );
+				return new CursorIterator<String>( cursor ) {
+					String current() {
+						return cursor.key();
+					}
+				};
+			}
+		};
+	}
+	
+	
+	/**
+	 * Grows the value array of the subclass to hold at least the given number of slots.
+	 * @param capacity
+	 */
+	abstract void ensureCapacity( int capacity );
+	
+	
+	/**
+	 * Resets the values of the first slots, so that they no longer hold any reference.
+	 * @param slots
+	 */
+	abstract void clearValues( int slots );
+	
+	
+	/**
+	 * @param key
+	 * @return the slot of the given key, or -1 if the map does not hold it.
+	 */
+	final int find( CharSequence key ) {
+		TrieNode node = root;
+		for ( int i = 0, length = key.length(); i < length; i++ ) {
+			byte letter = Trie.code( key.charAt( i ) );
+			if ( letter == 0 ) return -1;
+			node = node.getChild( letter );
+			if ( node == null ) return -1;
+		}
+		return node.isWord() ? ( (SlotTrieNode) node ).getSlot() : -1;
+	}
+	
+	
+	/**
+	 * Adds the given key if the map does not hold it.
+	 * @param key
+	 * @return the slot of the key, or -(slot + 1) if the key has been added by this call.
+	 * @throws IllegalArgumentException if the key is empty or contains an invalid character.
+	 */
+	final int add( CharSequence key ) {
+		int length = key.length();
+		if ( length == 0 ) throw new IllegalArgumentException( "Empty key" );
+		for ( int i = 0; i < length; i++ ) {
+			if ( Trie.code( key.charAt( i ) ) == 0 ) {
+				throw new IllegalArgumentException( "Invalid character in key: " + key );
+			}
+		}
+		
+		TrieNode current = root;
+		for ( int i = 0; i < length - 1; i++ ) {
+			byte letter = Trie.code( key.charAt( i ) );
+			TrieNode child = current.getChild( letter );
+			if ( child == null ) {
+				child = new TrieNode( letter );
+				current.setChild( child );
+			}
+			current = child;
+		}
+		
+		byte letter = Trie.code( key.charAt( length - 1 ) );
+		TrieNode child = current.getChild( letter );
+		if ( child != null && child.isWord() ) return ( (SlotTrieNode) child ).getSlot();
+		
+		int slot = freeCount > 0 ? freeSlots[--freeCount] : slots++;
+		ensureCapacity( slots );
+		current.setChild( child == null ? new SlotTrieNode( letter, slot ) : new SlotTrieNode( child, slot ) );
+		size++;
+		modCount++;
+		return -slot - 1;
+	}
+	
+	
+	/**
+	 * Removes the given key, together with the nodes which no longer lead to any key. 
+	 * The slot is reused by a later key, so the subclass must read and reset its 
+	 * value before the next key is added.
+	 * @param key
+	 * @return the slot of the removed key, or -1 if the map does not hold it.
+	 */
+	final int removeKey( CharSequence key ) {
+		int length = key.length();
+		if ( length == 0 ) return -1;
+		
+		TrieNode[] path = new TrieNode[length + 1];
+		path[0] = root;
+		for ( int i = 0; i < length; i++ ) {
+			byte letter = Trie.code( key.charAt( i ) );
+			if ( letter == 0 ) return -1;
+			path[i + 1] = path[i].getChild( letter );
+			if ( path[i + 1] == null ) return -1;
+		}
+		
+		TrieNode node = path[length];
+		if ( !node.isWord() ) return -1;
+		int slot = ( (SlotTrieNode) node ).getSlot();
+		
+		if ( node.getChildCount() > 0 ) {
+			path[length - 1].setChild( new TrieNode( node ) );
+		}
+		else {
+			for ( int index = length; index > 0; index-- ) {
+				TrieNode current = path[index];
+				if ( current.getChildCount() > 0 || ( current.isWord() && index != length ) ) break;
+				path[index - 1].removeChild( current.getLetter() );
+			}
+		}
+		
+		if ( freeCount == freeSlots.length ) {
+			int[] grown = new int[freeCount * 2];
+			System.arraycopy( freeSlots, 0, grown, 0, freeCount );
+			freeSlots = grown;
+		}
+		freeSlots[freeCount++] = slot;
+		size--;
+		modCount++;
+		return slot;
+	}
+	
+	
+	/**
+	 * @param prefix
+	 * @return a cursor over the keys which start with the given prefix.
+	 */
+	final Cursor cursor( CharSequence prefix ) {
+		return new Cursor( prefix );
+	}
+	
+	
+	/**
+	 * Checks whether the given key starts with the given prefix, comparing letter codes.
+	 * @param key
+	 * @param prefix
+	 * @return true if the key starts with the prefix.
+	 */
+	static boolean startsWith( CharSequence key, CharSequence prefix ) {
+		int length = prefix.length();
+		if ( key.length() < length ) return false;
+		for ( int i = 0; i < length; i++ ) {
+			byte letter = Trie.code( prefix.charAt( i ) );
+			if ( letter == 0 || Trie.code( key.charAt( i ) ) != letter ) return false;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * A depth first walk over the keys below a prefix, in the order of their letter codes. 
+	 * Every key of the walk is built in a char buffer owned by the cursor.
+	 */
+	final class Cursor {
+		
+		private TrieNode[] nodes = new TrieNode[16];
+		private int[] positions = new int[16];
+		private char[] letters;
+		private final int prefixLength;
+		private final int expectedModCount = modCount;
+		private int depth, slot;
+		
+		
+		Cursor( CharSequence prefix ) {
+			prefixLength = prefix.length();
+			letters = new char[prefixLength + 16];
+			
+			TrieNode node = root;
+			for ( int i = 0; i < prefixLength && node != null; i++ ) {
+				byte letter = Trie.code( prefix.charAt( i ) );
+				node = letter == 0 ? null : node.getChild( letter );
+				if ( node != null ) letters[i] = Trie.letterOf( letter );
+			}
+			
+			nodes[0] = node;
+			positions[0] = -1;
+			depth = node == null ? -1 : 0;
+		}
+		
+		
+		/**
+		 * Moves to the next key.
+		 * @return false if there are no more keys.
+		 */
+		boolean next() {
+			if ( modCount != expectedModCount ) throw new ConcurrentModificationException();
+			
+			while ( depth >= 0 ) {
+				TrieNode node = nodes[depth];
+				if ( positions[depth] < 0 ) {
+					positions[depth] = 0;
+					if ( node.isWord() ) {
+						slot = ( (SlotTrieNode) node ).getSlot();
+						return true;
+					}
+				}
+				
+				TrieNode child = null;
+				int position = positions[depth];
+				for ( int slots = node.getChildSlots(); position < slots && child == null; position++ ) {
+					child = node.getChildAt( position );
+				}
+				positions[depth] = position;
+				
+				if ( child == null ) {
+					depth--;
+					continue;
+				}
+				
+				if ( ++depth == nodes.length ) grow();
+				nodes[depth] = child;
+				positions[depth] = -1;
+				letters[prefixLength + depth - 1] = Trie.letterOf( child.getLetter() );
+			}
+			return false;
+		}
+		
+		
+		/**
+		 * @return the current key, in capitals.
+		 */
+		String key() {
+			return new String( letters, 0, prefixLength + depth );
+		}
+		
+		
+		/**
+		 * @return the slot of the current key.
+		 */
+		int slot() {
+			return slot;
+		}
+		
+		
+		private void grow() {
+			TrieNode[] grownNodes = new TrieNode[nodes.length * 2];
+			int[] grownPositions = new int[nodes.length * 2];
+			char[] grownLetters = new char[prefixLength + nodes.length * 2];
+			System.arraycopy( nodes, 0, grownNodes, 0, nodes.length );
+			System.arraycopy( positions, 0, grownPositions, 0, nodes.length );
+			System.arraycopy( letters, 0, grownLetters, 0, letters.length );
+			nodes = grownNodes;
+			positions = grownPositions;
+			letters = grownLetters;
+		}
+		
+	}
+	
+	
+	/**
+	 * An Iterator over a cursor, which looks one key ahead.
+	 */
+	abstract static class CursorIterator<T> implements Iterator<T> {
+		
+		private final Cursor cursor;
+		private boolean ready, hasNext;
+		
+		
+		CursorIterator( Cursor cursor ) {
+			this.cursor = cursor;
+		}
+		
+		
+		/**
+		 * @return the element of the current key of the cursor.
+		 */
+		abstract T current();
+		
+		
+		public boolean hasNext() {
+			if ( !ready ) {
+				hasNext = cursor.next();
+				ready = true;
+			}
+			return hasNext;
+		}
+		
+		
+		public T next() {
+			if ( !hasNext() ) throw new NoSuchElementException();
+			ready = false;
+			return current();
+		}
+		
+		
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+
+}
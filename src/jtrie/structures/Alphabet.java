@@ -0,0 +1,275 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.Arrays;
+
+
+/**
+ * The letters a Trie can store and their letter codes. An alphabet is compiled into 
+ * a table from every char to its code, so the lowercase, accented or other variants 
+ * of a letter fold to the code of the letter with a single array read, and into 
+ * a table from every code back to its letter. Codes run from 1 to {@link #MAX_LETTERS}; 
+ * 0 stands for a character which is not part of the alphabet.
+ * <p>
+ * {@link #DEFAULT} holds the capital Greek letters, the Latin letters and the digits 
+ * with the codes of {@link Trie#code(char)}. Other alphabets are made with a {@link Builder}, 
+ * which gives the letters their codes in the order they are added, and may start 
+ * from the letters of an existing alphabet. Alphabets are immutable.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class Alphabet {
+	
+	/** The maximum number of letters of an alphabet, which keeps every code a positive byte. */
+	public static final int MAX_LETTERS = WordGraph.MAX_EDGES - 1;
+	
+	/** The capital Greek letters (1 to 24), the Latin letters (25 to 50) and the digits (51 to 60). */
+	public static final Alphabet DEFAULT = defaultAlphabet();
+	
+	private final byte[] codes;
+	private final char[] letters;
+	private final int size;
+	
+	
+	private Alphabet( byte[] codes, char[] letters, int size ) {
+		this.codes = codes;
+		this.letters = letters;
+		this.size = size;
+	}
+	
+	
+	private static Alphabet defaultAlphabet() {
+		Builder builder = new Builder();
+		for ( char letter = 'Α'; letter <= 'Ω'; letter++ ) {
+			
+			/* U+03A2 is not assigned, there is no capital final sigma. */
+			if ( letter != '΢' ) builder.add( letter );
+		}
+		for ( char letter = 'A'; letter <= 'Z'; letter++ ) {
+			builder.add( letter );
+		}
+		for ( char digit = '0'; digit <= '9'; digit++ ) {
+			builder.add( digit );
+		}
+		
+		/* Every character folding to a letter, with the accents of Trie.toUpperCase. */
+		for ( int character = 0; character <= Character.MAX_VALUE; character++ ) {
+			char upper = Trie.toUpperCase( (char) character );
+			if ( upper != character && builder.codes[upper] != 0 ) {
+				builder.alias( (char) character, upper );
+			}
+		}
+		return builder.build();
+	}
+	
+	
+	/**
+	 * @return a builder for a new alphabet, with no letters.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	
+	/**
+	 * @param base
+	 * @return a builder for a new alphabet, starting with the letters and the codes of the given one.
+	 */
+	public static Builder builder( Alphabet base ) {
+		return new Builder( base );
+	}
+	
+	
+	/**
+	 * @param character
+	 * @return the code of the given character, or 0 if it is not part of the alphabet.
+	 */
+	public byte code( char character ) {
+		return codes[character];
+	}
+	
+	
+	/**
+	 * @param code
+	 * @return the letter of the given code, or 0 if no letter has this code.
+	 */
+	public char letter( byte code ) {
+		return code > 0 ? letters[code] : 0;
+	}
+	
+	
+	/**
+	 * @param character
+	 * @return true if the given character is a letter of the alphabet or a variant of one.
+	 */
+	public boolean contains( char character ) {
+		return codes[character] != 0;
+	}
+	
+	
+	/**
+	 * @return the number of letters, which is also the highest code.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Transforms the given word to letter codes. Characters which are not part of the 
+	 * alphabet are kept as 0, which matches no letter of a Trie.
+	 * @param word
+	 * @return the letter codes of the word.
+	 */
+	public byte[] encode( CharSequence word ) {
+		int length = word.length();
+		byte[] encoded = new byte[length];
+		for ( int i = 0; i < length; i++ ) {
+			encoded[i] = codes[word.charAt( i )];
+		}
+		return encoded;
+	}
+	
+	
+	/**
+	 * Transforms the given range of letter codes back to a word.
+	 * @param word the letter codes
+	 * @param offset the index of the first letter
+	 * @param length the number of letters
+	 * @return the word, with the letters of the alphabet.
+	 */
+	public String decode( byte[] word, int offset, int length ) {
+		char[] characters = new char[length];
+		for ( int i = 0; i < length; i++ ) {
+			characters[i] = letters[word[offset + i]];
+		}
+		return new String( characters );
+	}
+	
+	
+	/**
+	 * Replaces the variants of the letters of the given word by their letters.
+	 * @param word
+	 * @return the normalized word, or null if the word holds a character which is not part of the alphabet.
+	 */
+	public String normalize( CharSequence word ) {
+		int length = word.length();
+		char[] characters = new char[length];
+		for ( int i = 0; i < length; i++ ) {
+			byte code = codes[word.charAt( i )];
+			if ( code == 0 ) return null;
+			characters[i] = letters[code];
+		}
+		return new String( characters );
+	}
+	
+	
+	/**
+	 * Collects the letters of a new alphabet, giving every new letter the next free code.
+	 */
+	public static final class Builder {
+		
+		private final byte[] codes;
+		private final char[] letters;
+		private int size;
+		
+		
+		private Builder() {
+			codes = new byte[Character.MAX_VALUE + 1];
+			letters = new char[MAX_LETTERS + 1];
+		}
+		
+		
+		private Builder( Alphabet base ) {
+			codes = base.codes.clone();
+			letters = Arrays.copyOf( base.letters, MAX_LETTERS + 1 );
+			size = base.size;
+		}
+		
+		
+		/**
+		 * Adds a letter, unless it is already part of the alphabet. Its other case, if 
+		 * it has one which is not part of the alphabet yet, becomes a variant of it.
+		 * @param letter
+		 * @return this builder.
+		 * @throws IllegalStateException if the alphabet already has {@link #MAX_LETTERS} letters.
+		 */
+		public Builder add( char letter ) {
+			if ( codes[letter] != 0 ) return this;
+			if ( size == MAX_LETTERS ) {
+				throw new IllegalStateException( "An alphabet holds at most " + MAX_LETTERS + " letters." );
+			}
+			
+			byte code = (byte) ++size;
+			codes[letter] = code;
+			letters[code] = letter;
+			
+			char upper = Character.toUpperCase( letter ), lower = Character.toLowerCase( letter );
+			if ( codes[upper] == 0 ) codes[upper] = code;
+			if ( codes[lower] == 0 ) codes[lower] = code;
+			return this;
+		}
+		
+		
+		/**
+		 * Adds every character of the given sequence as a letter.
+		 * @param letters
+		 * @return this builder.
+		 */
+		public Builder addAll( CharSequence letters ) {
+			for ( int i = 0; i < letters.length(); i++ ) {
+				add( letters.charAt( i ) );
+			}
+			return this;
+		}
+		
+		
+		/**
+		 * Makes the given character a variant of a letter, so it is stored and found as that letter. 
+		 * Its other case, if it has one which is not part of the alphabet yet, becomes a variant too.
+		 * @param variant
+		 * @param letter a letter which is already part of the alphabet
+		 * @return this builder.
+		 * @throws IllegalArgumentException if the letter is not part of the alphabet, or the variant is a letter itself.
+		 */
+		public Builder alias( char variant, char letter ) {
+			byte code = codes[letter];
+			if ( code == 0 ) throw new IllegalArgumentException( "Not a letter of the alphabet: " + letter );
+			if ( codes[variant] != 0 && letters[codes[variant]] == variant ) {
+				throw new IllegalArgumentException( "A letter cannot be a variant: " + variant );
+			}
+			codes[variant] = code;
+			
+			char upper = Character.toUpperCase( variant ), lower = Character.toLowerCase( variant );
+			if ( codes[upper] == 0 ) codes[upper] = code;
+			if ( codes[lower] == 0 ) codes[lower] = code;
+			return this;
+		}
+		
+		
+		/**
+		 * @return the alphabet of the letters added so far.
+		 */
+		public Alphabet build() {
+			return new Alphabet( codes.clone(), letters.clone(), size );
+		}
+	}
+
+}
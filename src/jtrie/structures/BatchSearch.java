@@ -0,0 +1,219 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+
+
+/**
+ * A fuzzy search of many queries in a single walk of the Trie. Every level of the walk 
+ * holds the Levenshtein Distance rows of the queries which are still live at that 
+ * depth, packed one after the other in one buffer per depth. A query is dropped from 
+ * the subtree of a node as soon as the minimum of its row exceeds the distance, and 
+ * a subtree is skipped once no query is live, so every node is visited at most once 
+ * for the whole batch. The words found for every query are the same, and in the 
+ * same order, as the ones of {@link Trie#search(CharSequence, int)}.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class BatchSearch {
+	
+	private final byte[][] queries;
+	private final int maxDistance;
+	private final Alphabet alphabet;
+	private final ArrayList<ArrayList<String>> results;
+	
+	/* Per depth: the live queries, the offsets of their rows and the row buffer. */
+	private int[][] live;
+	private int[][] offsets;
+	private int[][] rows;
+	private int[] counts;
+	private byte[] prefix;
+	private long rowsComputed, subtreesPruned;
+	
+	
+	/**
+	 * @param queries the letter codes of the queries
+	 * @param maxDistance
+	 * @param alphabet the alphabet of the words of the Trie
+	 */
+	BatchSearch( byte[][] queries, int maxDistance, Alphabet alphabet ) {
+		this.queries = queries;
+		this.maxDistance = maxDistance;
+		this.alphabet = alphabet;
+		this.results = new ArrayList<ArrayList<String>>( queries.length );
+		for ( int q = 0; q < queries.length; q++ ) {
+			results.add( new ArrayList<String>() );
+		}
+		
+		int depths = 16;
+		live = new int[depths][];
+		offsets = new int[depths][];
+		rows = new int[depths][];
+		counts = new int[depths];
+		prefix = new byte[depths];
+	}
+	
+	
+	/**
+	 * Walks the Trie below the given root once for all the queries.
+	 * @param root
+	 * @return the words found for every query, in the order of the queries.
+	 */
+	ArrayList<ArrayList<String>> run( TrieNode root ) {
+		if ( maxDistance < 0 ) return results;
+		
+		int total = 0;
+		for ( byte[] query : queries ) {
+			total += query.length + 1;
+		}
+		live[0] = new int[queries.length];
+		offsets[0] = new int[queries.length];
+		rows[0] = new int[total];
+		
+		int position = 0;
+		for ( int q = 0; q < queries.length; q++ ) {
+			int length = queries[q].length;
+			for ( int i = 0; i <= length; i++ ) {
+				rows[0][position + i] = i;
+			}
+			if ( root.isWord() && length <= maxDistance ) results.get( q ).add( "" );
+			live[0][counts[0]] = q;
+			offsets[0][counts[0]++] = position;
+			position += length + 1;
+		}
+		
+		for ( int slot = 0, slots = root.getChildSlots(); slot < slots; slot++ ) {
+			TrieNode child = root.getChildAt( slot );
+			if ( child != null ) traverse( child, 1 );
+		}
+		return results;
+	}
+	
+	
+	private void traverse( TrieNode node, int depth ) {
+		if ( depth == counts.length ) grow();
+		prefix[depth - 1] = node.getLetter();
+		
+		int parentCount = counts[depth - 1];
+		int[] parentLive = live[depth - 1], parentOffsets = offsets[depth - 1];
+		int[] parentRows = rows[depth - 1];
+		
+		if ( live[depth] == null || live[depth].length < parentCount ) {
+			live[depth] = new int[parentCount];
+			offsets[depth] = new int[parentCount];
+		}
+		int[] currentLive = live[depth], currentOffsets = offsets[depth];
+		int[] currentRows = rows[depth];
+		
+		byte letter = node.getLetter();
+		boolean word = node.isWord();
+		String found = null;
+		int count = 0, position = 0;
+		
+		for ( int i = 0; i < parentCount; i++ ) {
+			int q = parentLive[i];
+			byte[] query = queries[q];
+			int size = query.length + 1;
+			if ( currentRows == null || currentRows.length < position + size ) {
+				currentRows = grow( currentRows, position + size );
+				rows[depth] = currentRows;
+			}
+			
+			int previous = parentOffsets[i];
+			currentRows[position] = parentRows[previous] + 1;
+			int minimumElement = currentRows[position];
+			for ( int j = 1; j < size; j++ ) {
+				int insertCost = currentRows[position + j - 1] + 1;
+				int deleteCost = parentRows[previous + j] + 1;
+				int replaceCost = query[j - 1] == letter 
+						? parentRows[previous + j - 1] : parentRows[previous + j - 1] + 1;
+				int cost = insertCost < deleteCost ? insertCost : deleteCost;
+				if ( replaceCost < cost ) cost = replaceCost;
+				currentRows[position + j] = cost;
+				if ( cost < minimumElement ) minimumElement = cost;
+			}
+			
+			if ( word && currentRows[position + size - 1] <= maxDistance ) {
+				if ( found == null ) found = alphabet.decode( prefix, 0, depth );
+				results.get( q ).add( found );
+			}
+			
+			/* The query stays live below this node only while some word there may be within the distance. */
+			if ( minimumElement <= maxDistance ) {
+				currentLive[count] = q;
+				currentOffsets[count++] = position;
+				position += size;
+			}
+		}
+		counts[depth] = count;
+		rowsComputed += parentCount;
+		
+		if ( count == 0 ) {
+			subtreesPruned++;
+			return;
+		}
+		for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+			TrieNode child = node.getChildAt( slot );
+			if ( child != null ) traverse( child, depth + 1 );
+		}
+	}
+	
+	
+	/**
+	 * @return the number of rows computed, one for every query live at every visited node.
+	 */
+	long getRowsComputed() {
+		return rowsComputed;
+	}
+	
+	
+	/**
+	 * @return the number of visited nodes whose subtrees were skipped, as no query was live.
+	 */
+	long getSubtreesPruned() {
+		return subtreesPruned;
+	}
+	
+	
+	private static int[] grow( int[] array, int minimum ) {
+		int[] grown = new int[Math.max( minimum, array == null ? 64 : array.length * 2 )];
+		if ( array != null ) System.arraycopy( array, 0, grown, 0, array.length );
+		return grown;
+	}
+	
+	
+	private void grow() {
+		int depths = counts.length * 2;
+		int[][] grownLive = new int[depths][], grownOffsets = new int[depths][], grownRows = new int[depths][];
+		System.arraycopy( live, 0, grownLive, 0, counts.length );
+		System.arraycopy( offsets, 0, grownOffsets, 0, counts.length );
+		System.arraycopy( rows, 0, grownRows, 0, counts.length );
+		int[] grownCounts = new int[depths];
+		System.arraycopy( counts, 0, grownCounts, 0, counts.length );
+		byte[] grownPrefix = new byte[depths];
+		System.arraycopy( prefix, 0, grownPrefix, 0, prefix.length );
+		live = grownLive;
+		offsets = grownOffsets;
+		rows = grownRows;
+		counts = grownCounts;
+		prefix = grownPrefix;
+	}
+
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A reusable sink for the results of {@link Trie#complete(CharSequence, int, Completions)}. 
+ * The words are kept in one char buffer and the search works on arrays owned by the 
+ * sink, so a sink reused for every keystroke stops allocating once its buffers have 
+ * grown to the size of the queries. A sink must not be shared between threads.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class Completions {
+	
+	/* Completion i is chars[ends[i - 1] .. ends[i]) and has weight weights[i]. */
+	private char[] chars = new char[256];
+	private int[] ends = new int[16];
+	private long[] weights = new long[16];
+	private int count;
+	
+	/* The prefix of the completions, in capitals. */
+	private char[] prefix = new char[16];
+	private int prefixLength;
+	
+	/* The alphabet of the Trie of the current search. */
+	private Alphabet alphabet;
+	
+	/* The nodes reached by the search, each with the record of its parent. */
+	private TrieNode[] nodes = new TrieNode[64];
+	private int[] parents = new int[64];
+	private int records;
+	
+	/* A binary heap of entries: twice the record, plus one for the word of the node itself 
+	 * rather than its whole subtree. */
+	private int[] heap = new int[64];
+	private int heapSize;
+	
+	
+	/**
+	 * @return the number of completions.
+	 */
+	public int size() {
+		return count;
+	}
+	
+	
+	/**
+	 * @param index
+	 * @return the frequency of the given completion.
+	 */
+	public long getWeight( int index ) {
+		checkIndex( index );
+		return weights[index];
+	}
+	
+	
+	/**
+	 * @param index
+	 * @return the number of letters of the given completion.
+	 */
+	public int getLength( int index ) {
+		checkIndex( index );
+		return ends[index] - start( index );
+	}
+	
+	
+	/**
+	 * @param index
+	 * @return the given completion, in capitals.
+	 */
+	public String getWord( int index ) {
+		checkIndex( index );
+		return new String( chars, start( index ), ends[index] - start( index ) );
+	}
+	
+	
+	/**
+	 * Copies the given completion to the destination array, without allocating.
+	 * @param index
+	 * @param destination
+	 * @param offset
+	 * @return the number of letters copied.
+	 */
+	public int getWord( int index, char[] destination, int offset ) {
+		int length = getLength( index );
+		System.arraycopy( chars, start( index ), destination, offset, length );
+		return length;
+	}
+	
+	
+	private int start( int index ) {
+		return index == 0 ? 0 : ends[index - 1];
+	}
+	
+	
+	private void checkIndex( int index ) {
+		if ( index < 0 || index >= count ) {
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + count );
+		}
+	}
+	
+	
+	/**
+	 * Replaces the contents of the sink with the k words of the subtree of the given 
+	 * node which have the highest frequency. The subtrees are expanded in the order of 
+	 * their maximum weight, so the search stops as soon as k words have been taken.
+	 * @param start the node of the prefix, or null if no word has the prefix
+	 * @param prefix
+	 * @param k
+	 * @param alphabet the alphabet of the words of the Trie
+	 */
+	void collect( TrieNode start, CharSequence prefix, int k, Alphabet alphabet ) {
+		count = 0;
+		if ( start == null || k <= 0 ) return;
+		
+		this.alphabet = alphabet;
+		setPrefix( prefix );
+		records = 0;
+		heapSize = 0;
+		push( record( start, -1 ) * 2 );
+		
+		while ( heapSize > 0 && count < k ) {
+			int entry = pop();
+			int record = entry >>> 1;
+			if ( ( entry & 1 ) == 1 ) {
+				emit( record );
+				continue;
+			}
+			
+			TrieNode node = nodes[record];
+			if ( node.isWord() ) push( record * 2 + 1 );
+			for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+				TrieNode child = node.getChildAt( slot );
+				if ( child != null ) push( record( child, record ) * 2 );
+			}
+		}
+		
+		/* Releases the nodes, which may be deleted from the Trie later. */
+		Arrays.fill( nodes, 0, records, null );
+	}
+	
+	
+	private void setPrefix( CharSequence word ) {
+		int length = word.length();
+		if ( prefix.length < length ) prefix = new char[Math.max( length, prefix.length * 2 )];
+		for ( int i = 0; i < length; i++ ) {
+			prefix[i] = alphabet.letter( alphabet.code( word.charAt( i ) ) );
+		}
+		prefixLength = length;
+	}
+	
+	
+	private int record( TrieNode node, int parent ) {
+		if ( records == nodes.length ) {
+			nodes = Arrays.copyOf( nodes, records * 2 );
+			parents = Arrays.copyOf( parents, records * 2 );
+		}
+		nodes[records] = node;
+		parents[records] = parent;
+		return records++;
+	}
+	
+	
+	/* Writes the prefix followed by the letters of the records from the start node down to the given one. */
+	private void emit( int record ) {
+		int depth = 0;
+		for ( int current = record; parents[current] >= 0; current = parents[current] ) {
+			depth++;
+		}
+		
+		int begin = start( count );
+		int end = begin + prefixLength + depth;
+		if ( chars.length < end ) chars = Arrays.copyOf( chars, Math.max( end, chars.length * 2 ) );
+		if ( count == ends.length ) {
+			ends = Arrays.copyOf( ends, count * 2 );
+			weights = Arrays.copyOf( weights, count * 2 );
+		}
+		
+		System.arraycopy( prefix, 0, chars, begin, prefixLength );
+		int position = end;
+		for ( int current = record; parents[current] >= 0; current = parents[current] ) {
+			chars[--position] = alphabet.letter( nodes[current].getLetter() );
+		}
+		
+		ends[count] = end;
+		weights[count] = nodes[record].getFrequency();
+		count++;
+	}
+	
+	
+	/*
+	 * Higher weights first. On equal weights a word comes before a subtree, which can 
+	 * do no better, and earlier records before later ones, so the order is stable.
+	 */
+	private boolean before( int a, int b ) {
+		long weightA = ( a & 1 ) == 1 ? nodes[a >>> 1].getFrequency() : nodes[a >>> 1].getMaxWeight();
+		long weightB = ( b & 1 ) == 1 ? nodes[b >>> 1].getFrequency() : nodes[b >>> 1].getMaxWeight();
+		if ( weightA != weightB ) return weightA > weightB;
+		if ( ( a & 1 ) != ( b & 1 ) ) return ( a & 1 ) == 1;
+		return a < b;
+	}
+	
+	
+	private void push( int entry ) {
+		if ( heapSize == heap.length ) heap = Arrays.copyOf( heap, heapSize * 2 );
+		int index = heapSize++;
+		while ( index > 0 ) {
+			int parent = ( index - 1 ) >>> 1;
+			if ( !before( entry, heap[parent] ) ) break;
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = entry;
+	}
+	
+	
+	private int pop() {
+		int top = heap[0];
+		int last = heap[--heapSize];
+		int index = 0;
+		while ( true ) {
+			int child = index * 2 + 1;
+			if ( child >= heapSize ) break;
+			if ( child + 1 < heapSize && before( heap[child + 1], heap[child] ) ) child++;
+			if ( !before( heap[child], last ) ) break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = last;
+		return top;
+	}
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A Trie which can be read and written by any number of threads at the same time 
+ * without locks. Readers never block and never see a partially built node; writers 
+ * add nodes with compare-and-set on the child slots of their parent, and mark or 
+ * unmark words atomically on the node of the word. The number of words is kept 
+ * in a LongAdder, so counting does not become a point of contention.
+ * <p>
+ * Deleting a word only unmarks its node: nodes are never removed, which keeps 
+ * the readers free of any coordination.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class ConcurrentTrie {
+	
+	private final ConcurrentTrieNode root = new ConcurrentTrieNode( (byte) 0 );
+	private final LongAdder size = new LongAdder();
+	
+	
+	/**
+	 * Inserts the given word. Words with invalid characters are rejected.
+	 * @param word
+	 * @return true if the word was added by this call.
+	 */
+	public boolean insert( CharSequence word ) {
+		int length = word.length();
+		if ( length == 0 ) return false;
+		for ( int i = 0; i < length; i++ ) {
+			if ( Trie.code( word.charAt( i ) ) == 0 ) return false;
+		}
+		
+		ConcurrentTrieNode node = root;
+		for ( int i = 0; i < length; i++ ) {
+			node = node.addChild( Trie.code( word.charAt( i ) ) );
+		}
+		
+		if ( !node.markWord() ) return false;
+		size.increment();
+		return true;
+	}
+	
+	
+	/**
+	 * Deletes the given word.
+	 * @param word
+	 * @return true if the word was deleted by this call.
+	 */
+	public boolean delete( CharSequence word ) {
+		ConcurrentTrieNode node = find( word );
+		if ( node == null || !node.unmarkWord() ) return false;
+		size.decrement();
+		return true;
+	}
+	
+	
+	/**
+	 * Checks whether the given word is stored in the Trie.
+	 * @param word
+	 * @return true if the word is stored.
+	 */
+	public boolean contains( CharSequence word ) {
+		ConcurrentTrieNode node = find( word );
+		return node != null && node.isWord();
+	}
+	
+	
+	/**
+	 * Checks whether the word in the given range of the array is stored in the Trie.
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return true if the word is stored.
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		ConcurrentTrieNode node = root;
+		for ( int i = offset, end = offset + length; i < end; i++ ) {
+			byte letter = Trie.code( word[i] );
+			if ( letter == 0 ) return false;
+			node = node.getChild( letter );
+			if ( node == null ) return false;
+		}
+		return node.isWord();
+	}
+	
+	
+	/**
+	 * Checks whether the given encoded word is stored in the Trie.
+	 * @param word the letter codes of the word
+	 * @return true if the word is stored.
+	 */
+	public boolean contains( byte[] word ) {
+		ConcurrentTrieNode node = root;
+		for ( int i = 0; i < word.length; i++ ) {
+			node = node.getChild( word[i] );
+			if ( node == null ) return false;
+		}
+		return node.isWord();
+	}
+	
+	
+	private ConcurrentTrieNode find( CharSequence word ) {
+		ConcurrentTrieNode node = root;
+		for ( int i = 0, length = word.length(); i < length; i++ ) {
+			byte letter = Trie.code( word.charAt( i ) );
+			if ( letter == 0 ) return null;
+			node = node.getChild( letter );
+			if ( node == null ) return null;
+		}
+		return node;
+	}
+	
+	
+	/**
+	 * @return the number of words stored in the Trie. While words are being 
+	 * inserted or deleted the count may not include the latest changes.
+	 */
+	public int size() {
+		return size.intValue();
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+
+/**
+ * A node of a {@link ConcurrentTrie}. Readers only perform volatile reads. Writers 
+ * add children with compare-and-set: a sparse node publishes a new sorted copy of 
+ * its (immutable) child array, and a dense node sets the slot of the letter in an 
+ * AtomicReferenceArray. The word flag is changed with compare-and-set too, so the 
+ * node of a word is never replaced.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class ConcurrentTrieNode {
+	
+	private static final AtomicReferenceFieldUpdater<ConcurrentTrieNode, Object> CHILDREN =
+			AtomicReferenceFieldUpdater.newUpdater( ConcurrentTrieNode.class, Object.class, "children" );
+	private static final AtomicIntegerFieldUpdater<ConcurrentTrieNode> WORD =
+			AtomicIntegerFieldUpdater.newUpdater( ConcurrentTrieNode.class, "word" );
+	
+	private final byte letter;
+	
+	/* null, a sorted ConcurrentTrieNode[] which is never modified, or an AtomicReferenceArray indexed by letter. */
+	private volatile Object children;
+	private volatile int word;
+	
+	
+	/**
+	 * @param letter
+	 */
+	ConcurrentTrieNode( byte letter ) {
+		this.letter = letter;
+	}
+	
+	
+	/**
+	 * @return the letter
+	 */
+	byte getLetter() {
+		return letter;
+	}
+	
+	
+	/**
+	 * @return true if this node ends a word.
+	 */
+	boolean isWord() {
+		return word != 0;
+	}
+	
+	
+	/**
+	 * Marks this node as the end of a word.
+	 * @return true if it was not marked before.
+	 */
+	boolean markWord() {
+		return WORD.compareAndSet( this, 0, 1 );
+	}
+	
+	
+	/**
+	 * Unmarks this node as the end of a word.
+	 * @return true if it was marked before.
+	 */
+	boolean unmarkWord() {
+		return WORD.compareAndSet( this, 1, 0 );
+	}
+	
+	
+	/**
+	 * @param letter
+	 * @return the child for the given letter, or null.
+	 */
+	ConcurrentTrieNode getChild( byte letter ) {
+		Object children = this.children;
+		if ( children == null ) return null;
+		
+		if ( children instanceof ConcurrentTrieNode[] ) {
+			ConcurrentTrieNode[] sparse = (ConcurrentTrieNode[]) children;
+			for ( ConcurrentTrieNode child : sparse ) {
+				if ( child.letter == letter ) return child;
+				if ( child.letter > letter ) break;
+			}
+			return null;
+		}
+		
+		@SuppressWarnings( "unchecked" )
+		AtomicReferenceArray<ConcurrentTrieNode> dense = (AtomicReferenceArray<ConcurrentTrieNode>) children;
+		return letter < 0 ? null : dense.get( letter );
+	}
+	
+	
+	/**
+	 * Returns the child for the given letter, adding it if there is none. When several 
+	 * threads add the same child at once, all of them get the one which was published.
+	 * @param letter
+	 * @return the child.
+	 */
+	ConcurrentTrieNode addChild( byte letter ) {
+		ConcurrentTrieNode node = null;
+		
+		while ( true ) {
+			Object children = this.children;
+			
+			if ( children != null && !( children instanceof ConcurrentTrieNode[] ) ) {
+				@SuppressWarnings( "unchecked" )
+				AtomicReferenceArray<ConcurrentTrieNode> dense = (AtomicReferenceArray<ConcurrentTrieNode>) children;
+				ConcurrentTrieNode child = dense.get( letter );
+				if ( child != null ) return child;
+				if ( node == null ) node = new ConcurrentTrieNode( letter );
+				if ( dense.compareAndSet( letter, null, node ) ) return node;
+				continue;
+			}
+			
+			ConcurrentTrieNode[] sparse = (ConcurrentTrieNode[]) children;
+			int size = sparse == null ? 0 : sparse.length;
+			int index = 0;
+			while ( index < size && sparse[index].letter < letter ) index++;
+			if ( index < size && sparse[index].letter == letter ) return sparse[index];
+			
+			if ( node == null ) node = new ConcurrentTrieNode( letter );
+			
+			Object replacement;
+			if ( size < TrieNode.DENSE_THRESHOLD ) {
+				ConcurrentTrieNode[] copy = new ConcurrentTrieNode[size + 1];
+				if ( size > 0 ) {
+					System.arraycopy( sparse, 0, copy, 0, index );
+					System.arraycopy( sparse, index, copy, index + 1, size - index );
+				}
+				copy[index] = node;
+				replacement = copy;
+			}
+			else {
+				AtomicReferenceArray<ConcurrentTrieNode> dense = 
+						new AtomicReferenceArray<ConcurrentTrieNode>( WordGraph.MAX_EDGES );
+				for ( ConcurrentTrieNode child : sparse ) {
+					dense.lazySet( child.letter, child );
+				}
+				dense.lazySet( letter, node );
+				replacement = dense;
+			}
+			
+			if ( CHILDREN.compareAndSet( this, children, replacement ) ) return node;
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+/**
+ * An immutable, minimal acyclic automaton (DAWG) over letter codes. Words which 
+ * share a suffix share the states of that suffix, so inflected endings are stored 
+ * once. The states and edges are kept in flat arrays: the edges of state s are 
+ * the ones between firstEdges[s] and firstEdges[s + 1], ordered by letter.
+ * <p>
+ * Instances are created by {@link DawgBuilder}.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class Dawg extends WordGraph {
+	
+	private final int[] firstEdges;
+	private final byte[] edgeLetters;
+	private final int[] edgeTargets;
+	private final boolean[] finals;
+	private final int words;
+	
+	
+	/**
+	 * @param firstEdges the index of the first edge of every state, followed by the number of edges
+	 * @param edgeLetters
+	 * @param edgeTargets
+	 * @param finals
+	 * @param words the number of words
+	 */
+	Dawg( int[] firstEdges, byte[] edgeLetters, int[] edgeTargets, boolean[] finals, int words ) {
+		this.firstEdges = firstEdges;
+		this.edgeLetters = edgeLetters;
+		this.edgeTargets = edgeTargets;
+		this.finals = finals;
+		this.words = words;
+	}
+	
+	
+	@Override
+	public int getRoot() {
+		return 0;
+	}
+	
+	
+	@Override
+	public boolean isFinal( int state ) {
+		return finals[state];
+	}
+	
+	
+	@Override
+	public int getChild( int state, byte letter ) {
+		int low = firstEdges[state];
+		int high = firstEdges[state + 1] - 1;
+		while ( low <= high ) {
+			int middle = ( low + high ) >>> 1;
+			byte key = edgeLetters[middle];
+			if ( key < letter ) low = middle + 1;
+			else if ( key > letter ) high = middle - 1;
+			else return edgeTargets[middle];
+		}
+		return NONE;
+	}
+	
+	
+	@Override
+	public int getEdges( int state, byte[] letters, int[] targets ) {
+		int first = firstEdges[state];
+		int edges = firstEdges[state + 1] - first;
+		System.arraycopy( edgeLetters, first, letters, 0, edges );
+		System.arraycopy( edgeTargets, first, targets, 0, edges );
+		return edges;
+	}
+	
+	
+	@Override
+	public int size() {
+		return words;
+	}
+	
+	
+	/**
+	 * @return the number of states of the automaton.
+	 */
+	public int getStateCount() {
+		return finals.length;
+	}
+	
+	
+	/**
+	 * @return the number of edges of the automaton.
+	 */
+	public int getEdgeCount() {
+		return edgeLetters.length;
+	}
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+
+/**
+ * Builds a minimal {@link Dawg} from words given in sorted order, keeping only the 
+ * states of the last word unminimized at any time (the incremental algorithm of 
+ * Daciuk, Mihov, Watson and Watson). Any order in which the words sharing a prefix 
+ * are given one after the other will do, for example words sorted by 
+ * {@link String#compareTo(String)} after {@link Trie#capitalize(String)}. 
+ * A word which breaks the order is rejected with an IllegalArgumentException.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class DawgBuilder {
+	
+	private final State root = new State();
+	private final HashMap<State, State> register = new HashMap<State, State>();
+	
+	/* path[i] is the state reached by the first i letters of the previous word. */
+	private State[] path = new State[16];
+	private byte[] previous = new byte[16];
+	private int previousLength;
+	private int words;
+	private boolean built;
+	
+	
+	/**
+	 * Creates a builder for an empty automaton.
+	 */
+	public DawgBuilder() {
+		path[0] = root;
+	}
+	
+	
+	/**
+	 * Builds the minimal automaton of the words stored in the given Trie.
+	 * @param trie a Trie of the default alphabet
+	 * @return the automaton.
+	 * @throws IllegalArgumentException if the Trie has another alphabet.
+	 */
+	public static Dawg build( Trie trie ) {
+		WordGraph.checkAlphabet( trie );
+		DawgBuilder builder = new DawgBuilder();
+		builder.addAll( trie.getRoot(), new byte[16], 0 );
+		return builder.build();
+	}
+	
+	
+	private byte[] addAll( TrieNode node, byte[] word, int length ) {
+		if ( node.isWord() ) add( word, 0, length );
+		if ( length == word.length ) word = Arrays.copyOf( word, length * 2 );
+		
+		for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+			TrieNode child = node.getChildAt( slot );
+			if ( child == null ) continue;
+			word[length] = child.getLetter();
+			word = addAll( child, word, length + 1 );
+		}
+		return word;
+	}
+	
+	
+	/**
+	 * Adds the next word.
+	 * @param word
+	 * @return true if the word was added, false if it is empty, contains an invalid 
+	 * character or is the same as a word already added.
+	 * @throws IllegalArgumentException if the word breaks the order of the words.
+	 */
+	public boolean add( CharSequence word ) {
+		byte[] codes = Trie.encode( word );
+		for ( byte letter : codes ) {
+			if ( letter == 0 ) return false;
+		}
+		return add( codes, 0, codes.length );
+	}
+	
+	
+	/**
+	 * Adds the next word, given as letter codes.
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return true if the word was added, false if it is empty or the same as a word already added.
+	 * @throws IllegalArgumentException if the word breaks the order of the words.
+	 */
+	public boolean add( byte[] word, int offset, int length ) {
+		if ( built ) throw new IllegalStateException( "The automaton has already been built." );
+		if ( length == 0 ) return false;
+		
+		int common = 0;
+		int max = Math.min( length, previousLength );
+		while ( common < max && previous[common] == word[offset + common] ) common++;
+		
+		if ( common == length ) {
+			if ( path[common].isFinal ) return false;
+		}
+		else if ( path[common].hasEdge( word[offset + common] ) ) {
+			throw new IllegalArgumentException( "Word out of order: " + Trie.decode( word, offset, length ) );
+		}
+		
+		minimize( common );
+		
+		if ( length >= path.length ) {
+			path = Arrays.copyOf( path, Math.max( length + 1, path.length * 2 ) );
+			previous = Arrays.copyOf( previous, path.length );
+		}
+		
+		State state = path[common];
+		for ( int i = common; i < length; i++ ) {
+			State next = new State();
+			state.addEdge( word[offset + i], next );
+			previous[i] = word[offset + i];
+			path[i + 1] = next;
+			state = next;
+		}
+		state.isFinal = true;
+		previousLength = length;
+		words++;
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Minimizes the remaining states and returns the automaton. The builder cannot be used afterwards.
+	 * @return the automaton.
+	 */
+	public Dawg build() {
+		if ( built ) throw new IllegalStateException( "The automaton has already been built." );
+		built = true;
+		
+		minimize( 0 );
+		root.sortEdges();
+		
+		/* Numbers the states breadth first, the root being 0. */
+		State[] states = new State[register.size() + 1];
+		states[0] = root;
+		root.id = 0;
+		int count = 1;
+		int edgeCount = 0;
+		for ( int index = 0; index < count; index++ ) {
+			State state = states[index];
+			edgeCount += state.count;
+			for ( int edge = 0; edge < state.count; edge++ ) {
+				State target = state.targets[edge];
+				if ( target.id < 0 ) {
+					target.id = count;
+					states[count++] = target;
+				}
+			}
+		}
+		
+		int[] firstEdges = new int[count + 1];
+		byte[] edgeLetters = new byte[edgeCount];
+		int[] edgeTargets = new int[edgeCount];
+		boolean[] finals = new boolean[count];
+		int edgeIndex = 0;
+		for ( int index = 0; index < count; index++ ) {
+			State state = states[index];
+			firstEdges[index] = edgeIndex;
+			finals[index] = state.isFinal;
+			for ( int edge = 0; edge < state.count; edge++ ) {
+				edgeLetters[edgeIndex] = state.letters[edge];
+				edgeTargets[edgeIndex] = state.targets[edge].id;
+				edgeIndex++;
+			}
+		}
+		firstEdges[count] = edgeIndex;
+		
+		register.clear();
+		return new Dawg( firstEdges, edgeLetters, edgeTargets, finals, words );
+	}
+	
+	
+	/*
+	 * Replaces the states of the previous word below the given depth by their 
+	 * equivalent registered states, or registers them.
+	 */
+	private void minimize( int depth ) {
+		for ( int i = previousLength; i > depth; i-- ) {
+			State state = path[i];
+			state.sortEdges();
+			State registered = register.get( state );
+			if ( registered != null ) {
+				path[i - 1].targets[path[i - 1].count - 1] = registered;
+			}
+			else {
+				register.put( state, state );
+			}
+		}
+	}
+	
+	
+	/**
+	 * @return the number of words added so far.
+	 */
+	public int size() {
+		return words;
+	}
+	
+	
+	/* A state under construction. Its edges are sorted when it is registered. */
+	private static final class State {
+		
+		private static final byte[] NO_LETTERS = new byte[0];
+		private static final State[] NO_TARGETS = new State[0];
+		
+		byte[] letters = NO_LETTERS;
+		State[] targets = NO_TARGETS;
+		int count;
+		boolean isFinal;
+		int id = -1;
+		
+		void addEdge( byte letter, State target ) {
+			if ( count == letters.length ) {
+				int capacity = Math.max( 2, count * 2 );
+				letters = Arrays.copyOf( letters, capacity );
+				targets = Arrays.copyOf( targets, capacity );
+			}
+			letters[count] = letter;
+			targets[count] = target;
+			count++;
+		}
+		
+		boolean hasEdge( byte letter ) {
+			for ( int i = 0; i < count; i++ ) {
+				if ( letters[i] == letter ) return true;
+			}
+			return false;
+		}
+		
+		void sortEdges() {
+			for ( int i = 1; i < count; i++ ) {
+				byte letter = letters[i];
+				State target = targets[i];
+				int j = i - 1;
+				while ( j >= 0 && letters[j] > letter ) {
+					letters[j + 1] = letters[j];
+					targets[j + 1] = targets[j];
+					j--;
+				}
+				letters[j + 1] = letter;
+				targets[j + 1] = target;
+			}
+		}
+		
+		@Override
+		public int hashCode() {
+			int hash = isFinal ? 1 : 0;
+			for ( int i = 0; i < count; i++ ) {
+				hash = 31 * ( 31 * hash + letters[i] ) + System.identityHashCode( targets[i] );
+			}
+			return hash;
+		}
+		
+		@Override
+		public boolean equals( Object other ) {
+			if ( !( other instanceof State ) ) return false;
+			State state = (State) other;
+			if ( state.isFinal != isFinal || state.count != count ) return false;
+			for ( int i = 0; i < count; i++ ) {
+				if ( state.letters[i] != letters[i] || state.targets[i] != targets[i] ) return false;
+			}
+			return true;
+		}
+	}
+
+}
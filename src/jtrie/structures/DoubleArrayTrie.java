@@ -0,0 +1,269 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+/**
+ * A compiled set of words in the double-array layout, kept outside the Java heap in a 
+ * direct ByteBuffer. Every state is a slot of three ints:
+ * <ul>
+ * <li>base: the child of the state for letter c is at slot base + c. The highest bit 
+ * marks the final states.</li>
+ * <li>check: the parent of the state, so the child for c exists only if 
+ * check[base + c] is the state itself. Free slots hold -1.</li>
+ * <li>links: the letter of the first child of the state and the letter of its next 
+ * sibling, which let the edges of a state be listed without probing every letter.</li>
+ * </ul>
+ * A transition is a single addition and comparison, and the garbage collector sees a 
+ * single object whatever the number of words. The structure is immutable; it is 
+ * built from a Trie or a list of words and supports the lookups, prefix enumeration 
+ * and Levenshtein searches of {@link WordGraph}. A structure holds at most 
+ * about 178 million slots, the limit of a ByteBuffer.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class DoubleArrayTrie extends WordGraph {
+	
+	private static final int SLOT_SIZE = 12;
+	private static final int CHECK = 4, LINKS = 8;
+	private static final int FINAL_FLAG = 0x80000000;
+	
+	private final ByteBuffer slots;
+	private final int capacity, states, words;
+	
+	
+	private DoubleArrayTrie( ByteBuffer slots, int capacity, int states, int words ) {
+		this.slots = slots;
+		this.capacity = capacity;
+		this.states = states;
+		this.words = words;
+	}
+	
+	
+	/**
+	 * Compiles the words of the given Trie.
+	 * @param trie a Trie of the default alphabet
+	 * @return the compiled words.
+	 * @throws IllegalArgumentException if the Trie has another alphabet.
+	 */
+	public static DoubleArrayTrie build( Trie trie ) {
+		WordGraph.checkAlphabet( trie );
+		return new Builder().build( trie.getRoot(), trie.size() );
+	}
+	
+	
+	/**
+	 * Compiles the given words. The words are gathered in a temporary Trie first, 
+	 * which is fastest when they are sorted.
+	 * @param words
+	 * @return the compiled words.
+	 */
+	public static DoubleArrayTrie build( Iterable<? extends CharSequence> words ) {
+		Trie trie = new Trie();
+		trie.insertAll( words );
+		return build( trie );
+	}
+	
+	
+	@Override
+	public int getRoot() {
+		return 0;
+	}
+	
+	
+	@Override
+	public boolean isFinal( int state ) {
+		return ( slots.getInt( state * SLOT_SIZE ) & FINAL_FLAG ) != 0;
+	}
+	
+	
+	@Override
+	public int getChild( int state, byte letter ) {
+		int child = ( slots.getInt( state * SLOT_SIZE ) & ~FINAL_FLAG ) + letter;
+		if ( letter <= 0 || child >= capacity ) return NONE;
+		return slots.getInt( child * SLOT_SIZE + CHECK ) == state ? child : NONE;
+	}
+	
+	
+	@Override
+	public int getEdges( int state, byte[] letters, int[] targets ) {
+		int base = slots.getInt( state * SLOT_SIZE ) & ~FINAL_FLAG;
+		int letter = ( slots.getInt( state * SLOT_SIZE + LINKS ) >>> 8 ) & 0xFF;
+		int edges = 0;
+		while ( letter != 0 ) {
+			int child = base + letter;
+			letters[edges] = (byte) letter;
+			targets[edges++] = child;
+			letter = slots.getInt( child * SLOT_SIZE + LINKS ) & 0xFF;
+		}
+		return edges;
+	}
+	
+	
+	@Override
+	public int size() {
+		return words;
+	}
+	
+	
+	/**
+	 * @return the number of states, the root included.
+	 */
+	public int getStateCount() {
+		return states;
+	}
+	
+	
+	/**
+	 * @return the number of slots, used or free.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	
+	/**
+	 * @return the size of the off-heap memory of the structure, in bytes.
+	 */
+	public long getMemoryBytes() {
+		return (long) capacity * SLOT_SIZE;
+	}
+	
+	
+	/**
+	 * Places the nodes of a Trie in breadth first order. The base of every node is the 
+	 * lowest one, within a window, for which the slots of all its children are free. The arrays are 
+	 * built on the heap and copied off-heap once complete.
+	 */
+	private static final class Builder {
+		
+		/* 
+		 * The number of slots below the end in which a node with several children looks for 
+		 * room. Older holes are left to the nodes with a single child, which fit in any 
+		 * free slot, so that placing a node does not grow costlier with the size. 
+		 */
+		private static final int SEARCH_WINDOW = 4096;
+		
+		private int[] base = new int[1024];
+		private int[] check = new int[1024];
+		private int[] links = new int[1024];
+		private final BitSet used = new BitSet();
+		private int capacity = 1, firstFree = 1, states = 1;
+		
+		
+		DoubleArrayTrie build( TrieNode root, int words ) {
+			Arrays.fill( check, -1 );
+			used.set( 0 );
+			
+			TrieNode[] queue = new TrieNode[64];
+			int[] queueStates = new int[64];
+			queue[0] = root;
+			int head = 0, tail = 1;
+			byte[] letters = new byte[MAX_EDGES];
+			TrieNode[] children = new TrieNode[MAX_EDGES];
+			
+			while ( head < tail ) {
+				TrieNode node = queue[head];
+				int state = queueStates[head];
+				queue[head++] = null;
+				
+				int count = 0;
+				for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+					TrieNode child = node.getChildAt( slot );
+					if ( child == null ) continue;
+					letters[count] = child.getLetter();
+					children[count++] = child;
+				}
+				
+				int nodeBase = count == 0 ? 0 : place( state, letters, count );
+				base[state] = nodeBase | ( node.isWord() ? FINAL_FLAG : 0 );
+				if ( count == 0 ) continue;
+				
+				links[state] |= ( letters[0] & 0xFF ) << 8;
+				for ( int i = 0; i < count; i++ ) {
+					int child = nodeBase + letters[i];
+					links[child] = i + 1 < count ? letters[i + 1] & 0xFF : 0;
+					
+					if ( tail == queue.length ) {
+						queue = Arrays.copyOf( queue, tail * 2 );
+						queueStates = Arrays.copyOf( queueStates, tail * 2 );
+					}
+					queue[tail] = children[i];
+					queueStates[tail++] = child;
+				}
+				states += count;
+			}
+			
+			ByteBuffer slots = ByteBuffer.allocateDirect( Math.multiplyExact( capacity, SLOT_SIZE ) )
+					.order( ByteOrder.nativeOrder() );
+			for ( int slot = 0; slot < capacity; slot++ ) {
+				slots.putInt( slot * SLOT_SIZE, base[slot] );
+				slots.putInt( slot * SLOT_SIZE + CHECK, check[slot] );
+				slots.putInt( slot * SLOT_SIZE + LINKS, links[slot] );
+			}
+			return new DoubleArrayTrie( slots, capacity, states, words );
+		}
+		
+		
+		/* Finds the lowest base at which the slots of all the given letters are free, and takes them. */
+		private int place( int state, byte[] letters, int count ) {
+			int first = letters[0];
+			int from = count == 1 ? firstFree : Math.max( firstFree, capacity - SEARCH_WINDOW );
+			int position = used.nextClearBit( Math.max( from, first ) );
+			
+			search:
+			while ( true ) {
+				int candidate = position - first;
+				for ( int i = 1; i < count; i++ ) {
+					if ( used.get( candidate + letters[i] ) ) {
+						position = used.nextClearBit( position + 1 );
+						continue search;
+					}
+				}
+				
+				int end = candidate + letters[count - 1] + 1;
+				if ( end > base.length ) grow( end );
+				if ( end > capacity ) capacity = end;
+				for ( int i = 0; i < count; i++ ) {
+					used.set( candidate + letters[i] );
+					check[candidate + letters[i]] = state;
+				}
+				firstFree = used.nextClearBit( firstFree );
+				return candidate;
+			}
+		}
+		
+		
+		private void grow( int minimum ) {
+			int length = Math.max( minimum, base.length * 2 );
+			int previous = check.length;
+			base = Arrays.copyOf( base, length );
+			check = Arrays.copyOf( check, length );
+			links = Arrays.copyOf( links, length );
+			Arrays.fill( check, previous, length, -1 );
+		}
+		
+	}
+
+}
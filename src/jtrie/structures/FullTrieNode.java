@@ -17,11 +17,17 @@
 package jtrie.structures;
 
 /**
+ * A node of the Trie which ends a word. The node carries the frequency (or any other 
+ * weight) of its word, which ranks the results of {@link Trie#topK(CharSequence, int, int)}.
+ * 
  * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
  *
  */
 public class FullTrieNode extends TrieNode {
 	
+	private long frequency;
+	
+	
 	/**
 	 * @param letter
 	 */
@@ -45,5 +51,23 @@ public class FullTrieNode extends TrieNode {
 	public boolean isWord() {
 		return true;
 	}
+	
+	
+	/**
+	 * @return the frequency of the word of this node.
+	 */
+	public long getFrequency() {
+		return frequency;
+	}
+	
+	
+	/**
+	 * Adds the given weight to the frequency of the word, saturating at Long.MAX_VALUE.
+	 * @param weight
+	 */
+	void addFrequency( long weight ) {
+		long sum = frequency + weight;
+		frequency = sum < 0 ? Long.MAX_VALUE : sum;
+	}
 
 }
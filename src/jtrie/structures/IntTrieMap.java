@@ -0,0 +1,171 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * A map from words to int values, as word identifiers or counts, which keeps the keys 
+ * in the nodes of a Trie and the values in an int array, so no value is ever boxed. 
+ * See {@link AbstractTrieMap} for the handling of keys. The methods which return a 
+ * value return the missing value of the map for keys it does not hold.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class IntTrieMap extends AbstractTrieMap {
+	
+	private int[] values = new int[16];
+	private final int missingValue;
+	
+	
+	/**
+	 * Creates a map whose missing value is 0.
+	 */
+	public IntTrieMap() {
+		this( 0 );
+	}
+	
+	
+	/**
+	 * @param missingValue the value returned for keys which the map does not hold
+	 */
+	public IntTrieMap( int missingValue ) {
+		this.missingValue = missingValue;
+	}
+	
+	
+	/**
+	 * @return the value returned for keys which the map does not hold.
+	 */
+	public int getMissingValue() {
+		return missingValue;
+	}
+	
+	
+	/**
+	 * Associates the given value with the given key.
+	 * @param key
+	 * @param value
+	 * @return the previous value of the key, or the missing value.
+	 * @throws IllegalArgumentException if the key is empty or contains an invalid character.
+	 */
+	public int put( CharSequence key, int value ) {
+		int slot = add( key );
+		if ( slot < 0 ) {
+			values[-slot - 1] = value;
+			return missingValue;
+		}
+		int previous = values[slot];
+		values[slot] = value;
+		return previous;
+	}
+	
+	
+	/**
+	 * @param key
+	 * @return the value of the given key, or the missing value.
+	 */
+	public int get( CharSequence key ) {
+		int slot = find( key );
+		return slot < 0 ? missingValue : values[slot];
+	}
+	
+	
+	/**
+	 * @param key
+	 * @param defaultValue
+	 * @return the value of the given key, or defaultValue if the map does not hold it.
+	 */
+	public int getOrDefault( CharSequence key, int defaultValue ) {
+		int slot = find( key );
+		return slot < 0 ? defaultValue : values[slot];
+	}
+	
+	
+	/**
+	 * Removes the given key.
+	 * @param key
+	 * @return the value of the key, or the missing value.
+	 */
+	public int remove( CharSequence key ) {
+		int slot = removeKey( key );
+		return slot < 0 ? missingValue : values[slot];
+	}
+	
+	
+	/**
+	 * Adds the given delta to the value of the given key, which starts from 0 if the 
+	 * map does not hold the key.
+	 * @param key
+	 * @param delta
+	 * @return the new value of the key.
+	 * @throws IllegalArgumentException if the key is empty or contains an invalid character.
+	 */
+	public int increment( CharSequence key, int delta ) {
+		int slot = add( key );
+		if ( slot < 0 ) return values[-slot - 1] = delta;
+		return values[slot] += delta;
+	}
+	
+	
+	/**
+	 * Returns the value of the given key, computing and storing it first if the map 
+	 * does not hold the key.
+	 * @param key
+	 * @param mappingFunction computes the value from the key
+	 * @return the current or computed value.
+	 */
+	public int computeIfAbsent( CharSequence key, ToIntFunction<? super String> mappingFunction ) {
+		int slot = find( key );
+		if ( slot >= 0 ) return values[slot];
+		
+		int value = mappingFunction.applyAsInt( key.toString() );
+		put( key, value );
+		return value;
+	}
+	
+	
+	/**
+	 * Calls the given action for every key which starts with the given prefix, in the 
+	 * order of their letter codes.
+	 * @param prefix
+	 * @param action
+	 */
+	public void forEachWithPrefix( CharSequence prefix, ObjIntConsumer<? super String> action ) {
+		Cursor cursor = cursor( prefix );
+		while ( cursor.next() ) {
+			action.accept( cursor.key(), values[cursor.slot()] );
+		}
+	}
+	
+	
+	@Override
+	void ensureCapacity( int capacity ) {
+		if ( values.length < capacity ) values = Arrays.copyOf( values, Math.max( capacity, values.length * 2 ) );
+	}
+	
+	
+	@Override
+	void clearValues( int slots ) {
+	}
+
+}
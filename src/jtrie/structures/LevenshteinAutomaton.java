@@ -0,0 +1,321 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+
+/**
+ * A deterministic Levenshtein automaton which accepts exactly the words whose 
+ * Levenshtein Distance from a query is at most a given distance. The states are 
+ * the rows of the Levenshtein Distance matrix with every value above the distance 
+ * capped, and letters which do not occur in the query all share one transition, 
+ * so the whole automaton is built once from the query and walking it is a table 
+ * lookup per letter.
+ * <p>
+ * An automaton is immutable and can be used by any number of threads at the same time.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class LevenshteinAutomaton {
+	
+	/** The state returned by {@link #step(int, byte)} when no word can be accepted any more. */
+	public static final int DEAD = -1;
+	
+	private final int maxDistance;
+	private final int classes;
+	
+	/* The class of every letter code, 0 for the letters which do not occur in the query. */
+	private final byte[] letterClasses;
+	
+	/* transitions[state * classes + class] is the next state or DEAD. */
+	private final int[] transitions;
+	
+	/* The distance of every state from the query, maxDistance + 1 if it is not accepting. */
+	private final int[] distances;
+	
+	
+	/**
+	 * Builds the automaton for the given query.
+	 * @param word the letter codes of the query, as given by {@link Trie#code(char)}
+	 * @param maxDistance the maximum Levenshtein Distance of the accepted words
+	 */
+	public LevenshteinAutomaton( byte[] word, int maxDistance ) {
+		if ( maxDistance < 0 ) throw new IllegalArgumentException( "Negative distance: " + maxDistance );
+		
+		this.maxDistance = maxDistance;
+		
+		/* Every distinct letter of the query gets its own class. */
+		letterClasses = new byte[128];
+		byte[] classLetters = new byte[word.length + 1];
+		int classCount = 1;
+		for ( byte letter : word ) {
+			if ( letter > 0 && letterClasses[letter] == 0 ) {
+				letterClasses[letter] = (byte) classCount;
+				classLetters[classCount++] = letter;
+			}
+		}
+		classes = classCount;
+		
+		int size = word.length + 1;
+		int cap = maxDistance + 1;
+		int[] startRow = new int[size];
+		for ( int i = 0; i < size; i++ ) {
+			startRow[i] = Math.min( i, cap );
+		}
+		
+		ArrayList<int[]> rows = new ArrayList<int[]>();
+		HashMap<Row, Integer> ids = new HashMap<Row, Integer>();
+		rows.add( startRow );
+		ids.put( new Row( startRow ), 0 );
+		
+		int[] table = new int[16 * classes];
+		for ( int state = 0; state < rows.size(); state++ ) {
+			int[] row = rows.get( state );
+			if ( ( state + 1 ) * classes > table.length ) {
+				table = Arrays.copyOf( table, table.length * 2 );
+			}
+			
+			for ( int letterClass = 0; letterClass < classes; letterClass++ ) {
+				int[] next = step( row, word, classLetters[letterClass], letterClass != 0, cap );
+				int target = DEAD;
+				if ( next != null ) {
+					Row key = new Row( next );
+					Integer id = ids.get( key );
+					if ( id == null ) {
+						id = rows.size();
+						rows.add( next );
+						ids.put( key, id );
+					}
+					target = id;
+				}
+				table[state * classes + letterClass] = target;
+			}
+		}
+		
+		transitions = Arrays.copyOf( table, rows.size() * classes );
+		distances = new int[rows.size()];
+		for ( int state = 0; state < distances.length; state++ ) {
+			distances[state] = rows.get( state )[size - 1];
+		}
+	}
+	
+	
+	/**
+	 * Builds the automaton for the given query.
+	 * @param word the query, invalid characters match no letter
+	 * @param maxDistance the maximum Levenshtein Distance of the accepted words
+	 * @return the automaton.
+	 */
+	public static LevenshteinAutomaton forWord( CharSequence word, int maxDistance ) {
+		return new LevenshteinAutomaton( Trie.encode( word ), maxDistance );
+	}
+	
+	
+	/*
+	 * Computes the row which follows the given one on a letter of the given class, 
+	 * or null if every value of the row is above the distance.
+	 */
+	private static int[] step( int[] row, byte[] word, byte letter, boolean inQuery, int cap ) {
+		int[] next = new int[row.length];
+		next[0] = Math.min( row[0] + 1, cap );
+		int minimumElement = next[0];
+		
+		for ( int i = 1; i < row.length; i++ ) {
+			int value = row[i - 1] + ( inQuery && word[i - 1] == letter ? 0 : 1 );
+			if ( row[i] + 1 < value ) value = row[i] + 1;
+			if ( next[i - 1] + 1 < value ) value = next[i - 1] + 1;
+			next[i] = Math.min( value, cap );
+			
+			if ( next[i] < minimumElement ) minimumElement = next[i];
+		}
+		
+		return minimumElement < cap ? next : null;
+	}
+	
+	
+	/**
+	 * @return the initial state.
+	 */
+	public int getStart() {
+		return 0;
+	}
+	
+	
+	/**
+	 * Returns the state reached from the given state with the given letter.
+	 * @param state a state of this automaton
+	 * @param letter a letter code
+	 * @return the next state, or {@link #DEAD} if no word with this prefix is accepted.
+	 */
+	public int step( int state, byte letter ) {
+		return transitions[state * classes + letterClasses[letter]];
+	}
+	
+	
+	/**
+	 * @param state
+	 * @return true if the words leading to this state are within the distance.
+	 */
+	public boolean isAccepting( int state ) {
+		return distances[state] <= maxDistance;
+	}
+	
+	
+	/**
+	 * @param state
+	 * @return the Levenshtein Distance of the words leading to this state, 
+	 * or the maximum distance + 1 if they are not accepted.
+	 */
+	public int getDistance( int state ) {
+		return distances[state];
+	}
+	
+	
+	/**
+	 * @return the number of states of this automaton.
+	 */
+	public int getStateCount() {
+		return distances.length;
+	}
+	
+	
+	/**
+	 * @return the maximum Levenshtein Distance of the accepted words.
+	 */
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+	
+	
+	/**
+	 * Collects the letter codes of the words below the given node accepted by this automaton.
+	 * @param root
+	 * @return the accepted words.
+	 */
+	ArrayList<byte[]> match( TrieNode root ) {
+		ArrayList<byte[]> matches = new ArrayList<byte[]>();
+		if ( isAccepting( 0 ) && root.isWord() ) matches.add( new byte[0] );
+		match( root, 0, new byte[16], 0, matches );
+		return matches;
+	}
+	
+	
+	private byte[] match( TrieNode node, int state, byte[] prefix, int depth, ArrayList<byte[]> matches ) {
+		if ( depth == prefix.length ) prefix = Arrays.copyOf( prefix, depth * 2 );
+		
+		for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+			TrieNode child = node.getChildAt( slot );
+			if ( child == null ) continue;
+			
+			byte letter = child.getLetter();
+			int next = transitions[state * classes + letterClasses[letter]];
+			if ( next == DEAD ) continue;
+			
+			prefix[depth] = letter;
+			if ( child.isWord() && distances[next] <= maxDistance ) {
+				matches.add( Arrays.copyOf( prefix, depth + 1 ) );
+			}
+			prefix = match( child, next, prefix, depth + 1, matches );
+		}
+		return prefix;
+	}
+	
+	
+	/**
+	 * Collects the letter codes of the words of the given graph accepted by this automaton.
+	 * @param graph
+	 * @return the accepted words.
+	 */
+	ArrayList<byte[]> match( WordGraph graph ) {
+		GraphWalk walk = new GraphWalk( graph );
+		int root = graph.getRoot();
+		if ( isAccepting( 0 ) && graph.isFinal( root ) ) walk.matches.add( new byte[0] );
+		walk.match( root, 0, 0 );
+		return walk.matches;
+	}
+	
+	
+	/* The per depth buffers of a walk over a WordGraph. */
+	private final class GraphWalk {
+		
+		private final WordGraph graph;
+		private final ArrayList<byte[]> matches = new ArrayList<byte[]>();
+		private byte[] prefix = new byte[16];
+		private byte[][] letters = new byte[16][];
+		private int[][] targets = new int[16][];
+		
+		GraphWalk( WordGraph graph ) {
+			this.graph = graph;
+		}
+		
+		void match( int node, int state, int depth ) {
+			if ( depth == prefix.length ) {
+				prefix = Arrays.copyOf( prefix, depth * 2 );
+				letters = Arrays.copyOf( letters, depth * 2 );
+				targets = Arrays.copyOf( targets, depth * 2 );
+			}
+			if ( letters[depth] == null ) {
+				letters[depth] = new byte[WordGraph.MAX_EDGES];
+				targets[depth] = new int[WordGraph.MAX_EDGES];
+			}
+			
+			byte[] edgeLetters = letters[depth];
+			int[] edgeTargets = targets[depth];
+			int edges = graph.getEdges( node, edgeLetters, edgeTargets );
+			
+			for ( int edge = 0; edge < edges; edge++ ) {
+				int next = transitions[state * classes + letterClasses[edgeLetters[edge]]];
+				if ( next == DEAD ) continue;
+				
+				prefix[depth] = edgeLetters[edge];
+				if ( distances[next] <= maxDistance && graph.isFinal( edgeTargets[edge] ) ) {
+					matches.add( Arrays.copyOf( prefix, depth + 1 ) );
+				}
+				match( edgeTargets[edge], next, depth + 1 );
+			}
+		}
+	}
+	
+	
+	/* Hash key over the values of a row. */
+	private static final class Row {
+		
+		private final int[] values;
+		private final int hash;
+		
+		Row( int[] values ) {
+			this.values = values;
+			this.hash = Arrays.hashCode( values );
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals( Object other ) {
+			return other instanceof Row && Arrays.equals( values, ( (Row) other ).values );
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+/**
+ * The outcome of a bulk load: how many words were inserted, how many were already 
+ * stored and how many were rejected because of invalid characters.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class LoadResult {
+	
+	private final long inserted, duplicates, rejected;
+	
+	
+	/**
+	 * @param inserted
+	 * @param duplicates
+	 * @param rejected
+	 */
+	public LoadResult( long inserted, long duplicates, long rejected ) {
+		this.inserted = inserted;
+		this.duplicates = duplicates;
+		this.rejected = rejected;
+	}
+	
+	
+	/**
+	 * @return the number of words which were added.
+	 */
+	public long getInserted() {
+		return inserted;
+	}
+	
+	
+	/**
+	 * @return the number of words which were already stored.
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+	
+	
+	/**
+	 * @return the number of words which contained invalid characters.
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+	
+	
+	/**
+	 * @return the number of words read.
+	 */
+	public long getTotal() {
+		return inserted + duplicates + rejected;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "inserted: " + inserted + ", duplicates: " + duplicates + ", rejected: " + rejected;
+	}
+
+}
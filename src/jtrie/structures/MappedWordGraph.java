@@ -0,0 +1,112 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * A set of words answered straight from a memory mapped {@link TrieFile}. No 
+ * nodes are built on the heap: every state and edge is read in place, so opening 
+ * is immediate and processes which map the same file share its pages.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class MappedWordGraph extends WordGraph {
+	
+	private final ByteBuffer buffer;
+	private final int states, edges, words;
+	private final int lettersOffset, targetsOffset;
+	
+	
+	/**
+	 * @param buffer the whole file, in little endian order
+	 * @param states
+	 * @param edges
+	 * @param words
+	 */
+	MappedWordGraph( ByteBuffer buffer, int states, int edges, int words ) {
+		this.buffer = buffer;
+		this.states = states;
+		this.edges = edges;
+		this.words = words;
+		this.lettersOffset = TrieFile.HEADER_SIZE + 4 * ( states + 1 );
+		this.targetsOffset = lettersOffset + ( ( edges + 3 ) & ~3 );
+	}
+	
+	
+	@Override
+	public int getRoot() {
+		return 0;
+	}
+	
+	
+	@Override
+	public boolean isFinal( int state ) {
+		return ( buffer.getInt( TrieFile.HEADER_SIZE + 4 * state ) & TrieFile.FINAL_FLAG ) != 0;
+	}
+	
+	
+	@Override
+	public int getChild( int state, byte letter ) {
+		int first = buffer.getInt( TrieFile.HEADER_SIZE + 4 * state ) & ~TrieFile.FINAL_FLAG;
+		int end = buffer.getInt( TrieFile.HEADER_SIZE + 4 * state + 4 ) & ~TrieFile.FINAL_FLAG;
+		for ( int edge = first; edge < end; edge++ ) {
+			byte key = buffer.get( lettersOffset + edge );
+			if ( key == letter ) return buffer.getInt( targetsOffset + 4 * edge );
+			if ( key > letter ) break;
+		}
+		return NONE;
+	}
+	
+	
+	@Override
+	public int getEdges( int state, byte[] letters, int[] targets ) {
+		int first = buffer.getInt( TrieFile.HEADER_SIZE + 4 * state ) & ~TrieFile.FINAL_FLAG;
+		int end = buffer.getInt( TrieFile.HEADER_SIZE + 4 * state + 4 ) & ~TrieFile.FINAL_FLAG;
+		for ( int edge = first; edge < end; edge++ ) {
+			letters[edge - first] = buffer.get( lettersOffset + edge );
+			targets[edge - first] = buffer.getInt( targetsOffset + 4 * edge );
+		}
+		return end - first;
+	}
+	
+	
+	@Override
+	public int size() {
+		return words;
+	}
+	
+	
+	/**
+	 * @return the number of states of the automaton.
+	 */
+	public int getStateCount() {
+		return states;
+	}
+	
+	
+	/**
+	 * @return the number of edges of the automaton.
+	 */
+	public int getEdgeCount() {
+		return edges;
+	}
+
+}
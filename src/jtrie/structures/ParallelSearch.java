@@ -0,0 +1,164 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Fuzzy search over the subtrees of the first two levels of a Trie as fork/join tasks. 
+ * Every task has its own {@link SearchContext}; the best distance is shared through an 
+ * AtomicInteger so that the tasks prune each other's subtrees. The contexts are merged 
+ * in traversal order, which gives the same result as the sequential search.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class ParallelSearch {
+	
+	/** Tries with fewer words are searched sequentially. */
+	static final int MIN_WORDS = 10000;
+	
+	/** Shorter words are searched sequentially. */
+	static final int MIN_WORD_LENGTH = 3;
+	
+	
+	private ParallelSearch() {
+	}
+	
+	
+	/**
+	 * @param root
+	 * @param word
+	 * @param maxDistance
+	 * @param pool
+	 * @param alphabet the alphabet of the words of the Trie
+	 * @return the merged result of all the tasks.
+	 */
+	static SearchResult run( TrieNode root, byte[] word, int maxDistance, ForkJoinPool pool, Alphabet alphabet ) {
+		AtomicInteger sharedMinimum = new AtomicInteger( Integer.MAX_VALUE );
+		List<SearchContext> contexts = pool.invoke( new RootTask( root, word, maxDistance, sharedMinimum ) );
+		
+		int minLevDist = Integer.MAX_VALUE;
+		byte[] closestWord = null;
+		ArrayList<byte[]> matches = new ArrayList<byte[]>();
+		long rowsComputed = 0, subtreesPruned = 0;
+		for ( SearchContext context : contexts ) {
+			rowsComputed += context.getRowsComputed();
+			subtreesPruned += context.getSubtreesPruned();
+			if ( context.getMinLevDist() < minLevDist ) {
+				minLevDist = context.getMinLevDist();
+				closestWord = context.getClosestWord();
+			}
+			matches.addAll( context.getMatches() );
+		}
+		
+		return new SearchResult( minLevDist, closestWord, matches, rowsComputed, subtreesPruned, alphabet );
+	}
+	
+	
+	/* Forks one task for every child of the root. */
+	private static final class RootTask extends RecursiveTask< List<SearchContext> > {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final TrieNode root;
+		private final byte[] word;
+		private final int maxDistance;
+		private final AtomicInteger sharedMinimum;
+		
+		RootTask( TrieNode root, byte[] word, int maxDistance, AtomicInteger sharedMinimum ) {
+			this.root = root;
+			this.word = word;
+			this.maxDistance = maxDistance;
+			this.sharedMinimum = sharedMinimum;
+		}
+		
+		@Override
+		protected List<SearchContext> compute() {
+			List<SearchContext> contexts = new ArrayList<SearchContext>();
+			if ( root.isWord() ) {
+				SearchContext context = new SearchContext( word, maxDistance, true, sharedMinimum );
+				context.run( new FullTrieNode( (byte) 0 ) );
+				contexts.add( context );
+			}
+			
+			List<ChildTask> tasks = new ArrayList<ChildTask>();
+			for ( int slot = 0, slots = root.getChildSlots(); slot < slots; slot++ ) {
+				TrieNode child = root.getChildAt( slot );
+				if ( child != null ) tasks.add( new ChildTask( child, null, this ) );
+			}
+			invokeAll( tasks );
+			
+			for ( ChildTask task : tasks ) {
+				contexts.addAll( task.join() );
+			}
+			return contexts;
+		}
+	}
+	
+	
+	/* 
+	 * With no second node, visits a child of the root and forks one task for every 
+	 * one of its children; otherwise walks the subtree of the second node.
+	 */
+	private static final class ChildTask extends RecursiveTask< List<SearchContext> > {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final TrieNode first, second;
+		private final RootTask search;
+		
+		ChildTask( TrieNode first, TrieNode second, RootTask search ) {
+			this.first = first;
+			this.second = second;
+			this.search = search;
+		}
+		
+		@Override
+		protected List<SearchContext> compute() {
+			List<SearchContext> contexts = new ArrayList<SearchContext>();
+			SearchContext context = new SearchContext( search.word, search.maxDistance, true, search.sharedMinimum );
+			contexts.add( context );
+			
+			if ( second != null ) {
+				context.run( first, second );
+				return contexts;
+			}
+			
+			if ( !context.visit( first ) ) return contexts;
+			
+			List<ChildTask> tasks = new ArrayList<ChildTask>();
+			for ( int slot = 0, slots = first.getChildSlots(); slot < slots; slot++ ) {
+				TrieNode child = first.getChildAt( slot );
+				if ( child != null ) tasks.add( new ChildTask( first, child, search ) );
+			}
+			invokeAll( tasks );
+			
+			for ( ChildTask task : tasks ) {
+				contexts.addAll( task.join() );
+			}
+			return contexts;
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A node of a RadixTrie. The node is reached by an edge which holds the letter codes 
+ * of a whole chain of single child nodes of a Trie, its label, whose first letter is 
+ * the key of the node in its parent. The children are kept sorted by that letter.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class RadixNode {
+	
+	private static final byte[] NO_KEYS = new byte[0];
+	private static final RadixNode[] NO_CHILDREN = new RadixNode[0];
+	
+	private byte[] label;
+	private boolean word;
+	
+	private byte[] keys = NO_KEYS;
+	private RadixNode[] children = NO_CHILDREN;
+	private int childCount;
+	
+	
+	/**
+	 * @param label the letters of the edge leading to the node, empty for the root only
+	 * @param word whether the node ends a word
+	 */
+	RadixNode( byte[] label, boolean word ) {
+		this.label = label;
+		this.word = word;
+	}
+	
+	
+	/**
+	 * @return the letters of the edge leading to this node.
+	 */
+	byte[] getLabel() {
+		return label;
+	}
+	
+	
+	boolean isWord() {
+		return word;
+	}
+	
+	
+	void setWord( boolean word ) {
+		this.word = word;
+	}
+	
+	
+	int getChildCount() {
+		return childCount;
+	}
+	
+	
+	/**
+	 * @param index an index below {@link #getChildCount()}
+	 * @return the child of the given index, in the order of the first letters of their labels.
+	 */
+	RadixNode getChildAt( int index ) {
+		return children[index];
+	}
+	
+	
+	/**
+	 * @param letter
+	 * @return the child whose label starts with the given letter, or null.
+	 */
+	RadixNode getChild( byte letter ) {
+		int index = indexOf( letter );
+		return index >= 0 ? children[index] : null;
+	}
+	
+	
+	/**
+	 * Adds a child, whose label must not start with the same letter as the label of another child.
+	 * @param child
+	 */
+	void addChild( RadixNode child ) {
+		int index = -indexOf( child.label[0] ) - 1;
+		if ( childCount == children.length ) {
+			int capacity = Math.max( 2, childCount * 2 );
+			keys = Arrays.copyOf( keys, capacity );
+			children = Arrays.copyOf( children, capacity );
+		}
+		System.arraycopy( keys, index, keys, index + 1, childCount - index );
+		System.arraycopy( children, index, children, index + 1, childCount - index );
+		keys[index] = child.label[0];
+		children[index] = child;
+		childCount++;
+	}
+	
+	
+	/**
+	 * Removes the child whose label starts with the given letter.
+	 * @param letter
+	 */
+	void removeChild( byte letter ) {
+		int index = indexOf( letter );
+		if ( index < 0 ) return;
+		childCount--;
+		System.arraycopy( keys, index + 1, keys, index, childCount - index );
+		System.arraycopy( children, index + 1, children, index, childCount - index );
+		children[childCount] = null;
+	}
+	
+	
+	/**
+	 * Cuts the label after its first length letters. The rest of the label becomes 
+	 * the label of a new single child, which takes over the word flag and the children.
+	 * @param length the number of letters kept, at least 1 and less than the length of the label
+	 */
+	void split( int length ) {
+		RadixNode tail = new RadixNode( Arrays.copyOfRange( label, length, label.length ), word );
+		tail.keys = keys;
+		tail.children = children;
+		tail.childCount = childCount;
+		
+		label = Arrays.copyOf( label, length );
+		word = false;
+		keys = new byte[] { tail.label[0] };
+		children = new RadixNode[] { tail };
+		childCount = 1;
+	}
+	
+	
+	/**
+	 * Joins the single child of this node into it. This node must not end a word.
+	 */
+	void mergeChild() {
+		RadixNode child = children[0];
+		byte[] joined = Arrays.copyOf( label, label.length + child.label.length );
+		System.arraycopy( child.label, 0, joined, label.length, child.label.length );
+		
+		label = joined;
+		word = child.word;
+		keys = child.keys;
+		children = child.children;
+		childCount = child.childCount;
+	}
+	
+	
+	private int indexOf( byte letter ) {
+		int low = 0, high = childCount - 1;
+		while ( low <= high ) {
+			int middle = ( low + high ) >>> 1;
+			byte key = keys[middle];
+			if ( key < letter ) low = middle + 1;
+			else if ( key > letter ) high = middle - 1;
+			else return middle;
+		}
+		return -low - 1;
+	}
+
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * A Trie whose chains of single child nodes are collapsed into a single edge holding 
+ * the letter codes of the whole chain. Long words which share no prefix with other words 
+ * take one node instead of one node per letter, and a lookup follows one reference 
+ * per edge instead of one per letter. Edges are split when a word leaves them halfway 
+ * and merged again when a deletion leaves a node with a single child.
+ * <p>
+ * The fuzzy search computes a row of the Levenshtein Distance matrix for every letter 
+ * of every edge label it follows, so it finds the same words as the one of the Trie.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class RadixTrie {
+	
+	private final RadixNode root = new RadixNode( new byte[0], false );
+	private int size;
+	private int nodeCount = 1;
+	
+	
+	/**
+	 * Inserts the given word. Words with invalid characters are rejected.
+	 * @param word
+	 * @return true if the word was added, false if it was already stored or could not be inserted.
+	 */
+	public boolean insert( CharSequence word ) {
+		byte[] letters = Trie.encode( word );
+		if ( letters.length == 0 ) return false;
+		for ( byte letter : letters ) {
+			if ( letter == 0 ) return false;
+		}
+		return insert( letters );
+	}
+	
+	
+	/**
+	 * Inserts all the given words.
+	 * @param words
+	 * @return the number of words added.
+	 */
+	public int insertAll( Iterable<? extends CharSequence> words ) {
+		int added = 0;
+		for ( CharSequence word : words ) {
+			if ( insert( word ) ) added++;
+		}
+		return added;
+	}
+	
+	
+	private boolean insert( byte[] word ) {
+		RadixNode node = root;
+		int index = 0;
+		
+		while ( index < word.length ) {
+			RadixNode child = node.getChild( word[index] );
+			if ( child == null ) {
+				node.addChild( new RadixNode( Arrays.copyOfRange( word, index, word.length ), true ) );
+				nodeCount++;
+				size++;
+				return true;
+			}
+			
+			byte[] label = child.getLabel();
+			int common = 1;
+			while ( common < label.length && index + common < word.length && label[common] == word[index + common] ) {
+				common++;
+			}
+			
+			/* The word leaves the edge halfway, or ends in it. */
+			if ( common < label.length ) {
+				child.split( common );
+				nodeCount++;
+			}
+			node = child;
+			index += common;
+		}
+		
+		if ( node.isWord() ) return false;
+		node.setWord( true );
+		size++;
+		return true;
+	}
+	
+	
+	/**
+	 * Deletes the given word. The node of the word is removed if it has no children 
+	 * and merged with its child if it has one, and so is its parent when the removal 
+	 * leaves it with a single child.
+	 * @param word
+	 * @return true if the word was stored and has been deleted.
+	 */
+	public boolean delete( CharSequence word ) {
+		byte[] letters = Trie.encode( word );
+		RadixNode parent = null, node = root;
+		
+		int index = 0;
+		while ( index < letters.length ) {
+			RadixNode child = node.getChild( letters[index] );
+			if ( child == null || !matches( child.getLabel(), letters, index ) ) return false;
+			index += child.getLabel().length;
+			parent = node;
+			node = child;
+		}
+		
+		if ( !node.isWord() || node == root ) return false;
+		node.setWord( false );
+		size--;
+		
+		if ( node.getChildCount() == 0 ) {
+			parent.removeChild( node.getLabel()[0] );
+			nodeCount--;
+			if ( parent != root && !parent.isWord() && parent.getChildCount() == 1 ) {
+				parent.mergeChild();
+				nodeCount--;
+			}
+		}
+		else if ( node.getChildCount() == 1 ) {
+			node.mergeChild();
+			nodeCount--;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Checks whether the given word is stored in the Trie.
+	 * @param word
+	 * @return true if the word is stored.
+	 */
+	public boolean contains( CharSequence word ) {
+		RadixNode node = root;
+		int index = 0, length = word.length();
+		
+		while ( index < length ) {
+			byte letter = Trie.code( word.charAt( index ) );
+			if ( letter == 0 ) return false;
+			node = node.getChild( letter );
+			if ( node == null ) return false;
+			
+			byte[] label = node.getLabel();
+			if ( length - index < label.length ) return false;
+			for ( int i = 1; i < label.length; i++ ) {
+				if ( Trie.code( word.charAt( index + i ) ) != label[i] ) return false;
+			}
+			index += label.length;
+		}
+		return node.isWord();
+	}
+	
+	
+	/**
+	 * Checks whether the word in the given range of the array is stored in the Trie.
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return true if the word is stored.
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		RadixNode node = root;
+		int index = offset, end = offset + length;
+		
+		while ( index < end ) {
+			byte letter = Trie.code( word[index] );
+			if ( letter == 0 ) return false;
+			node = node.getChild( letter );
+			if ( node == null ) return false;
+			
+			byte[] label = node.getLabel();
+			if ( end - index < label.length ) return false;
+			for ( int i = 1; i < label.length; i++ ) {
+				if ( Trie.code( word[index + i] ) != label[i] ) return false;
+			}
+			index += label.length;
+		}
+		return node.isWord();
+	}
+	
+	
+	/**
+	 * Checks whether the given encoded word is stored in the Trie.
+	 * @param word the letter codes of the word
+	 * @return true if the word is stored.
+	 */
+	public boolean contains( byte[] word ) {
+		RadixNode node = root;
+		int index = 0;
+		
+		while ( index < word.length ) {
+			node = node.getChild( word[index] );
+			if ( node == null || !matches( node.getLabel(), word, index ) ) return false;
+			index += node.getLabel().length;
+		}
+		return node.isWord();
+	}
+	
+	
+	/* Checks whether the whole label appears in the word at the given index. */
+	private static boolean matches( byte[] label, byte[] word, int index ) {
+		if ( word.length - index < label.length ) return false;
+		for ( int i = 0; i < label.length; i++ ) {
+			if ( word[index + i] != label[i] ) return false;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Returns all the words stored in the Trie which start with the given prefix, ordered by letter code.
+	 * @param prefix
+	 * @return the words, in capitals.
+	 */
+	public ArrayList<String> wordsWithPrefix( CharSequence prefix ) {
+		ArrayList<String> words = new ArrayList<String>();
+		byte[] codes = Trie.encode( prefix );
+		
+		/* The prefix may end inside the label of the last edge, whose rest is then appended. */
+		RadixNode node = root;
+		int index = 0, rest = 0;
+		while ( index < codes.length ) {
+			node = node.getChild( codes[index] );
+			if ( node == null ) return words;
+			
+			byte[] label = node.getLabel();
+			int i = 0;
+			for ( ; i < label.length && index < codes.length; i++, index++ ) {
+				if ( label[i] != codes[index] ) return words;
+			}
+			rest = label.length - i;
+		}
+		
+		byte[] word = Arrays.copyOf( codes, codes.length + rest + 16 );
+		System.arraycopy( node.getLabel(), node.getLabel().length - rest, word, codes.length, rest );
+		collect( node, word, codes.length + rest, words );
+		return words;
+	}
+	
+	
+	private static byte[] collect( RadixNode node, byte[] word, int length, ArrayList<String> words ) {
+		if ( node.isWord() ) words.add( Trie.decode( word, 0, length ) );
+		
+		for ( int i = 0, children = node.getChildCount(); i < children; i++ ) {
+			byte[] label = node.getChildAt( i ).getLabel();
+			if ( length + label.length > word.length ) {
+				word = Arrays.copyOf( word, Math.max( word.length * 2, length + label.length ) );
+			}
+			System.arraycopy( label, 0, word, length, label.length );
+			word = collect( node.getChildAt( i ), word, length + label.length, words );
+		}
+		return word;
+	}
+	
+	
+	/**
+	 * Computes the minimum Levenshtein Distance between the given word and the words 
+	 * stored in the Trie, together with the closest word and all the words within maxDistance.
+	 * @param word the letter codes of the word, as given by {@link Trie#code(char)}
+	 * @param maxDistance
+	 * @return the result of the search.
+	 */
+	public SearchResult computeClosestWords( byte[] word, int maxDistance ) {
+		SearchContext context = new SearchContext( word, maxDistance, true );
+		context.run( root );
+		
+		return new SearchResult( context );
+	}
+	
+	
+	/**
+	 * Returns all the words stored in the Trie whose Levenshtein Distance from the given 
+	 * word is at most maxDistance. Characters which are not valid letters never match.
+	 * @param word
+	 * @param maxDistance
+	 * @return the words, in capitals.
+	 */
+	public ArrayList<String> search( CharSequence word, int maxDistance ) {
+		SearchContext context = new SearchContext( Trie.encode( word ), maxDistance, false );
+		context.run( root );
+		
+		ArrayList<byte[]> matches = context.getMatches();
+		ArrayList<String> words = new ArrayList<String>( matches.size() );
+		for ( byte[] match : matches ) {
+			words.add( Trie.decode( match, 0, match.length ) );
+		}
+		return words;
+	}
+	
+	
+	/**
+	 * @return the number of words stored in the Trie.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * @return the number of nodes, the root included. A Trie holding the same words 
+	 * has one node for every distinct prefix instead.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+}
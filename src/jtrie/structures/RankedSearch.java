@@ -0,0 +1,186 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ * A best-first fuzzy search which keeps only the k best words, ranked by distance and 
+ * then by frequency. The branches of the Trie are expanded in the order of the 
+ * minimum element of their Levenshtein Distance row, which no word below the branch 
+ * can beat. Once k words are held, a branch whose minimum is above the distance 
+ * of the k-th word cannot improve the result, and neither can any branch after it.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class RankedSearch {
+	
+	/** Distance first, then the highest frequency, then the word for a stable order. */
+	static final Comparator<Suggestion> ORDER = new Comparator<Suggestion>() {
+		public int compare( Suggestion a, Suggestion b ) {
+			if ( a.getDistance() != b.getDistance() ) return a.getDistance() < b.getDistance() ? -1 : 1;
+			if ( a.getFrequency() != b.getFrequency() ) return a.getFrequency() > b.getFrequency() ? -1 : 1;
+			return a.getWord().compareTo( b.getWord() );
+		}
+	};
+	
+	/* The lowest bound first; among equal bounds the deepest branch, which reaches its words sooner. */
+	private static final Comparator<Branch> FRONTIER = new Comparator<Branch>() {
+		public int compare( Branch a, Branch b ) {
+			if ( a.bound != b.bound ) return a.bound < b.bound ? -1 : 1;
+			return b.depth - a.depth;
+		}
+	};
+	
+	
+	/**
+	 * A node waiting to be expanded, with the row of its prefix. The letters of the 
+	 * prefix are read back through the parents.
+	 */
+	private static final class Branch {
+		
+		final TrieNode node;
+		final Branch parent;
+		final int depth, bound;
+		final int[] row;
+		
+		Branch( TrieNode node, Branch parent, int depth, int[] row, int bound ) {
+			this.node = node;
+			this.parent = parent;
+			this.depth = depth;
+			this.row = row;
+			this.bound = bound;
+		}
+		
+	}
+	
+	
+	private RankedSearch() {
+	}
+	
+	
+	/**
+	 * Runs the search below the given root.
+	 * @param root
+	 * @param query the letter codes of the query
+	 * @param k the maximum number of suggestions
+	 * @param maxDistance
+	 * @param alphabet the alphabet of the words of the Trie
+	 * @return the suggestions, best first.
+	 */
+	static List<Suggestion> run( TrieNode root, byte[] query, int k, int maxDistance, Alphabet alphabet ) {
+		if ( k <= 0 || maxDistance < 0 ) return new ArrayList<Suggestion>( 0 );
+		
+		/* The worst of the best k words found so far is at the head. */
+		PriorityQueue<Suggestion> best = new PriorityQueue<Suggestion>( 
+				Math.min( k, 64 ) + 1, Collections.reverseOrder( ORDER ) );
+		PriorityQueue<Branch> frontier = new PriorityQueue<Branch>( 64, FRONTIER );
+		
+		int[] firstRow = new int[query.length + 1];
+		for ( int i = 0; i < firstRow.length; i++ ) {
+			firstRow[i] = i;
+		}
+		frontier.add( new Branch( root, null, 0, firstRow, 0 ) );
+		
+		Branch branch;
+		while ( ( branch = frontier.poll() ) != null ) {
+			if ( best.size() == k && branch.bound > best.peek().getDistance() ) break;
+			
+			TrieNode node = branch.node;
+			for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+				TrieNode child = node.getChildAt( slot );
+				if ( child == null ) continue;
+				
+				int[] row = new int[firstRow.length];
+				int bound = computeRow( query, branch.row, row, child.getLetter() );
+				if ( bound > maxDistance ) continue;
+				
+				Branch next = new Branch( child, branch, branch.depth + 1, row, bound );
+				int distance = row[query.length];
+				if ( child.isWord() && distance <= maxDistance ) {
+					offer( best, k, next, distance, child.getFrequency(), alphabet );
+				}
+				
+				if ( child.getChildCount() > 0 
+						&& ( best.size() < k || bound <= best.peek().getDistance() ) ) {
+					frontier.add( next );
+				}
+			}
+		}
+		
+		ArrayList<Suggestion> suggestions = new ArrayList<Suggestion>( best );
+		Collections.sort( suggestions, ORDER );
+		return suggestions;
+	}
+	
+	
+	private static void offer( PriorityQueue<Suggestion> best, int k, Branch branch, int distance, long frequency, 
+			Alphabet alphabet ) {
+		if ( best.size() == k ) {
+			Suggestion worst = best.peek();
+			if ( distance > worst.getDistance() 
+					|| ( distance == worst.getDistance() && frequency < worst.getFrequency() ) ) return;
+		}
+		
+		Suggestion suggestion = new Suggestion( wordOf( branch, alphabet ), distance, frequency );
+		if ( best.size() < k ) {
+			best.add( suggestion );
+		}
+		else if ( ORDER.compare( suggestion, best.peek() ) < 0 ) {
+			best.poll();
+			best.add( suggestion );
+		}
+	}
+	
+	
+	private static String wordOf( Branch branch, Alphabet alphabet ) {
+		byte[] word = new byte[branch.depth];
+		for ( Branch current = branch; current.depth > 0; current = current.parent ) {
+			word[current.depth - 1] = current.node.getLetter();
+		}
+		return alphabet.decode( word, 0, word.length );
+	}
+	
+	
+	/*
+	 * Computes the row of the given letter from the row of its parent and returns its minimum element.
+	 */
+	private static int computeRow( byte[] query, int[] previousRow, int[] currentRow, byte letter ) {
+		currentRow[0] = previousRow[0] + 1;
+		int minimumElement = currentRow[0];
+		
+		for ( int i = 1; i < currentRow.length; i++ ) {
+			int insertCost = currentRow[i - 1] + 1;
+			int deleteCost = previousRow[i] + 1;
+			int replaceCost = query[i - 1] == letter ? previousRow[i - 1] : previousRow[i - 1] + 1;
+			
+			int cost = insertCost < deleteCost ? insertCost : deleteCost;
+			currentRow[i] = replaceCost < cost ? replaceCost : cost;
+			if ( currentRow[i] < minimumElement ) minimumElement = currentRow[i];
+		}
+		
+		return minimumElement;
+	}
+
+}
@@ -0,0 +1,548 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The state of a single fuzzy search over a Trie or a WordGraph: the query, the rows of the 
+ * Levenshtein Distance matrix (one per depth), the current prefix and the words 
+ * found so far. A new context is used for every query, so any number of queries 
+ * can run at the same time on a Trie that is not being modified.
+ * <p>
+ * In bit-parallel mode (queries of at most 64 letters) a row is not stored cell by cell: 
+ * it is kept as the two bit vectors of the Myers / Hyyrö algorithm, holding the positions 
+ * where the distance goes up or down by one from the cell above. A row is then advanced 
+ * with a few word-level operations on the match mask of the letter, and its minimum and 
+ * last cell are summed up four cells at a time from a table. The rows are the same as the 
+ * scalar ones, so the same subtrees are pruned and the same words are found.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class SearchContext {
+	
+	private final byte[] query;
+	private final int searchSize, limit;
+	private final boolean trackMinimum;
+	
+	private byte[] prefix;
+	private int[][] rows;
+	
+	/* The bit-parallel rows: match masks per letter, up and down vectors and last cell per depth. */
+	private final long[] matchMasks;
+	private long[] up, down;
+	private int[] distances;
+	
+	/* Per depth edge buffers, only used when walking a WordGraph. */
+	private byte[][] edgeLetters;
+	private int[][] edgeTargets;
+	
+	/* The best distance of all the tasks of a parallel search, null for a sequential one. */
+	private final AtomicInteger sharedMinimum;
+	
+	private int minLevDist = Integer.MAX_VALUE;
+	private byte[] closestWord;
+	private final ArrayList<byte[]> matches = new ArrayList<byte[]>();
+	private long rowsComputed, subtreesPruned;
+	
+	/* The number of cells of a row summed up by a single lookup in STEPS. */
+	private static final int STEP = 4;
+	
+	/* 
+	 * For the up and down bits of four consecutive cells, the change of the distance 
+	 * over them (high nibble) and the lowest point reached on the way (low nibble), 
+	 * both offset by four.
+	 */
+	private static final byte[] STEPS = new byte[1 << 2 * STEP];
+	
+	static {
+		for ( int up = 0; up < 1 << STEP; up++ ) {
+			for ( int down = 0; down < 1 << STEP; down++ ) {
+				int value = 0, lowest = 0;
+				for ( int bit = 0; bit < STEP; bit++ ) {
+					if ( ( up >>> bit & 1 ) != 0 ) value++;
+					else if ( ( down >>> bit & 1 ) != 0 ) value--;
+					if ( value < lowest ) lowest = value;
+				}
+				STEPS[up << STEP | down] = (byte) ( ( value + STEP ) << STEP | ( lowest + STEP ) );
+			}
+		}
+	}
+	
+	
+	/**
+	 * @param query the letter codes of the query
+	 * @param limit the words within this distance are collected
+	 * @param trackMinimum whether the minimum distance and the closest word are computed too
+	 */
+	SearchContext( byte[] query, int limit, boolean trackMinimum ) {
+		this( query, limit, trackMinimum, null );
+	}
+	
+	
+	/**
+	 * @param query the letter codes of the query
+	 * @param limit the words within this distance are collected
+	 * @param trackMinimum whether the minimum distance and the closest word are computed too
+	 * @param sharedMinimum the best distance shared by the tasks of a parallel search
+	 */
+	SearchContext( byte[] query, int limit, boolean trackMinimum, AtomicInteger sharedMinimum ) {
+		this( query, limit, trackMinimum, sharedMinimum, false );
+	}
+	
+	
+	/**
+	 * @param query the letter codes of the query
+	 * @param limit the words within this distance are collected
+	 * @param trackMinimum whether the minimum distance and the closest word are computed too
+	 * @param bitParallel whether the rows are computed with bit vectors, ignored for 
+	 * queries which are empty or longer than 64 letters
+	 */
+	SearchContext( byte[] query, int limit, boolean trackMinimum, boolean bitParallel ) {
+		this( query, limit, trackMinimum, null, bitParallel );
+	}
+	
+	
+	private SearchContext( byte[] query, int limit, boolean trackMinimum, AtomicInteger sharedMinimum, 
+			boolean bitParallel ) {
+		this.sharedMinimum = sharedMinimum;
+		this.query = query;
+		this.limit = limit;
+		this.trackMinimum = trackMinimum;
+		this.searchSize = query.length + 1;
+		this.prefix = new byte[16];
+		
+		if ( bitParallel && supportsBitParallel( query.length ) ) {
+			this.matchMasks = new long[WordGraph.MAX_EDGES];
+			for ( int i = 0; i < query.length; i++ ) {
+				matchMasks[query[i] & 0x7F] |= 1L << i;
+			}
+			this.up = new long[16];
+			this.down = new long[16];
+			this.distances = new int[16];
+		}
+		else {
+			this.matchMasks = null;
+			this.rows = new int[16][searchSize];
+		}
+	}
+	
+	
+	/**
+	 * @param length the number of letters of a query
+	 * @return true if the rows of the query fit in the bit vectors of the bit-parallel mode.
+	 */
+	static boolean supportsBitParallel( int length ) {
+		return length > 0 && length <= Long.SIZE;
+	}
+	
+	
+	/**
+	 * Walks the Trie below the given root once, collecting the words within the limit.
+	 * @param root
+	 */
+	void run( TrieNode root ) {
+		initialize();
+        
+        if ( root.isWord() ) {
+        	record( 0, distance( 0 ) );
+        }
+        
+        for ( int slot = 0, slots = root.getChildSlots(); slot < slots; slot++ ) {
+        	TrieNode child = root.getChildAt( slot );
+        	if ( child != null ) traverseTrie( child, 1 );
+        }
+	}
+	
+	
+	/**
+	 * Walks the given graph once from its root, collecting the words within the limit.
+	 * @param graph
+	 */
+	void run( WordGraph graph ) {
+		initialize();
+		
+		int root = graph.getRoot();
+		if ( graph.isFinal( root ) ) {
+			record( 0, distance( 0 ) );
+		}
+		
+		edgeLetters = new byte[prefix.length][];
+		edgeTargets = new int[prefix.length][];
+		traverseGraph( graph, root, 1 );
+	}
+	
+	
+	/**
+	 * Walks the radix tree below the given root once, collecting the words within the limit.
+	 * @param root
+	 */
+	void run( RadixNode root ) {
+		initialize();
+		
+		if ( root.isWord() ) {
+			record( 0, distance( 0 ) );
+		}
+		
+		for ( int i = 0, children = root.getChildCount(); i < children; i++ ) {
+			traverseRadix( root.getChildAt( i ), 1 );
+		}
+	}
+	
+	
+	/**
+	 * Visits a child of the root, recording it if it is a word.
+	 * @param first
+	 * @return true if the subtrees of the node may hold words of interest.
+	 */
+	boolean visit( TrieNode first ) {
+		initialize();
+		int minimumElement = computeRow( first.getLetter(), 1 );
+		if ( first.isWord() ) {
+			record( 1, distance( 1 ) );
+		}
+		if ( descend( minimumElement ) ) return true;
+		subtreesPruned++;
+		return false;
+	}
+	
+	
+	/**
+	 * Walks the subtree of the given grandchild of the root.
+	 * @param first a child of the root
+	 * @param second a child of first
+	 */
+	void run( TrieNode first, TrieNode second ) {
+		initialize();
+		computeRow( first.getLetter(), 1 );
+		traverseTrie( second, 2 );
+	}
+	
+	
+	private void initialize() {
+		if ( matchMasks != null ) {
+			up[0] = query.length == Long.SIZE ? -1L : ( 1L << query.length ) - 1;
+			down[0] = 0;
+			distances[0] = query.length;
+			return;
+		}
+		
+        int[] firstRow = rows[0];
+        for ( int i = 0; i < searchSize; i++ ) {
+        	firstRow[i] = i;
+        }
+	}
+	
+	
+    /**
+     * Recursive helper function. Traverses theTrie in search of the minimum Levenshtein Distance.
+     * The row of the Levenshtein Distance matrix for the given node is computed from the 
+     * row of its parent, both taken from the per depth buffers.
+     * 
+     * @param TrieNode node - the current TrieNode
+     * @param int depth - the depth of the node, which is the length of the current prefix
+     */
+    private void traverseTrie( TrieNode node, int depth ) {
+
+    	if ( depth == prefix.length ) grow();
+    	
+    	int minimumElement = computeRow( node.getLetter(), depth );
+
+        if ( node.isWord() ) {
+        	record( depth, distance( depth ) );
+        }
+        
+        /* No word below this node can get closer than the minimum element of its row. */
+        if ( descend( minimumElement ) ) {
+            for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+            	TrieNode child = node.getChildAt( slot );
+            	if ( child != null ) traverseTrie( child, depth + 1 );
+            }
+        }
+        else subtreesPruned++;
+    }
+    
+    
+    /*
+     * Same as traverseTrie for a node of a radix tree: a row is computed for every letter 
+     * of the label of its edge, and the walk stops at the first row past the limit, 
+     * exactly where traverseTrie would stop on the chain of nodes of the label.
+     */
+    private void traverseRadix( RadixNode node, int depth ) {
+    	
+    	byte[] label = node.getLabel();
+    	int last = depth + label.length - 1;
+    	while ( last >= prefix.length ) grow();
+    	
+    	for ( int i = 0; depth < last; i++, depth++ ) {
+    		if ( !descend( computeRow( label[i], depth ) ) ) {
+    			subtreesPruned++;
+    			return;
+    		}
+    	}
+    	
+    	int minimumElement = computeRow( label[label.length - 1], last );
+    	
+    	if ( node.isWord() ) {
+    		record( last, distance( last ) );
+    	}
+    	
+    	if ( descend( minimumElement ) ) {
+    		for ( int i = 0, children = node.getChildCount(); i < children; i++ ) {
+    			traverseRadix( node.getChildAt( i ), last + 1 );
+    		}
+    	}
+    	else subtreesPruned++;
+    }
+    
+    
+    /*
+     * Same as traverseTrie for the edges leaving the given state of a graph. 
+     * The edges are read into per depth buffers.
+     */
+    private void traverseGraph( WordGraph graph, int state, int depth ) {
+    	
+    	if ( depth == prefix.length ) grow();
+    	
+    	byte[] letters = edgeLetters[depth];
+    	int[] targets = edgeTargets[depth];
+    	if ( letters == null ) {
+    		letters = edgeLetters[depth] = new byte[WordGraph.MAX_EDGES];
+    		targets = edgeTargets[depth] = new int[WordGraph.MAX_EDGES];
+    	}
+    	
+    	int edges = graph.getEdges( state, letters, targets );
+    	for ( int edge = 0; edge < edges; edge++ ) {
+    		int target = targets[edge];
+    		int minimumElement = computeRow( letters[edge], depth );
+    		
+    		if ( graph.isFinal( target ) ) {
+    			record( depth, distance( depth ) );
+    		}
+    		
+    		if ( descend( minimumElement ) ) {
+    			traverseGraph( graph, target, depth + 1 );
+    		}
+    		else subtreesPruned++;
+    	}
+    }
+    
+    
+    /*
+     * Computes the row of the given depth for the given letter from the row above it 
+     * and returns its minimum element.
+     */
+    private int computeRow( byte letter, int depth ) {
+        prefix[depth - 1] = letter;
+        rowsComputed++;
+        if ( matchMasks != null ) return computeBits( letter, depth );
+        
+    	byte[] word = query;
+    	int[] previousRow = rows[depth - 1];
+        int[] currentRow = rows[depth];
+        currentRow[0] = previousRow[0] + 1;
+
+        int minimumElement = currentRow[0];
+        int insertCost, deleteCost, replaceCost;
+
+        for (int i = 1; i < searchSize; i++) {
+            insertCost = currentRow[i - 1] + 1;
+            deleteCost = previousRow[i] + 1;
+            replaceCost = word[i - 1] == letter ? previousRow[i - 1] : previousRow[i - 1] + 1;
+
+            currentRow[i] = minimum( insertCost, deleteCost, replaceCost );
+
+            if ( currentRow[i] < minimumElement ) {
+                minimumElement = currentRow[i];
+            }
+        }
+        
+        return minimumElement;
+    }
+    
+    
+    /*
+     * Same as computeRow with the bit vectors of the row above. The first cell of every row 
+     * is its depth, so the shifted horizontal vector always has its lowest bit set. 
+     */
+    private int computeBits( byte letter, int depth ) {
+    	long match = matchMasks[letter & 0x7F];
+    	long previousUp = up[depth - 1], previousDown = down[depth - 1];
+    	
+    	long vertical = match | previousDown;
+    	long horizontal = ( ( ( match & previousUp ) + previousUp ) ^ previousUp ) | match;
+    	long horizontalUp = previousDown | ~( horizontal | previousUp );
+    	long horizontalDown = previousUp & horizontal;
+    	
+    	horizontalUp = horizontalUp << 1 | 1;
+    	horizontalDown <<= 1;
+    	
+    	long currentUp = ( horizontalDown | ~( vertical | horizontalUp ) ) & up[0];
+    	long currentDown = horizontalUp & vertical;
+    	up[depth] = currentUp;
+    	down[depth] = currentDown;
+    	
+    	int value = depth, minimumElement = depth;
+    	for ( int shift = 0; shift < query.length; shift += STEP ) {
+    		int step = STEPS[(int) ( currentUp >>> shift & 0xF ) << STEP | (int) ( currentDown >>> shift & 0xF )] & 0xFF;
+    		int lowest = value + ( step & 0xF ) - STEP;
+    		if ( lowest < minimumElement ) minimumElement = lowest;
+    		value += ( step >>> STEP ) - STEP;
+    	}
+    	distances[depth] = value;
+    	
+    	return minimumElement;
+    }
+    
+    
+    /* The last cell of the row of the given depth, the distance of the current prefix. */
+    private int distance( int depth ) {
+    	return matchMasks != null ? distances[depth] : rows[depth][searchSize - 1];
+    }
+    
+    
+    /* 
+     * No word below a node can get closer than the minimum element of its row. 
+     * Subtrees which may tie the best distance of other tasks are still searched, 
+     * so the closest word is the same one the sequential search finds.
+     */
+    private boolean descend( int minimumElement ) {
+    	if ( minimumElement <= limit ) return true;
+    	if ( !trackMinimum || minimumElement >= minLevDist ) return false;
+    	return sharedMinimum == null || minimumElement <= sharedMinimum.get();
+    }
+    
+    
+    private void record( int depth, int distance ) {
+    	
+    	/* Checks if the distance is less than the minimum distance!!! */
+    	if ( trackMinimum && distance < minLevDist ) {
+    		minLevDist = distance;
+    		closestWord = copyOf( prefix, depth );
+    		
+    		if ( sharedMinimum != null ) {
+    			int shared = sharedMinimum.get();
+    			while ( distance < shared && !sharedMinimum.compareAndSet( shared, distance ) ) {
+    				shared = sharedMinimum.get();
+    			}
+    		}
+    	}
+    	
+    	/* Checks if the distance is within the limit */
+    	if ( distance <= limit ) {
+    		matches.add( copyOf( prefix, depth ) );
+    	}
+    }
+    
+    
+    private void grow() {
+    	int depth = prefix.length;
+    	if ( matchMasks != null ) {
+    		up = Arrays.copyOf( up, depth * 2 );
+    		down = Arrays.copyOf( down, depth * 2 );
+    		distances = Arrays.copyOf( distances, depth * 2 );
+    	}
+    	else {
+    		int[][] newRows = new int[depth * 2][];
+    		System.arraycopy( rows, 0, newRows, 0, depth );
+    		for ( int i = depth; i < newRows.length; i++ ) {
+    			newRows[i] = new int[searchSize];
+    		}
+    		rows = newRows;
+    	}
+    	prefix = copyOf( prefix, depth * 2 );
+    	
+    	if ( edgeLetters != null ) {
+    		byte[][] newLetters = new byte[depth * 2][];
+    		int[][] newTargets = new int[depth * 2][];
+    		System.arraycopy( edgeLetters, 0, newLetters, 0, depth );
+    		System.arraycopy( edgeTargets, 0, newTargets, 0, depth );
+    		edgeLetters = newLetters;
+    		edgeTargets = newTargets;
+    	}
+    }
+    
+    
+    private static byte[] copyOf( byte[] array, int length ) {
+    	byte[] copy = new byte[length];
+    	System.arraycopy( array, 0, copy, 0, Math.min( array.length, length ) );
+    	return copy;
+    }
+	
+	
+    /**
+     * Returns the minimum of the three numbers given as arguments.
+     * @param insertCost
+     * @param deleteCost
+     * @param replaceCost
+     * @return
+     */
+	private static int minimum( int insertCost, int deleteCost, int replaceCost ) {
+		int min = insertCost;
+		if( deleteCost < min ) min = deleteCost;
+		if( replaceCost < min ) min = replaceCost;
+		
+		return min;
+	}
+	
+	
+	/**
+	 * @return the minimum distance found, or Integer.MAX_VALUE if the minimum was not tracked 
+	 * or the Trie is empty.
+	 */
+	int getMinLevDist() {
+		return minLevDist;
+	}
+	
+	
+	/**
+	 * @return the letter codes of the closest word, or null.
+	 */
+	byte[] getClosestWord() {
+		return closestWord;
+	}
+	
+	
+	/**
+	 * @return the number of rows computed, one for every node visited.
+	 */
+	long getRowsComputed() {
+		return rowsComputed;
+	}
+	
+	
+	/**
+	 * @return the number of visited nodes whose subtrees were not searched.
+	 */
+	long getSubtreesPruned() {
+		return subtreesPruned;
+	}
+	
+	
+	/**
+	 * @return the letter codes of the words found within the limit.
+	 */
+	ArrayList<byte[]> getMatches() {
+		return matches;
+	}
+
+}
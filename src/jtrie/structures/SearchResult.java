@@ -0,0 +1,146 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The outcome of a fuzzy search over a Trie: the minimum Levenshtein Distance from 
+ * the query, the closest word and the words found within the requested distance.
+ * Results are immutable and belong to the call that produced them.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class SearchResult {
+	
+	private final int minLevDist;
+	private final byte[] closestWord;
+	private final List<byte[]> closestWords;
+	private final long rowsComputed, subtreesPruned;
+	private final Alphabet alphabet;
+	
+	
+	/**
+	 * @param minLevDist
+	 * @param closestWord
+	 * @param closestWords
+	 * @param rowsComputed
+	 * @param subtreesPruned
+	 */
+	SearchResult( int minLevDist, byte[] closestWord, List<byte[]> closestWords, long rowsComputed, long subtreesPruned ) {
+		this( minLevDist, closestWord, closestWords, rowsComputed, subtreesPruned, Alphabet.DEFAULT );
+	}
+	
+	
+	/**
+	 * @param minLevDist
+	 * @param closestWord
+	 * @param closestWords
+	 * @param rowsComputed
+	 * @param subtreesPruned
+	 * @param alphabet the alphabet which decodes the words
+	 */
+	SearchResult( int minLevDist, byte[] closestWord, List<byte[]> closestWords, long rowsComputed, long subtreesPruned, 
+			Alphabet alphabet ) {
+		this.alphabet = alphabet;
+		this.minLevDist = minLevDist;
+		this.closestWord = closestWord;
+		this.closestWords = Collections.unmodifiableList( closestWords );
+		this.rowsComputed = rowsComputed;
+		this.subtreesPruned = subtreesPruned;
+	}
+	
+	
+	/**
+	 * @param context a finished search
+	 */
+	SearchResult( SearchContext context ) {
+		this( context, Alphabet.DEFAULT );
+	}
+	
+	
+	/**
+	 * @param context a finished search
+	 * @param alphabet the alphabet which decodes the words
+	 */
+	SearchResult( SearchContext context, Alphabet alphabet ) {
+		this( context.getMinLevDist(), context.getClosestWord(), context.getMatches(), 
+				context.getRowsComputed(), context.getSubtreesPruned(), alphabet );
+	}
+	
+	
+	/**
+	 * @return the minimum Levenshtein Distance between the query and the words of the Trie, 
+	 * or Integer.MAX_VALUE if the Trie is empty.
+	 */
+	public int getMinLevDist() {
+		return minLevDist;
+	}
+	
+	
+	/**
+	 * @return the closest word in capitals, or null if the Trie is empty.
+	 */
+	public String getClosestWord() {
+		return closestWord == null ? null : alphabet.decode( closestWord, 0, closestWord.length );
+	}
+	
+	
+	/**
+	 * @return the letter codes of the words within the requested distance. The arrays must not be modified.
+	 */
+	public List<byte[]> getClosestCodes() {
+		return closestWords;
+	}
+	
+	
+	/**
+	 * @return the words within the requested distance, in capitals.
+	 */
+	public List<String> getClosestWords() {
+		List<String> words = new ArrayList<String>( closestWords.size() );
+		for ( byte[] word : closestWords ) {
+			words.add( alphabet.decode( word, 0, word.length ) );
+		}
+		return words;
+	}
+
+	
+	
+	/**
+	 * @return the number of rows of the Levenshtein Distance matrix computed by the 
+	 * search, one for every node visited.
+	 */
+	public long getRowsComputed() {
+		return rowsComputed;
+	}
+	
+	
+	/**
+	 * @return the number of visited nodes whose subtrees were not searched, as no word 
+	 * below them could be close enough.
+	 */
+	public long getSubtreesPruned() {
+		return subtreesPruned;
+	}
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+/**
+ * A node of a trie map which ends a key. The node holds the index of the slot of 
+ * the value of its key in the value array of the map.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+final class SlotTrieNode extends TrieNode {
+	
+	private final int slot;
+	
+	
+	/**
+	 * @param letter
+	 * @param slot
+	 */
+	SlotTrieNode( byte letter, int slot ) {
+		super( letter );
+		this.slot = slot;
+	}
+	
+	
+	/**
+	 * @param node
+	 * @param slot
+	 */
+	SlotTrieNode( TrieNode node, int slot ) {
+		super( node );
+		this.slot = slot;
+	}
+	
+	
+	/**
+	 * @return the slot of the value of the key of this node.
+	 */
+	int getSlot() {
+		return slot;
+	}
+	
+	
+	/**
+	 * Returns if this TrieNode contains a word.
+	 * @return true.
+	 */
+	public boolean isWord() {
+		return true;
+	}
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+/**
+ * A word suggested by a ranked fuzzy search, with its Levenshtein Distance from the 
+ * query and its frequency.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class Suggestion {
+	
+	private final String word;
+	private final int distance;
+	private final long frequency;
+	
+	
+	/**
+	 * @param word
+	 * @param distance
+	 * @param frequency
+	 */
+	Suggestion( String word, int distance, long frequency ) {
+		this.word = word;
+		this.distance = distance;
+		this.frequency = frequency;
+	}
+	
+	
+	/**
+	 * @return the word, in capitals.
+	 */
+	public String getWord() {
+		return word;
+	}
+	
+	
+	/**
+	 * @return the Levenshtein Distance between the word and the query.
+	 */
+	public int getDistance() {
+		return distance;
+	}
+	
+	
+	/**
+	 * @return the frequency of the word.
+	 */
+	public long getFrequency() {
+		return frequency;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return word + " (distance " + distance + ", frequency " + frequency + ")";
+	}
+
+}
@@ -0,0 +1,586 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * An index of the words of a dictionary by their delete variants, the strings left 
+ * after deleting up to maxDistance of their letters. Two words are within Levenshtein 
+ * Distance d only if a variant with at most d deletions of one equals a variant with at most 
+ * d deletions of the other. So a query generates its own variants, looks each of them 
+ * up, and verifies the words found with a bounded edit distance. A query costs a few 
+ * dozen hash probes instead of a walk of the Trie, at the price of memory: a word 
+ * of n letters has about n^d / d! variants.
+ * <p>
+ * The variants are not stored, only a 64-bit hash of each, in an open addressing table 
+ * of packed word ids. A variant with a single word keeps its id in the table, the others 
+ * an array of ids. Hash collisions only add candidates, which the verification drops. 
+ * Searches may run concurrently while the index is not modified.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class SymmetricDeleteIndex {
+	
+	private final Alphabet alphabet;
+	private final int maxDistance;
+	
+	/* The words by id, null for an unused id, with the hashes of the words. */
+	private byte[][] words = new byte[64][];
+	private int[] wordHashes = new int[64];
+	private int ids;
+	private int[] freeIds = new int[16];
+	private int freeIdCount;
+	private int size;
+	
+	/* The ids of the words plus one by their hash, 0 for an empty slot. */
+	private int[] wordTable = new int[128];
+	
+	/* The hashes of the variants, 0 for an empty slot, and their words: the id of a single 
+	 * word, or -1 - the index of a posting, whose first element is the number of ids. */
+	private long[] variantKeys = new long[1024];
+	private int[] variantValues = new int[1024];
+	private int variants;
+	
+	private int[][] postings = new int[64][];
+	private int[] freePostings = new int[16];
+	private int freePostingCount, postingCount;
+	
+	
+	/**
+	 * Creates an empty index.
+	 * @param alphabet the alphabet of the words
+	 * @param maxDistance the largest distance the index can answer, at least 0
+	 */
+	public SymmetricDeleteIndex( Alphabet alphabet, int maxDistance ) {
+		if ( maxDistance < 0 ) throw new IllegalArgumentException( "Negative distance: " + maxDistance );
+		this.alphabet = alphabet;
+		this.maxDistance = maxDistance;
+	}
+	
+	
+	/**
+	 * Creates an index of the words of the given Trie, which must not be modified 
+	 * during the call.
+	 * @param trie
+	 * @param maxDistance the largest distance the index can answer, at least 0
+	 */
+	public SymmetricDeleteIndex( Trie trie, int maxDistance ) {
+		this( trie.getAlphabet(), maxDistance );
+		
+		byte[] word = new byte[32];
+		TrieNode[] stack = new TrieNode[32];
+		int[] slots = new int[32];
+		TrieNode root = trie.getRoot();
+		stack[0] = root;
+		int depth = 0;
+		
+		/* Walks the Trie depth first without recursion, word[0 .. depth) being the current path. */
+		while ( depth >= 0 ) {
+			TrieNode node = stack[depth];
+			TrieNode next = null;
+			while ( slots[depth] < node.getChildSlots() && next == null ) {
+				next = node.getChildAt( slots[depth]++ );
+			}
+			if ( next == null ) {
+				slots[depth--] = 0;
+				continue;
+			}
+			
+			if ( depth + 1 == stack.length ) {
+				stack = Arrays.copyOf( stack, stack.length * 2 );
+				slots = Arrays.copyOf( slots, slots.length * 2 );
+				word = Arrays.copyOf( word, word.length * 2 );
+			}
+			word[depth] = next.getLetter();
+			stack[++depth] = next;
+			if ( next.isWord() ) insert( word, depth );
+		}
+	}
+	
+	
+	/**
+	 * Adds the given word to the index.
+	 * @param word
+	 * @return true if the word was added, false if it was already indexed or contains 
+	 * characters outside the alphabet.
+	 */
+	public boolean insert( CharSequence word ) {
+		byte[] codes = alphabet.encode( word );
+		for ( byte code : codes ) {
+			if ( code == 0 ) return false;
+		}
+		return codes.length > 0 && insert( codes, codes.length );
+	}
+	
+	
+	/**
+	 * Adds the given encoded word to the index.
+	 * @param word the letter codes of the word
+	 * @param length the number of letters of the word
+	 * @return true if the word was added, false if it was already indexed.
+	 */
+	public boolean insert( byte[] word, int length ) {
+		long hash = hash( word, length );
+		int slot = findWord( word, length, (int) hash );
+		if ( wordTable[slot] != 0 ) return false;
+		
+		int id = freeIdCount > 0 ? freeIds[--freeIdCount] : ids++;
+		if ( id == words.length ) {
+			words = Arrays.copyOf( words, id * 2 );
+			wordHashes = Arrays.copyOf( wordHashes, id * 2 );
+		}
+		words[id] = Arrays.copyOf( word, length );
+		wordHashes[id] = (int) hash;
+		wordTable[slot] = id + 1;
+		if ( ++size * 4 > wordTable.length * 3 ) rehashWords( wordTable.length * 2 );
+		
+		long[] hashes = variants( word, length, maxDistance );
+		for ( long variant : hashes ) {
+			addVariant( variant, id );
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Removes the given word from the index.
+	 * @param word
+	 * @return true if the word was removed, false if it was not indexed.
+	 */
+	public boolean delete( CharSequence word ) {
+		byte[] codes = alphabet.encode( word );
+		return delete( codes, codes.length );
+	}
+	
+	
+	/**
+	 * Removes the given encoded word from the index.
+	 * @param word the letter codes of the word
+	 * @param length the number of letters of the word
+	 * @return true if the word was removed, false if it was not indexed.
+	 */
+	public boolean delete( byte[] word, int length ) {
+		int slot = findWord( word, length, (int) hash( word, length ) );
+		int id = wordTable[slot] - 1;
+		if ( id < 0 ) return false;
+		
+		long[] hashes = variants( word, length, maxDistance );
+		for ( long variant : hashes ) {
+			removeVariant( variant, id );
+		}
+		
+		removeWord( slot );
+		words[id] = null;
+		if ( freeIdCount == freeIds.length ) freeIds = Arrays.copyOf( freeIds, freeIdCount * 2 );
+		freeIds[freeIdCount++] = id;
+		size--;
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the indexed words within maxDistance of the given word.
+	 * @param word
+	 * @param maxDistance at most the distance of the index
+	 * @return the words, in capitals, or an empty list if the word contains characters 
+	 * outside the alphabet.
+	 */
+	public ArrayList<String> search( CharSequence word, int maxDistance ) {
+		byte[] codes = alphabet.encode( word );
+		for ( byte code : codes ) {
+			if ( code == 0 ) return new ArrayList<String>();
+		}
+		return search( codes, maxDistance );
+	}
+	
+	
+	/**
+	 * Returns the indexed words within maxDistance of the given encoded word.
+	 * @param word the letter codes of the word
+	 * @param maxDistance at most the distance of the index
+	 * @return the words, in capitals.
+	 */
+	public ArrayList<String> search( byte[] word, int maxDistance ) {
+		if ( maxDistance < 0 || maxDistance > this.maxDistance ) {
+			throw new IllegalArgumentException( "The index answers distances up to " + this.maxDistance + ": " + maxDistance );
+		}
+		
+		int length = word.length;
+		int[] candidates = new int[16];
+		int count = 0;
+		for ( long variant : variants( word, length, maxDistance ) ) {
+			int slot = findVariant( variant );
+			if ( variantKeys[slot] == 0 ) continue;
+			
+			int value = variantValues[slot];
+			int[] posting = value >= 0 ? null : postings[-1 - value];
+			int found = posting == null ? 1 : posting[0];
+			if ( count + found > candidates.length ) {
+				candidates = Arrays.copyOf( candidates, Math.max( candidates.length * 2, count + found ) );
+			}
+			if ( posting == null ) candidates[count++] = value;
+			else {
+				System.arraycopy( posting, 1, candidates, count, found );
+				count += found;
+			}
+		}
+		
+		Arrays.sort( candidates, 0, count );
+		ArrayList<String> results = new ArrayList<String>();
+		int[] row = new int[length + 1], previous = new int[length + 1];
+		for ( int i = 0; i < count; i++ ) {
+			int id = candidates[i];
+			if ( i > 0 && id == candidates[i - 1] ) continue;
+			
+			byte[] candidate = words[id];
+			if ( Math.abs( candidate.length - length ) > maxDistance ) continue;
+			if ( distance( word, candidate, maxDistance, row, previous ) <= maxDistance ) {
+				results.add( alphabet.decode( candidate, 0, candidate.length ) );
+			}
+		}
+		return results;
+	}
+	
+	
+	/* The Levenshtein Distance of the words, or limit + 1 as soon as it must exceed the limit. */
+	private static int distance( byte[] a, byte[] b, int limit, int[] row, int[] previous ) {
+		int columns = a.length;
+		for ( int j = 0; j <= columns; j++ ) {
+			previous[j] = j;
+		}
+		
+		for ( int i = 1; i <= b.length; i++ ) {
+			row[0] = i;
+			int minimum = i;
+			byte letter = b[i - 1];
+			for ( int j = 1; j <= columns; j++ ) {
+				int cost = previous[j - 1] + ( a[j - 1] == letter ? 0 : 1 );
+				cost = Math.min( cost, Math.min( previous[j], row[j - 1] ) + 1 );
+				row[j] = cost;
+				if ( cost < minimum ) minimum = cost;
+			}
+			if ( minimum > limit ) return limit + 1;
+			
+			int[] swap = previous;
+			previous = row;
+			row = swap;
+		}
+		return previous[columns];
+	}
+	
+	
+	/* The distinct hashes of the variants of the word with up to the given number of letters deleted. */
+	private static long[] variants( byte[] word, int length, int distance ) {
+		Variants variants = new Variants();
+		generate( Arrays.copyOf( word, length ), length, 0, distance, variants );
+		return variants.count == 1 ? Arrays.copyOf( variants.hashes, 1 ) : sortUnique( variants.hashes, variants.count );
+	}
+	
+	
+	/* Adds the hash of buffer[0 .. length) and of its variants deleting letters from index start 
+	 * on, so every set of deleted positions is generated once. Of a run of equal letters only 
+	 * the first is deleted, as deleting any other one leaves the same string. */
+	private static void generate( byte[] buffer, int length, int start, int deletions, Variants variants ) {
+		variants.add( hash( buffer, length ) );
+		if ( deletions == 0 ) return;
+		
+		for ( int i = start; i < length; i++ ) {
+			if ( i > start && buffer[i] == buffer[i - 1] ) continue;
+			
+			byte deleted = buffer[i];
+			System.arraycopy( buffer, i + 1, buffer, i, length - i - 1 );
+			generate( buffer, length - 1, i, deletions - 1, variants );
+			System.arraycopy( buffer, i, buffer, i + 1, length - i - 1 );
+			buffer[i] = deleted;
+		}
+	}
+	
+	
+	private static long[] sortUnique( long[] hashes, int count ) {
+		Arrays.sort( hashes, 0, count );
+		int unique = 0;
+		for ( int i = 0; i < count; i++ ) {
+			if ( i == 0 || hashes[i] != hashes[i - 1] ) hashes[unique++] = hashes[i];
+		}
+		return Arrays.copyOf( hashes, unique );
+	}
+	
+	
+	/* A 64-bit hash of the letters, never 0. */
+	private static long hash( byte[] word, int length ) {
+		long hash = 0xCBF29CE484222325L ^ length;
+		for ( int i = 0; i < length; i++ ) {
+			hash = ( hash ^ word[i] ) * 0x100000001B3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash == 0 ? 1 : hash;
+	}
+	
+	
+	/* The slot of the word in the word table, or the empty slot where it belongs. */
+	private int findWord( byte[] word, int length, int hash ) {
+		int mask = wordTable.length - 1;
+		int slot = mix( hash ) & mask;
+		while ( true ) {
+			int id = wordTable[slot] - 1;
+			if ( id < 0 ) return slot;
+			if ( wordHashes[id] == hash && equal( words[id], word, length ) ) return slot;
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+	
+	
+	private static boolean equal( byte[] stored, byte[] word, int length ) {
+		if ( stored.length != length ) return false;
+		for ( int i = 0; i < length; i++ ) {
+			if ( stored[i] != word[i] ) return false;
+		}
+		return true;
+	}
+	
+	
+	private static int mix( int hash ) {
+		return hash ^ ( hash >>> 16 );
+	}
+	
+	
+	private void rehashWords( int capacity ) {
+		int[] table = new int[capacity];
+		int mask = capacity - 1;
+		for ( int entry : wordTable ) {
+			if ( entry == 0 ) continue;
+			int slot = mix( wordHashes[entry - 1] ) & mask;
+			while ( table[slot] != 0 ) {
+				slot = ( slot + 1 ) & mask;
+			}
+			table[slot] = entry;
+		}
+		wordTable = table;
+	}
+	
+	
+	/* Empties a slot of the word table, shifting back the entries of the probe sequence after it. */
+	private void removeWord( int slot ) {
+		int mask = wordTable.length - 1;
+		int next = slot;
+		while ( true ) {
+			next = ( next + 1 ) & mask;
+			int entry = wordTable[next];
+			if ( entry == 0 ) break;
+			int home = mix( wordHashes[entry - 1] ) & mask;
+			if ( between( slot, home, next ) ) continue;
+			wordTable[slot] = entry;
+			slot = next;
+		}
+		wordTable[slot] = 0;
+	}
+	
+	
+	/* Whether home lies cyclically in ( slot, next ], so the entry at next must stay after slot. */
+	private static boolean between( int slot, int home, int next ) {
+		return slot <= next ? slot < home && home <= next : slot < home || home <= next;
+	}
+	
+	
+	/* The slot of the variant in the variant table, or the empty slot where it belongs. */
+	private int findVariant( long key ) {
+		int mask = variantKeys.length - 1;
+		int slot = (int) key & mask;
+		while ( variantKeys[slot] != 0 && variantKeys[slot] != key ) {
+			slot = ( slot + 1 ) & mask;
+		}
+		return slot;
+	}
+	
+	
+	private void addVariant( long key, int id ) {
+		int slot = findVariant( key );
+		if ( variantKeys[slot] == 0 ) {
+			variantKeys[slot] = key;
+			variantValues[slot] = id;
+			if ( ++variants * 4 > variantKeys.length * 3 ) rehashVariants( variantKeys.length * 2 );
+			return;
+		}
+		
+		int value = variantValues[slot];
+		if ( value >= 0 ) {
+			int index = freePostingCount > 0 ? freePostings[--freePostingCount] : postingCount++;
+			if ( index == postings.length ) postings = Arrays.copyOf( postings, index * 2 );
+			postings[index] = new int[] { 2, value, id, 0 };
+			variantValues[slot] = -1 - index;
+			return;
+		}
+		
+		int[] posting = postings[-1 - value];
+		int count = posting[0];
+		if ( count + 1 == posting.length ) {
+			posting = Arrays.copyOf( posting, posting.length * 2 );
+			postings[-1 - value] = posting;
+		}
+		posting[++count] = id;
+		posting[0] = count;
+	}
+	
+	
+	private void removeVariant( long key, int id ) {
+		int slot = findVariant( key );
+		if ( variantKeys[slot] == 0 ) return;
+		
+		int value = variantValues[slot];
+		if ( value >= 0 ) {
+			if ( value == id ) removeVariantSlot( slot );
+			return;
+		}
+		
+		int index = -1 - value;
+		int[] posting = postings[index];
+		int count = posting[0];
+		for ( int i = 1; i <= count; i++ ) {
+			if ( posting[i] != id ) continue;
+			posting[i] = posting[count];
+			posting[0] = --count;
+			break;
+		}
+		
+		if ( count == 1 ) {
+			variantValues[slot] = posting[1];
+			postings[index] = null;
+			if ( freePostingCount == freePostings.length ) freePostings = Arrays.copyOf( freePostings, freePostingCount * 2 );
+			freePostings[freePostingCount++] = index;
+		}
+		else if ( count > 4 && count * 4 < posting.length ) {
+			postings[index] = Arrays.copyOf( posting, posting.length / 2 );
+		}
+	}
+	
+	
+	private void removeVariantSlot( int slot ) {
+		int mask = variantKeys.length - 1;
+		int next = slot;
+		while ( true ) {
+			next = ( next + 1 ) & mask;
+			long key = variantKeys[next];
+			if ( key == 0 ) break;
+			if ( between( slot, (int) key & mask, next ) ) continue;
+			variantKeys[slot] = key;
+			variantValues[slot] = variantValues[next];
+			slot = next;
+		}
+		variantKeys[slot] = 0;
+		variantValues[slot] = 0;
+		variants--;
+	}
+	
+	
+	private void rehashVariants( int capacity ) {
+		long[] keys = new long[capacity];
+		int[] values = new int[capacity];
+		int mask = capacity - 1;
+		for ( int i = 0; i < variantKeys.length; i++ ) {
+			long key = variantKeys[i];
+			if ( key == 0 ) continue;
+			int slot = (int) key & mask;
+			while ( keys[slot] != 0 ) {
+				slot = ( slot + 1 ) & mask;
+			}
+			keys[slot] = key;
+			values[slot] = variantValues[i];
+		}
+		variantKeys = keys;
+		variantValues = values;
+	}
+	
+	
+	/**
+	 * @return the number of indexed words.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * @return the largest distance the index can answer.
+	 */
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+	
+	
+	/**
+	 * @return the number of distinct variant hashes of the indexed words.
+	 */
+	public int getVariantCount() {
+		return variants;
+	}
+	
+	
+	/**
+	 * Estimates the heap used by the index, for a 64-bit JVM with compressed references 
+	 * (16 byte array headers, 4 byte references, 8 byte alignment), as {@link TrieFootprint} does.
+	 * @return the estimated bytes of the words, the word table, the variant table and the postings.
+	 */
+	public long getEstimatedBytes() {
+		long bytes = array( 4L * words.length ) + array( 4L * wordHashes.length ) 
+				+ array( 4L * freeIds.length ) + array( 4L * wordTable.length ) 
+				+ array( 8L * variantKeys.length ) + array( 4L * variantValues.length ) 
+				+ array( 4L * postings.length ) + array( 4L * freePostings.length );
+		for ( int id = 0; id < ids; id++ ) {
+			if ( words[id] != null ) bytes += array( words[id].length );
+		}
+		for ( int index = 0; index < postingCount; index++ ) {
+			if ( postings[index] != null ) bytes += array( 4L * postings[index].length );
+		}
+		return bytes;
+	}
+	
+	
+	private static long array( long contents ) {
+		return ( 16 + contents + 7 ) & ~7L;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return String.format( "SymmetricDeleteIndex[words=%d, maxDistance=%d, variants=%d, bytes=%d]", 
+				size, maxDistance, variants, getEstimatedBytes() );
+	}
+	
+	
+	/* A growable array of variant hashes. */
+	private static final class Variants {
+		
+		long[] hashes = new long[16];
+		int count;
+		
+		
+		void add( long hash ) {
+			if ( count == hashes.length ) hashes = Arrays.copyOf( hashes, count * 2 );
+			hashes[count++] = hash;
+		}
+	}
+	
+}
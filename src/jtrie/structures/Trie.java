@@ -17,10 +17,17 @@
 package jtrie.structures;
 
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import jtrie.exceptions.InvalidCharacterException;
 import jtrie.exceptions.InvalidNumberException;
+import jtrie.metrics.TrieMetrics;
+import jtrie.metrics.TrieMetrics.Operation;
 
 
 /**
@@ -30,137 +37,407 @@ import jtrie.exceptions.InvalidNumberException;
 public class Trie {
 
     private final TrieNode root;
-    private int minLevDist, searchSize;
+    private final Alphabet alphabet;
     private int distanceTreshold = 2;
+    private int size;
     
-    private ArrayList<Byte> currentPrefix, closestWord;
-    private ArrayList< ArrayList<Byte> > closestWords;
+    /* The result of the last computeMinimumLevenshteinDistance call, for the legacy getters. */
+    private volatile SearchResult lastResult;
+    
+    /* Null unless metrics have been enabled, which is all the operations check. */
+    private volatile TrieMetrics metrics;
 
     
     /**
-     * 
+     * Creates a Trie of the words of the {@link Alphabet#DEFAULT} alphabet.
      */
     public Trie() {
+    	this( Alphabet.DEFAULT );
+    }
+    
+    
+    /**
+     * Creates a Trie of the words of the given alphabet. Every method of the Trie 
+     * takes and returns the words and the letter codes of this alphabet.
+     * @param alphabet
+     */
+    public Trie( Alphabet alphabet ) {
+    	if ( alphabet == null ) throw new NullPointerException( "alphabet" );
+    	this.alphabet = alphabet;
         root = new TrieNode( (byte) 0 );
-        currentPrefix = new ArrayList<Byte>();
-        closestWords = new ArrayList< ArrayList<Byte> >();
     }
 
     
     /**
-     * 
+     * Inserts the given word. Words with invalid characters are rejected before 
+     * any node is created. Every insertion adds 1 to the frequency of the word.
      * @param word
+     * @return true if the word was added, false if it was already stored or could not be inserted.
      */
-    public void insert( String word ) {
+    public boolean insert( String word ) {
+    	return insert( word, 1 );
+    }
+    
+    
+    /**
+     * Inserts the given word with the given weight, which is added to the frequency 
+     * of the word if it is already stored.
+     * @param word
+     * @param weight a weight of at least 0
+     * @return true if the word was added, false if it was already stored or could not be inserted.
+     */
+    public boolean insert( String word, long weight ) {
+    	
+    	if ( weight < 0 ) throw new IllegalArgumentException( "Negative weight: " + weight );
+    	
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics == null ) return insert( word, weight, null );
+    	
+    	long start = System.nanoTime();
+    	boolean added = insert( word, weight, metrics );
+    	metrics.record( Operation.INSERT, System.nanoTime() - start );
+    	return added;
+    }
+    
+    
+    private boolean insert( String word, long weight, TrieMetrics metrics ) {
 
-    	String upperCaseWord = capitalize( word );
         int length = word.length();
-        TrieNode current = this.root;
-
-        if ( length == 0 ) return;
-       
+        if ( length == 0 ) return false;
+        
+        byte[] letters = new byte[length];
         for ( int index = 0; index < length; index++ ) {
-
-            byte letter;
-			try {
-				letter = charToNumber( upperCaseWord.charAt( index ) );
-			} 
-			catch (InvalidCharacterException e) {
-				System.err.println( "Error: Insert operation of word: " 
-						+ word + " could not be executed." );
-				System.err.println( "An InvalidNumberException was thrown!" );
-				return;
-			}
-			
-            if( letter == 0 ) return;
-            
-            TrieNode child = current.getChild( letter );
-
-            if (child != null) {
-                current = child;
-                if ( index == length - 1 ) {
-            		current = new FullTrieNode( current );
-            	}
-            } 
-            else {
-            	if ( index == length - 1 ) {
-            		current.getChildren().put( letter, new FullTrieNode( letter ) );
-            	}
-            	else {
-            		current.getChildren().put( letter, new TrieNode( letter ) );
-            		current = current.getChild( letter );
-            	}
-            }
-            
+        	letters[index] = alphabet.code( word.charAt( index ) );
+        	if ( letters[index] == 0 ) {
+        		if ( metrics != null ) metrics.recordRejected();
+				return false;
+        	}
         }
+        
+        return insert( letters, length, null, 0, weight );
     }
     
     
     /**
+     * Inserts the given encoded word, starting from path[start] which must be the node 
+     * of its first start letters, or from the root when path is null. When a path is 
+     * given the nodes of the word are stored in it, path[i] being the node of the 
+     * first i letters. The maximum weights of the nodes of the path are updated.
      * 
+     * @param word the letter codes of the word
+     * @param length the number of letters of the word, at least 1
+     * @param path the nodes of a prefix of the word, or null
+     * @param start the length of the prefix in path
+     * @param weight the weight added to the frequency of the word
+     * @return true if the word was added, false if it was already stored.
+     */
+    boolean insert( byte[] word, int length, TrieNode[] path, int start, long weight ) {
+    	
+    	if ( path == null ) {
+    		path = new TrieNode[length + 1];
+    		path[0] = root;
+    		start = 0;
+    	}
+    	else if ( start >= length ) start = length - 1;
+    	TrieNode current = path[start];
+    	
+    	for ( int index = start; index < length - 1; index++ ) {
+    		byte letter = word[index];
+    		TrieNode child = current.getChild( letter );
+    		if ( child == null ) {
+    			child = new TrieNode( letter );
+    			current.setChild( child );
+    		}
+    		current = child;
+    		path[index + 1] = current;
+    	}
+    	
+    	byte letter = word[length - 1];
+    	TrieNode child = current.getChild( letter );
+    	boolean added = true;
+    	if ( child == null ) {
+    		child = new FullTrieNode( letter );
+    		current.setChild( child );
+    	}
+    	else if ( !child.isWord() ) {
+    		child = new FullTrieNode( child );
+    		current.setChild( child );
+    	}
+    	else added = false;
+    	
+    	( (FullTrieNode) child ).addFrequency( weight );
+    	path[length] = child;
+    	if ( added ) size++;
+    	
+    	/* Frequencies only grow on insert, so the ancestors are raised until one is already high enough. */
+    	long frequency = child.getFrequency();
+    	for ( int index = length; index >= 0 && path[index].getMaxWeight() < frequency; index-- ) {
+    		path[index].setMaxWeight( frequency );
+    	}
+    	return added;
+    }
+    
+    
+    /**
+     * Inserts all the given words, reusing the path of the previous word when the 
+     * words share a prefix, as consecutive words of a sorted list do.
+     * @param words
+     * @return the number of inserted, duplicate and rejected words.
+     */
+    public LoadResult insertAll( Iterable<? extends CharSequence> words ) {
+    	return insertAll( words, null );
+    }
+    
+    
+    /**
+     * Inserts all the given words, adding the inserted ones to the given index as well.
+     * @param words
+     * @param index the index of the words of the Trie, or null
+     * @return the number of inserted, duplicate and rejected words.
+     */
+    public LoadResult insertAll( Iterable<? extends CharSequence> words, SymmetricDeleteIndex index ) {
+    	TrieLoader loader = new TrieLoader( this, index );
+    	for ( CharSequence word : words ) {
+    		loader.add( word );
+    	}
+    	return loaded( loader.getResult() );
+    }
+    
+    
+    /**
+     * Inserts the words of the given file, one word per line. The file is decoded 
+     * in chunks and no String is created for the words.
+     * @param path
+     * @param charset
+     * @return the number of inserted, duplicate and rejected words.
+     * @throws IOException
+     */
+    public LoadResult load( Path path, Charset charset ) throws IOException {
+    	return load( path, charset, null );
+    }
+    
+    
+    /**
+     * Inserts the words of the given file, one word per line, adding the inserted ones 
+     * to the given index as well.
+     * @param path
+     * @param charset
+     * @param index the index of the words of the Trie, or null
+     * @return the number of inserted, duplicate and rejected words.
+     * @throws IOException
+     */
+    public LoadResult load( Path path, Charset charset, SymmetricDeleteIndex index ) throws IOException {
+    	TrieLoader loader = new TrieLoader( this, index );
+    	loader.load( path, charset );
+    	return loaded( loader.getResult() );
+    }
+    
+    
+    /* Counts the words of a bulk load, which are not timed one by one. */
+    private LoadResult loaded( LoadResult result ) {
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics != null ) {
+    		metrics.count( Operation.INSERT, result.getInserted() + result.getDuplicates() );
+    		metrics.recordRejected( result.getRejected() );
+    	}
+    	return result;
+    }
+    
+    
+    /**
+     * Deletes the given word, removing the nodes which no longer lead to any word.
      * @param word
+     * @return true if the word was stored and has been deleted.
      */
-    public void delete( String word ) {
+    public boolean delete( String word ) {
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics == null ) return delete( word, null );
+    	
+    	long start = System.nanoTime();
+    	boolean deleted = delete( word, metrics );
+    	metrics.record( Operation.DELETE, System.nanoTime() - start );
+    	return deleted;
+    }
+    
+    
+    private boolean delete( String word, TrieMetrics metrics ) {
 
-    	String upperCaseWord = capitalize( word );
         int length = word.length();
         TrieNode current = this.root;
+        TrieNode[] path = new TrieNode[length + 1];
 
-        if ( length == 0 ) return;
+        if ( length == 0 ) return false;
        
+        path[0] = current;
         for ( int index = 0; index < length; index++ ) {
 
-            byte letter;
-			try {
-				letter = charToNumber( upperCaseWord.charAt( index ) );
-			} 
-			catch ( InvalidCharacterException ice ) {
-				System.err.println( "Error: Delete operation of word: " 
-								+ word + " could not be executed." );
-				System.err.println( "An InvalidCharacterException was thrown!" );
-				return;
+            byte letter = alphabet.code( word.charAt( index ) );
+            if( letter == 0 ) {
+            	if ( metrics != null ) metrics.recordRejected();
+				return false;
 			}
-			
-            if( letter == 0 ) return;
             
             TrieNode child = current.getChild( letter );
 
             if (child != null) current = child;
-            else return;
-          
+            else return false;
             
-            if ( index == length - 1 ) {
-                 if( current.getChildren().size() > 0 ) {
-                	 current = new TrieNode( current );
-                 }
-                 else current = null;
-            }
+            path[index + 1] = current;
+        }
+        
+        if ( !current.isWord() ) return false;
+        size--;
+        
+        /* Unmarks the word and removes the nodes which no longer lead to any word. */
+        int index = length;
+        if ( current.getChildCount() > 0 ) {
+        	path[length] = new TrieNode( current );
+        	path[length - 1].setChild( path[length] );
+        }
+        else {
+        	for ( ; index > 0; index-- ) {
+        		TrieNode node = path[index];
+        		if ( node.getChildCount() > 0 || ( node.isWord() && index != length ) ) break;
+        		path[index - 1].removeChild( node.getLetter() );
+        	}
         }
+        
+        /* Lowers the maximum weights of the remaining nodes of the path, as far as they change. */
+        for ( ; index >= 0; index-- ) {
+        	TrieNode node = path[index];
+        	long maxWeight = node.getFrequency();
+        	for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+        		TrieNode child = node.getChildAt( slot );
+        		if ( child != null && child.getMaxWeight() > maxWeight ) maxWeight = child.getMaxWeight();
+        	}
+        	if ( maxWeight == node.getMaxWeight() && index != length ) break;
+        	node.setMaxWeight( maxWeight );
+        }
+        return true;
     }
     
     
     /**
-     * 
+     * Checks whether the given word is stored in the Trie. Upper-casing and 
+     * the conversion to letter codes are done while walking the nodes, so no 
+     * objects are allocated. Words with invalid characters are simply not contained.
+     * @param word
+     * @return true if the word is stored in the Trie.
      */
-    public boolean contains( String word ) {
+    public boolean contains( CharSequence word ) {
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics == null ) return lookup( word );
+    	
+    	long start = System.nanoTime();
+    	boolean found = lookup( word );
+    	metrics.record( Operation.LOOKUP, System.nanoTime() - start );
+    	return found;
+    }
+    
+    
+    private boolean lookup( CharSequence word ) {
     	int wordLength = word.length();
-    	String UpperCaseWord = capitalize( word );
-    	ArrayList<Byte> byteWord = new ArrayList<Byte>();
-    	
-    	byteWord.add( (byte) 0 );
-    	for( int i = 0 ; i < wordLength; i++ ) {
-    		try {
-				byteWord.add( charToNumber( UpperCaseWord.charAt( i ) ) );
-			} 
-    		catch ( InvalidCharacterException ice ) {
-    			System.err.println( "Error: Contains operation for word: " 
-						+ word + " could not be executed." );
-    			System.err.println( "An InvalidCharacterException was thrown!" );
-    			return false;
-			}
+    	TrieNode node = root;
+    	
+    	for ( int i = 0; i < wordLength; i++ ) {
+    		byte letter = alphabet.code( word.charAt( i ) );
+    		if ( letter == 0 ) return false;
+    		node = node.getChild( letter );
+    		if ( node == null ) return false;
+    	}
+    	
+    	return node.isWord();
+    }
+    
+    
+    /**
+     * Checks whether the word in the given range of the array is stored in the Trie.
+     * @param word
+     * @param offset the index of the first character of the word
+     * @param length the number of characters of the word
+     * @return true if the word is stored in the Trie.
+     */
+    public boolean contains( char[] word, int offset, int length ) {
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics == null ) return lookup( word, offset, length );
+    	
+    	long start = System.nanoTime();
+    	boolean found = lookup( word, offset, length );
+    	metrics.record( Operation.LOOKUP, System.nanoTime() - start );
+    	return found;
+    }
+    
+    
+    private boolean lookup( char[] word, int offset, int length ) {
+    	TrieNode node = root;
+    	
+    	for ( int i = offset, end = offset + length; i < end; i++ ) {
+    		byte letter = alphabet.code( word[i] );
+    		if ( letter == 0 ) return false;
+    		node = node.getChild( letter );
+    		if ( node == null ) return false;
+    	}
+    	
+    	return node.isWord();
+    }
+    
+    
+    /**
+     * Checks whether the given word, already encoded with the {@link #getAlphabet() alphabet} of the Trie, is stored in the Trie.
+     * @param word
+     * @return true if the word is stored in the Trie.
+     */
+    public boolean contains( byte[] word ) {
+    	return contains( word, 0, word.length );
+    }
+    
+    
+    /**
+     * Checks whether the encoded word in the given range of the array is stored in the Trie.
+     * @param word
+     * @param offset the index of the first letter of the word
+     * @param length the number of letters of the word
+     * @return true if the word is stored in the Trie.
+     */
+    public boolean contains( byte[] word, int offset, int length ) {
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics == null ) return lookup( word, offset, length );
+    	
+    	long start = System.nanoTime();
+    	boolean found = lookup( word, offset, length );
+    	metrics.record( Operation.LOOKUP, System.nanoTime() - start );
+    	return found;
+    }
+    
+    
+    private boolean lookup( byte[] word, int offset, int length ) {
+    	TrieNode node = root;
+    	
+    	for ( int i = offset, end = offset + length; i < end; i++ ) {
+    		node = node.getChild( word[i] );
+    		if ( node == null ) return false;
     	}
     	
-    	return contains( byteWord );
+    	return node.isWord();
+    }
+    
+    
+    /**
+     * Returns the frequency of the given word.
+     * @param word
+     * @return the frequency of the word, or 0 if the word is not stored.
+     */
+    public long getFrequency( CharSequence word ) {
+    	TrieNode node = root;
+    	
+    	for ( int i = 0, length = word.length(); i < length; i++ ) {
+    		byte letter = alphabet.code( word.charAt( i ) );
+    		if ( letter == 0 ) return 0;
+    		node = node.getChild( letter );
+    		if ( node == null ) return 0;
+    	}
+    	
+    	return node.getFrequency();
     }
     
     
@@ -188,106 +465,263 @@ public class Trie {
     
     /**
      * Computes the minimum Levenshtein Distance between the given word (represented as an arrayList of bytes ) 
-     * and all the words stored in the Trie. 
+     * and all the words stored in the Trie. The words whose distance is less than the distance 
+     * threshold are kept as the closest words. A leading 0 in the word is ignored.
      * 
      * @param ArrayList<Character> word - The characters of an input word as an ArrayList<Byte>  representation
      * @return int - The minimum Levenshtein Distance between the given word and all the words stored in the Trie.
      */
     public int computeMinimumLevenshteinDistance( ArrayList<Byte> word ) {
 
-        minLevDist = Integer.MAX_VALUE;
-        closestWords = new ArrayList<ArrayList<Byte>>();
-        
-
-        int wordSize = word.size();
-        searchSize = wordSize + 1;
-        int[] currentRow = new int[searchSize];
-
-        for ( int i = 0; i <= wordSize; i++ ) {
-            currentRow[i] = i;
-        }
-        currentRow[0] = -1;
-
-        for ( int i = 0; i < wordSize; i++ ) {
-        	byte letter = word.get( i );
-        	
-        	if( root.getChild( letter ) != null ) {
-        		currentPrefix = new ArrayList<Byte>();
-        	//	currentPrefix.add( letter );
-        		traverseTrie( root, letter, word, currentRow );
-        	//	currentPrefix.remove( 0 );
-        	}
+        int start = ( word.size() > 0 && word.get( 0 ) == 0 ) ? 1 : 0;
+        byte[] byteWord = new byte[word.size() - start];
+        for ( int i = 0; i < byteWord.length; i++ ) {
+        	byteWord[i] = word.get( start + i );
         }
         
-        return minLevDist;
+        SearchResult result = computeClosestWords( byteWord, distanceTreshold - 1 );
+        lastResult = result;
+        
+        return result.getMinLevDist();
     }
-
+    
     
     /**
-     * Recursive helper function. Traverses theTrie in search of the minimum Levenshtein Distance.
+     * Computes the minimum Levenshtein Distance between the given word and all the words 
+     * stored in the Trie, together with the closest word and all the words within maxDistance.
+     * All the state of the search belongs to the call, so queries may run concurrently 
+     * as long as the Trie is not modified at the same time.
      * 
-     * @param TrieNode node - the current TrieNode
-     * @param byte letter - the current character of the current word we're working with
-     * @param ArrayList<Byte> word - an ArrayList of bytes representation of the current word
-     * @param int[] previousRow - a row in the Levenshtein Distance matrix
+     * @param word the letter codes of the word, as given by the {@link #getAlphabet() alphabet} of the Trie
+     * @param maxDistance
+     * @return the result of the search.
      */
-    private void traverseTrie( TrieNode node, byte letter, ArrayList<Byte> word, int[] previousRow ) {
-
-        int[] currentRow = new int[searchSize];
-        currentRow[0] = previousRow[0] + 1;
-
-        int minimumElement = currentRow[0];
-        int insertCost, deleteCost, replaceCost;
-
-        for (int i = 1; i < searchSize; i++) {
-            insertCost = currentRow[i - 1] + 1;
-            deleteCost = previousRow[i] + 1;
-            replaceCost = word.get(i - 1) == letter ? previousRow[i - 1] : previousRow[i - 1] + 1;
-
-            currentRow[i] = minimum( insertCost, deleteCost, replaceCost );
-
-            if ( currentRow[i] < minimumElement ) {
-                minimumElement = currentRow[i];
-            }
-        }
-
-        /* Checks if the distance is less than the minimum distance!!! */
-        if ( currentRow[searchSize - 1] < minLevDist && node.isWord() ) {
-            minLevDist = currentRow[searchSize - 1];
-            closestWord = (ArrayList<Byte>) currentPrefix.clone();
-        }
-        
-        /* Checks if the distance is less than the treshold */
-        if( currentRow[searchSize - 1] < distanceTreshold  && node.isWord() ) {
-        	closestWords.add( (ArrayList<Byte>) currentPrefix.clone() );
-        }
-        
-
-  //      if ( minimumElement < minLevDist ) {
-
-            for ( Byte b : node.getChildren().keySet()) {
-            	currentPrefix.add( b );
-                traverseTrie( node.getChildren().get( b ), b, word, currentRow );
-                currentPrefix.remove( currentPrefix.size() -1 );
-            }
-    //    }
+    public SearchResult computeClosestWords( byte[] word, int maxDistance ) {
+    	TrieMetrics metrics = this.metrics;
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	
+    	SearchContext context = new SearchContext( word, maxDistance, true );
+    	context.run( root );
+    	
+    	SearchResult result = new SearchResult( context, alphabet );
+    	if ( metrics != null ) record( metrics, start, result );
+    	return result;
     }
-
-
+    
+    
     /**
-     * Returns the minimum of the three numbers given as arguments.
-     * @param insertCost
-     * @param deleteCost
-     * @param replaceCost
-     * @return
+     * Same as {@link #computeClosestWords(byte[], int)}, with the rows of the Levenshtein 
+     * Distance matrix computed bit-parallel: the match masks of the letters are computed 
+     * from the word once and every row is advanced with a few operations on 64 bit words 
+     * instead of a loop over the letters of the word. Words which are empty or longer 
+     * than 64 letters are searched with the scalar rows. The result is the same.
+     * 
+     * @param word the letter codes of the word, as given by the {@link #getAlphabet() alphabet} of the Trie
+     * @param maxDistance
+     * @return the result of the search.
      */
-	private int minimum( int insertCost, int deleteCost, int replaceCost ) {
-		int min = insertCost;
-		if( deleteCost < min ) min = deleteCost;
-		if( replaceCost < min ) min = replaceCost;
-		
-		return min;
-	}
+    public SearchResult computeClosestWordsBitParallel( byte[] word, int maxDistance ) {
+    	TrieMetrics metrics = this.metrics;
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	
+    	SearchContext context = new SearchContext( word, maxDistance, true, true );
+    	context.run( root );
+    	
+    	SearchResult result = new SearchResult( context, alphabet );
+    	if ( metrics != null ) record( metrics, start, result );
+    	return result;
+    }
+    
+    
+    private static void record( TrieMetrics metrics, long start, SearchResult result ) {
+    	metrics.recordSearch( System.nanoTime() - start, result.getRowsComputed(), result.getSubtreesPruned() );
+    }
+    
+    
+    /**
+     * Same as {@link #computeClosestWords(byte[], int)}, with the subtrees of the first two 
+     * levels of the Trie searched in parallel on the given pool. The best distance found 
+     * so far is shared between the tasks, so pruning still applies, and the result is 
+     * the same as the one of the sequential search. Small Tries and short words are 
+     * searched sequentially.
+     * 
+     * @param word the letter codes of the word, as given by the {@link #getAlphabet() alphabet} of the Trie
+     * @param maxDistance
+     * @param pool
+     * @return the result of the search.
+     */
+    public SearchResult computeClosestWords( byte[] word, int maxDistance, ForkJoinPool pool ) {
+    	if ( size < ParallelSearch.MIN_WORDS || word.length < ParallelSearch.MIN_WORD_LENGTH ) {
+    		return computeClosestWords( word, maxDistance );
+    	}
+    	
+    	TrieMetrics metrics = this.metrics;
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	SearchResult result = ParallelSearch.run( root, word, maxDistance, pool, alphabet );
+    	if ( metrics != null ) record( metrics, start, result );
+    	return result;
+    }
+    
+    
+    /**
+     * Returns all the words stored in the Trie whose Levenshtein Distance from the given 
+     * word is at most maxDistance. The traversal stops descending into a subtree as soon 
+     * as no word below it can be within the distance. Characters which are not valid 
+     * letters never match any letter of the Trie.
+     * 
+     * @param word
+     * @param maxDistance
+     * @return the words within maxDistance of the given word, in capitals.
+     */
+    public ArrayList<String> search( CharSequence word, int maxDistance ) {
+    	TrieMetrics metrics = this.metrics;
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	
+    	SearchContext context = new SearchContext( alphabet.encode( word ), maxDistance, false );
+    	context.run( root );
+    	if ( metrics != null ) {
+    		metrics.recordSearch( System.nanoTime() - start, context.getRowsComputed(), context.getSubtreesPruned() );
+    	}
+    	
+    	ArrayList<byte[]> matches = context.getMatches();
+    	ArrayList<String> words = new ArrayList<String>( matches.size() );
+    	for ( byte[] match : matches ) {
+    		words.add( alphabet.decode( match, 0, match.length ) );
+    	}
+    	
+    	return words;
+    }
+	
+	
+    /**
+     * Same as {@link #search(CharSequence, int)} for many words at once. The Trie is 
+     * walked a single time for the whole batch, carrying a row of the Levenshtein 
+     * Distance matrix for every word which may still have matches below the current 
+     * node, so the node visits are shared by all the words.
+     * 
+     * @param words
+     * @param maxDistance
+     * @return the words within maxDistance of every given word, in the order of the given words.
+     */
+    public ArrayList<ArrayList<String>> search( List<? extends CharSequence> words, int maxDistance ) {
+    	byte[][] queries = new byte[words.size()][];
+    	for ( int i = 0; i < queries.length; i++ ) {
+    		queries[i] = alphabet.encode( words.get( i ) );
+    	}
+    	BatchSearch search = new BatchSearch( queries, maxDistance, alphabet );
+    	ArrayList<ArrayList<String>> results = search.run( root );
+    	
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics != null ) {
+    		metrics.recordSearches( queries.length, search.getRowsComputed(), search.getSubtreesPruned() );
+    	}
+    	return results;
+    }
+	
+	
+    /**
+     * Returns the k best words within maxDistance of the given word, ranked by their 
+     * Levenshtein Distance and then by their frequency, highest first. The Trie is 
+     * explored best-first and the branches which cannot beat the k-th result found 
+     * so far are never expanded, so a small k costs far less than collecting every 
+     * word within the distance.
+     * 
+     * @param word
+     * @param k the maximum number of suggestions
+     * @param maxDistance
+     * @return the suggestions, best first.
+     */
+    public List<Suggestion> topK( CharSequence word, int k, int maxDistance ) {
+    	TrieMetrics metrics = this.metrics;
+    	if ( metrics == null ) return RankedSearch.run( root, alphabet.encode( word ), k, maxDistance, alphabet );
+    	
+    	long start = System.nanoTime();
+    	List<Suggestion> suggestions = RankedSearch.run( root, alphabet.encode( word ), k, maxDistance, alphabet );
+    	metrics.record( Operation.FUZZY_SEARCH, System.nanoTime() - start );
+    	return suggestions;
+    }
+	
+	
+    /**
+     * Returns the k words starting with the given prefix which have the highest frequency, 
+     * highest first. Every node knows the highest frequency below it, so only the 
+     * subtrees which may still hold one of the k best words are expanded.
+     * 
+     * @param prefix
+     * @param k the maximum number of completions
+     * @return the completions, in capitals.
+     */
+    public ArrayList<String> complete( CharSequence prefix, int k ) {
+    	Completions completions = new Completions();
+    	int count = complete( prefix, k, completions );
+    	
+    	ArrayList<String> words = new ArrayList<String>( count );
+    	for ( int i = 0; i < count; i++ ) {
+    		words.add( completions.getWord( i ) );
+    	}
+    	return words;
+    }
+	
+	
+    /**
+     * Same as {@link #complete(CharSequence, int)}, with the completions written to the given 
+     * sink. A sink which is reused across calls, as one per keystroke, keeps its buffers, 
+     * so once they have grown the search allocates nothing.
+     * 
+     * @param prefix
+     * @param k the maximum number of completions
+     * @param completions the sink, which is cleared first
+     * @return the number of completions.
+     */
+    public int complete( CharSequence prefix, int k, Completions completions ) {
+    	TrieMetrics metrics = this.metrics;
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	
+    	TrieNode node = root;
+    	for ( int i = 0, length = prefix.length(); i < length && node != null; i++ ) {
+    		byte letter = alphabet.code( prefix.charAt( i ) );
+    		node = letter == 0 ? null : node.getChild( letter );
+    	}
+    	
+    	completions.collect( node, prefix, k, alphabet );
+    	if ( metrics != null ) metrics.record( Operation.COMPLETE, System.nanoTime() - start );
+    	return completions.size();
+    }
+	
+	
+    /**
+     * Returns all the words stored in the Trie accepted by the given automaton. The Trie 
+     * and the automaton are walked together, so every node costs one table transition 
+     * and the walk stops as soon as the automaton can accept no more words.
+     * 
+     * @param automaton
+     * @return the accepted words, in capitals.
+     */
+    public ArrayList<String> search( LevenshteinAutomaton automaton ) {
+    	TrieMetrics metrics = this.metrics;
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	ArrayList<byte[]> matches = automaton.match( root );
+    	if ( metrics != null ) metrics.record( Operation.FUZZY_SEARCH, System.nanoTime() - start );
+    	ArrayList<String> words = new ArrayList<String>( matches.size() );
+    	for ( byte[] match : matches ) {
+    		words.add( alphabet.decode( match, 0, match.length ) );
+    	}
+    	
+    	return words;
+    }
+	
+	
+    /**
+     * Saves the words of the Trie in the binary format of {@link TrieFile}. The 
+     * file can be opened with {@link TrieFile#open(Path)} and queried without 
+     * building the Trie again. Only a Trie of the default alphabet can be saved.
+     * @param path
+     * @throws IOException
+     * @throws IllegalArgumentException if the Trie has another alphabet.
+     */
+    public void save( Path path ) throws IOException {
+    	TrieFile.save( this, path );
+    }
 	
 	
 	/**
@@ -297,11 +731,22 @@ public class Trie {
 	 * @throws InvalidLetterException if parameter character is not valid( if is not a valid char ).
 	 */
 	public static byte charToNumber( char character ) throws InvalidCharacterException {
-		if ( character > 930 ) return (byte) ( character - 913 );
-		else if ( character > 912 ) return (byte) ( character - 912 );
-		else if ( character >= 'A' && character <= 'Z' ) return (byte) ( character - 64 + 24 );
-		else if ( character >= '0' && character <= '9' ) return (byte)  ( character - 47 + 50 );
-		else throw new InvalidCharacterException();
+		byte code = Alphabet.DEFAULT.code( character );
+		if ( code == 0 ) throw new InvalidCharacterException();
+		return code;
+	}
+		
+		
+	/**
+	 * Method which transforms the given character to its letter code, folding lower case 
+	 * and accented letters to their capital form. Unlike {@link #charToNumber(char)} it 
+	 * does not throw, which keeps it usable on the lookup path. The code is read from 
+	 * the table of {@link Alphabet#DEFAULT}.
+	 * @param character The char to transform to Number
+	 * @return The number representation of the character, or 0 if the character is not valid.
+	 */
+	public static byte code( char character ) {
+		return Alphabet.DEFAULT.code( character );
 	}
 		
 		
@@ -313,10 +758,42 @@ public class Trie {
 	 * @throws InvalidLetterException if parameter letter is not valid( if is not a Greek Capital letter ).
 	 */
 	public static char numberToChar( byte number ) throws InvalidNumberException  {
-		if( number <= 17  ) return (char) (number + 912);
-		else if( number < 25 ) return (char) (number + 913);
-		else if( number < 51 ) return (char) (number - 24 + 64 );
-		else return (char) (number - 50 + 47);
+		char letter = Alphabet.DEFAULT.letter( number );
+		if ( letter == 0 ) throw new InvalidNumberException();
+		return letter;
+	}
+	
+	
+	/**
+	 * Transforms the given word to letter codes with {@link #code(char)}. Invalid 
+	 * characters are kept as 0, which matches no letter of the Trie.
+	 * @param word
+	 * @return the letter codes of the word.
+	 */
+	public static byte[] encode( CharSequence word ) {
+		return Alphabet.DEFAULT.encode( word );
+	}
+	
+	
+	/**
+	 * Transforms the given range of letter codes back to a word.
+	 * @param word the letter codes
+	 * @param offset the index of the first letter
+	 * @param length the number of letters
+	 * @return the word, in capitals.
+	 */
+	public static String decode( byte[] word, int offset, int length ) {
+		return Alphabet.DEFAULT.decode( word, offset, length );
+	}
+	
+	
+	/**
+	 * Transforms the given letter code back to its capital letter, without checking it.
+	 * @param number a valid letter code
+	 * @return the letter.
+	 */
+	static char letterOf( byte number ) {
+		return Alphabet.DEFAULT.letter( number );
 	}
 	
 	
@@ -326,12 +803,14 @@ public class Trie {
 	 * @return
 	 */
 	public static String capitalize( String word ) {
-		StringBuilder upperCase = new StringBuilder();
-		for( int i = 0; i < word.length(); i++ ) {
-			upperCase.append( toUpperCase( word.charAt( i ) ) );
+		char[] upperCase = new char[word.length()];
+		for( int i = 0; i < upperCase.length; i++ ) {
+			char character = word.charAt( i );
+			byte code = Alphabet.DEFAULT.code( character );
+			upperCase[i] = code != 0 ? Alphabet.DEFAULT.letter( code ) : toUpperCase( character );
 		}
 		
-		return upperCase.toString();
+		return new String( upperCase );
 	}
 	
 	
@@ -383,6 +862,22 @@ public class Trie {
 	
 
 
+	/**
+	 * @return the number of words stored in the Trie.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * @return the alphabet of the words of the Trie.
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+
 	/**
 	 * @return the root
 	 */
@@ -392,29 +887,73 @@ public class Trie {
 
 
 	/**
-	 * @return the minLevDist
+	 * @return the metrics of the Trie, or null if they are disabled.
 	 */
+	public TrieMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	/**
+	 * Enables or disables the recording of metrics. Without metrics the operations 
+	 * only check that they are disabled.
+	 * @param metrics the metrics to record to, or null to disable them
+	 */
+	public void setMetrics( TrieMetrics metrics ) {
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Walks the whole Trie to report its shape and estimated heap footprint. The 
+	 * Trie must not be modified during the walk.
+	 * @return the report.
+	 */
+	public TrieFootprint footprint() {
+		return new TrieFootprint( root );
+	}
+
+
+	/**
+	 * @return the minLevDist of the last computeMinimumLevenshteinDistance call.
+	 * @deprecated the value is shared by all the callers of the Trie. Use the 
+	 * {@link SearchResult} of {@link #computeClosestWords(byte[], int)} instead.
+	 */
+	@Deprecated
 	public int getMinLevDist() {
-		return minLevDist;
+		SearchResult result = lastResult;
+		return result == null ? 0 : result.getMinLevDist();
 	}
 
 
 	/**
-	 * @return the currentPrefix
+	 * @return an empty list, the prefix of a search belongs to the search itself.
+	 * @deprecated the current prefix is no longer kept by the Trie.
 	 */
+	@Deprecated
 	public ArrayList<Byte> getCurrentPrefix() {
-		return currentPrefix;
+		return new ArrayList<Byte>();
 	}
 
 
 	/**
-	 * @return the closestWords
+	 * @return the closestWords of the last computeMinimumLevenshteinDistance call.
+	 * @deprecated the value is shared by all the callers of the Trie. Use the 
+	 * {@link SearchResult} of {@link #computeClosestWords(byte[], int)} instead.
 	 */
+	@Deprecated
 	public ArrayList< ArrayList<Byte> > getClosestWords() {
+		ArrayList< ArrayList<Byte> > closestWords = new ArrayList< ArrayList<Byte> >();
+		SearchResult result = lastResult;
+		if ( result == null ) return closestWords;
+		
+		for ( byte[] word : result.getClosestCodes() ) {
+			ArrayList<Byte> list = new ArrayList<Byte>( word.length );
+			for ( byte b : word ) list.add( b );
+			closestWords.add( list );
+		}
 		return closestWords;
 	}
 
     
 }
-
-
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+
+/**
+ * The binary on-disk format of a built set of words, and the methods which write 
+ * and open it. A file holds a (minimized) automaton in little endian order:
+ * <pre>
+ * header  magic "JTRI", version, states, edges, words, flags (0), CRC32 of the six ints 
+ *         before it and of the body, reserved (0) (8 ints)
+ * states  (states + 1) ints: the index of the first edge of every state, with the 
+ *         final flag in the highest bit; the last one is the number of edges
+ * letters one byte per edge, padded to a multiple of 4
+ * targets one int per edge
+ * </pre>
+ * Opened files are memory mapped and queried in place, see {@link MappedWordGraph}.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class TrieFile {
+	
+	static final int MAGIC = 0x4952544A;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 32;
+	
+	/* The header bytes before the checksum, which it covers together with the body. */
+	private static final int CHECKED_HEADER_SIZE = 24;
+	static final int FINAL_FLAG = 0x80000000;
+	
+	
+	private TrieFile() {
+	}
+	
+	
+	/**
+	 * Saves the words of the given Trie, as a minimal automaton.
+	 * @param trie a Trie of the default alphabet
+	 * @param path
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the Trie has another alphabet.
+	 */
+	public static void save( Trie trie, Path path ) throws IOException {
+		save( DawgBuilder.build( trie ), path );
+	}
+	
+	
+	/**
+	 * Saves the given graph. The file is written next to the target and moved in 
+	 * place at the end, so processes which have the old file mapped keep reading it.
+	 * @param graph
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void save( WordGraph graph, Path path ) throws IOException {
+		
+		/* Numbers the states breadth first, the root being 0. */
+		HashMap<Integer, Integer> ids = new HashMap<Integer, Integer>();
+		ArrayList<Integer> states = new ArrayList<Integer>();
+		ids.put( graph.getRoot(), 0 );
+		states.add( graph.getRoot() );
+		
+		byte[] letters = new byte[WordGraph.MAX_EDGES];
+		int[] targets = new int[WordGraph.MAX_EDGES];
+		long edgeCount = 0;
+		for ( int index = 0; index < states.size(); index++ ) {
+			int edges = graph.getEdges( states.get( index ), letters, targets );
+			edgeCount += edges;
+			for ( int edge = 0; edge < edges; edge++ ) {
+				if ( !ids.containsKey( targets[edge] ) ) {
+					ids.put( targets[edge], states.size() );
+					states.add( targets[edge] );
+				}
+			}
+		}
+		
+		int stateCount = states.size();
+		int lettersSize = (int) ( ( edgeCount + 3 ) & ~3 );
+		long bodySize = 4L * ( stateCount + 1 ) + lettersSize + 4L * edgeCount;
+		if ( HEADER_SIZE + bodySize > Integer.MAX_VALUE ) {
+			throw new IOException( "The graph is too large for a single file." );
+		}
+		
+		ByteBuffer body = ByteBuffer.allocate( (int) bodySize ).order( ByteOrder.LITTLE_ENDIAN );
+		int lettersOffset = 4 * ( stateCount + 1 );
+		int targetsOffset = lettersOffset + lettersSize;
+		int edgeIndex = 0;
+		for ( int index = 0; index < stateCount; index++ ) {
+			int state = states.get( index );
+			body.putInt( 4 * index, edgeIndex | ( graph.isFinal( state ) ? FINAL_FLAG : 0 ) );
+			int edges = graph.getEdges( state, letters, targets );
+			for ( int edge = 0; edge < edges; edge++ ) {
+				body.put( lettersOffset + edgeIndex, letters[edge] );
+				body.putInt( targetsOffset + 4 * edgeIndex, ids.get( targets[edge] ) );
+				edgeIndex++;
+			}
+		}
+		body.putInt( 4 * stateCount, edgeIndex );
+		
+		ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+		header.putInt( MAGIC ).putInt( VERSION ).putInt( stateCount ).putInt( edgeIndex )
+			.putInt( graph.size() ).putInt( 0 );
+		
+		CRC32 crc = new CRC32();
+		crc.update( header.array(), 0, CHECKED_HEADER_SIZE );
+		crc.update( body.array(), 0, body.capacity() );
+		header.putInt( (int) crc.getValue() ).putInt( 0 );
+		header.flip();
+		
+		Path directory = path.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile( directory, path.getFileName().toString(), ".tmp" );
+		try {
+			FileChannel channel = FileChannel.open( temporary, StandardOpenOption.WRITE );
+			try {
+				while ( header.hasRemaining() ) channel.write( header );
+				while ( body.hasRemaining() ) channel.write( body );
+				channel.force( true );
+			}
+			finally {
+				channel.close();
+			}
+			Files.move( temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		}
+		finally {
+			Files.deleteIfExists( temporary );
+		}
+	}
+	
+	
+	/**
+	 * Opens the given file and verifies its checksum.
+	 * @param path
+	 * @return the memory mapped graph.
+	 * @throws IOException if the file cannot be read or is not a valid file.
+	 */
+	public static MappedWordGraph open( Path path ) throws IOException {
+		return open( path, true );
+	}
+	
+	
+	/**
+	 * Opens the given file. Only the pages which are queried are read from disk, 
+	 * unless the checksum is verified, which reads the whole file once. Without it, 
+	 * only the sizes in the header are checked against the size of the file.
+	 * @param path
+	 * @param verify whether the checksum of the header and the body is verified
+	 * @return the memory mapped graph.
+	 * @throws IOException if the file cannot be read or is not a valid file.
+	 */
+	public static MappedWordGraph open( Path path, boolean verify ) throws IOException {
+		MappedByteBuffer buffer;
+		FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+		try {
+			long size = channel.size();
+			if ( size < HEADER_SIZE ) throw new IOException( "Not a trie file: " + path );
+			if ( size > Integer.MAX_VALUE ) throw new IOException( "Trie file too large: " + path );
+			buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+		}
+		finally {
+			channel.close();
+		}
+		buffer.order( ByteOrder.LITTLE_ENDIAN );
+		
+		if ( buffer.getInt( 0 ) != MAGIC ) throw new IOException( "Not a trie file: " + path );
+		int version = buffer.getInt( 4 );
+		if ( version != VERSION ) throw new IOException( "Unsupported trie file version " + version + ": " + path );
+		
+		int states = buffer.getInt( 8 );
+		int edges = buffer.getInt( 12 );
+		int words = buffer.getInt( 16 );
+		int flags = buffer.getInt( 20 );
+		int checksum = buffer.getInt( 24 );
+		int reserved = buffer.getInt( 28 );
+		long expected = HEADER_SIZE + 4L * ( states + 1 ) + ( ( edges + 3L ) & ~3L ) + 4L * edges;
+		if ( states <= 0 || edges < 0 || words < 0 || flags != 0 || reserved != 0 || expected != buffer.capacity() ) {
+			throw new IOException( "Corrupted trie file: " + path );
+		}
+		
+		if ( verify ) {
+			CRC32 crc = new CRC32();
+			byte[] chunk = new byte[64 * 1024];
+			ByteBuffer header = buffer.duplicate();
+			header.get( chunk, 0, CHECKED_HEADER_SIZE );
+			crc.update( chunk, 0, CHECKED_HEADER_SIZE );
+			
+			ByteBuffer body = buffer.duplicate();
+			body.position( HEADER_SIZE );
+			while ( body.hasRemaining() ) {
+				int length = Math.min( chunk.length, body.remaining() );
+				body.get( chunk, 0, length );
+				crc.update( chunk, 0, length );
+			}
+			if ( (int) crc.getValue() != checksum ) throw new IOException( "Checksum mismatch: " + path );
+		}
+		
+		return new MappedWordGraph( buffer, states, edges, words );
+	}
+
+}
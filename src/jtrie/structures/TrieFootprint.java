@@ -0,0 +1,152 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+/**
+ * A report of the shape and the estimated heap footprint of a Trie: the number of 
+ * nodes, word nodes and dense nodes, and a histogram of the fanout of the nodes of 
+ * every depth. The bytes are estimated for a 64-bit JVM with compressed references 
+ * (12 byte object headers, 4 byte references, 8 byte alignment).
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class TrieFootprint {
+	
+	/* The largest fanout: one child for every letter code. */
+	private static final int MAX_FANOUT = WordGraph.MAX_EDGES;
+	
+	private long nodes, wordNodes, denseNodes, estimatedBytes;
+	private long[][] fanout = new long[16][];
+	private int depths;
+	
+	
+	/**
+	 * Walks the Trie below the given root.
+	 * @param root
+	 */
+	TrieFootprint( TrieNode root ) {
+		visit( root, 0 );
+	}
+	
+	
+	private void visit( TrieNode node, int depth ) {
+		if ( depth == fanout.length ) {
+			long[][] grown = new long[depth * 2][];
+			System.arraycopy( fanout, 0, grown, 0, depth );
+			fanout = grown;
+		}
+		if ( fanout[depth] == null ) fanout[depth] = new long[MAX_FANOUT + 1];
+		if ( depth >= depths ) depths = depth + 1;
+		
+		nodes++;
+		if ( node.isWord() ) wordNodes++;
+		if ( node.isDense() ) denseNodes++;
+		fanout[depth][node.getChildCount()]++;
+		estimatedBytes += estimate( node );
+		
+		for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+			TrieNode child = node.getChildAt( slot );
+			if ( child != null ) visit( child, depth + 1 );
+		}
+	}
+	
+	
+	/* The node itself (header, letter, two array references, size, maximum weight and the frequency of a word) and its arrays. */
+	private static long estimate( TrieNode node ) {
+		long bytes = align( 12 + 1 + 4 + 4 + 4 + 8 + ( node instanceof FullTrieNode ? 8 : 0 ) );
+		if ( node.getKeyCapacity() > 0 ) bytes += align( 16 + node.getKeyCapacity() );
+		if ( node.getChildCapacity() > 0 ) bytes += align( 16 + 4L * node.getChildCapacity() );
+		return bytes;
+	}
+	
+	
+	private static long align( long bytes ) {
+		return ( bytes + 7 ) & ~7L;
+	}
+	
+	
+	/**
+	 * @return the number of nodes, the root included.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+	
+	
+	/**
+	 * @return the number of nodes which end a word.
+	 */
+	public long getWordNodes() {
+		return wordNodes;
+	}
+	
+	
+	/**
+	 * @return the number of nodes whose children are indexed directly by letter.
+	 */
+	public long getDenseNodes() {
+		return denseNodes;
+	}
+	
+	
+	/**
+	 * @return the estimated heap size of the nodes and their child arrays, in bytes.
+	 */
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+	
+	
+	/**
+	 * @return the number of depths of the Trie, the root being at depth 0.
+	 */
+	public int getDepths() {
+		return depths;
+	}
+	
+	
+	/**
+	 * @param depth
+	 * @return the number of nodes of the given depth by their number of children.
+	 */
+	public long[] getFanoutHistogram( int depth ) {
+		return fanout[depth].clone();
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append( "nodes " ).append( nodes ).append( ", word nodes " ).append( wordNodes )
+				.append( ", dense nodes " ).append( denseNodes )
+				.append( ", estimated bytes " ).append( estimatedBytes ).append( '\n' );
+		for ( int depth = 0; depth < depths; depth++ ) {
+			builder.append( "depth " ).append( depth ).append( ':' );
+			long[] histogram = fanout[depth];
+			for ( int children = 0; children <= MAX_FANOUT; children++ ) {
+				if ( histogram[children] > 0 ) {
+					builder.append( ' ' ).append( children ).append( 'x' ).append( histogram[children] );
+				}
+			}
+			builder.append( '\n' );
+		}
+		return builder.toString();
+	}
+
+}
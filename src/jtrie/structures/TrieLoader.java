@@ -0,0 +1,226 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Inserts a stream of words into a Trie. The loader remembers the nodes of the 
+ * previous word and resumes every insertion from the longest prefix it shares 
+ * with it, so sorted input only walks the letters which differ. No objects are 
+ * created for words which are already stored or rejected.
+ * <p>
+ * The Trie must not be modified by other means while a loader is in use.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class TrieLoader {
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final Trie trie;
+	private final Alphabet alphabet;
+	private final SymmetricDeleteIndex index;
+	
+	/* path[i] is the node of the first i letters of the previous word. */
+	private TrieNode[] path = new TrieNode[32];
+	private byte[] previous = new byte[32];
+	private byte[] current = new byte[32];
+	private int previousLength;
+	
+	private long inserted, duplicates, rejected;
+	
+	
+	/**
+	 * @param trie the Trie to load the words into
+	 */
+	public TrieLoader( Trie trie ) {
+		this( trie, null );
+	}
+	
+	
+	/**
+	 * Creates a loader which also adds every inserted word to the given index, so that 
+	 * the index follows the Trie without being rebuilt.
+	 * @param trie the Trie to load the words into
+	 * @param index the index of the words of the Trie, or null
+	 */
+	public TrieLoader( Trie trie, SymmetricDeleteIndex index ) {
+		this.trie = trie;
+		this.alphabet = trie.getAlphabet();
+		this.index = index;
+		this.path[0] = trie.getRoot();
+	}
+	
+	
+	/**
+	 * Inserts the given word.
+	 * @param word
+	 * @return true if the word was added.
+	 */
+	public boolean add( CharSequence word ) {
+		int length = word.length();
+		ensureCapacity( length );
+		for ( int i = 0; i < length; i++ ) {
+			current[i] = alphabet.code( word.charAt( i ) );
+		}
+		return add( length );
+	}
+	
+	
+	/**
+	 * Inserts the word in the given range of the array.
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return true if the word was added.
+	 */
+	public boolean add( char[] word, int offset, int length ) {
+		ensureCapacity( length );
+		for ( int i = 0; i < length; i++ ) {
+			current[i] = alphabet.code( word[offset + i] );
+		}
+		return add( length );
+	}
+	
+	
+	private boolean add( int length ) {
+		for ( int i = 0; i < length; i++ ) {
+			if ( current[i] == 0 ) {
+				rejected++;
+				return false;
+			}
+		}
+		if ( length == 0 ) {
+			rejected++;
+			return false;
+		}
+		
+		int common = 0;
+		int max = Math.min( length, previousLength );
+		while ( common < max && current[common] == previous[common] ) common++;
+		
+		boolean added = trie.insert( current, length, path, common, 1 );
+		if ( added ) {
+			inserted++;
+			if ( index != null ) index.insert( current, length );
+		}
+		else duplicates++;
+		
+		byte[] swap = previous;
+		previous = current;
+		current = swap;
+		previousLength = length;
+		
+		return added;
+	}
+	
+	
+	private void ensureCapacity( int length ) {
+		if ( length < path.length ) return;
+		int capacity = Math.max( length + 1, path.length * 2 );
+		path = Arrays.copyOf( path, capacity );
+		previous = Arrays.copyOf( previous, capacity );
+		current = Arrays.copyOf( current, capacity );
+	}
+	
+	
+	/**
+	 * Inserts the words of the given file, one word per line. Spaces around the words 
+	 * and empty lines are ignored, and malformed input is rejected like invalid characters.
+	 * @param file
+	 * @param charset
+	 * @throws IOException
+	 */
+	public void load( Path file, Charset charset ) throws IOException {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput( CodingErrorAction.REPLACE )
+				.onUnmappableCharacter( CodingErrorAction.REPLACE );
+		ByteBuffer bytes = ByteBuffer.allocateDirect( BUFFER_SIZE );
+		CharBuffer chars = CharBuffer.allocate( BUFFER_SIZE );
+		
+		FileChannel channel = FileChannel.open( file, StandardOpenOption.READ );
+		try {
+			boolean endOfInput = false;
+			while ( true ) {
+				if ( !endOfInput && channel.read( bytes ) < 0 ) endOfInput = true;
+				
+				bytes.flip();
+				CoderResult result = decoder.decode( bytes, chars, endOfInput );
+				boolean drained = endOfInput && !bytes.hasRemaining() && result.isUnderflow();
+				bytes.compact();
+				if ( drained ) decoder.flush( chars );
+				
+				chars.flip();
+				char[] array = chars.array();
+				int lineStart = chars.position();
+				for ( int i = lineStart, end = chars.limit(); i < end; i++ ) {
+					if ( array[i] == '\n' ) {
+						addLine( array, lineStart, i );
+						lineStart = i + 1;
+					}
+				}
+				
+				if ( drained ) {
+					addLine( array, lineStart, chars.limit() );
+					return;
+				}
+				
+				chars.position( lineStart );
+				chars.compact();
+				if ( !chars.hasRemaining() ) {
+					CharBuffer larger = CharBuffer.allocate( chars.capacity() * 2 );
+					chars.flip();
+					larger.put( chars );
+					chars = larger;
+				}
+			}
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	
+	private void addLine( char[] array, int start, int end ) {
+		while ( start < end && Character.isWhitespace( array[start] ) ) start++;
+		while ( end > start && Character.isWhitespace( array[end - 1] ) ) end--;
+		if ( start < end ) add( array, start, end - start );
+	}
+	
+	
+	/**
+	 * @return the counts of the words given to this loader so far.
+	 */
+	public LoadResult getResult() {
+		return new LoadResult( inserted, duplicates, rejected );
+	}
+
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * A map from words to values, which keeps the keys in the nodes of a Trie instead 
+ * of in separate String objects. See {@link AbstractTrieMap} for the handling of keys. 
+ * Null values are allowed.
+ * 
+ * @param <V> the type of the values
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public class TrieMap<V> extends AbstractTrieMap {
+	
+	private Object[] values = new Object[16];
+	
+	
+	/**
+	 * Associates the given value with the given key.
+	 * @param key
+	 * @param value
+	 * @return the previous value of the key, or null.
+	 * @throws IllegalArgumentException if the key is empty or contains an invalid character.
+	 */
+	public V put( CharSequence key, V value ) {
+		int slot = add( key );
+		if ( slot < 0 ) {
+			values[-slot - 1] = value;
+			return null;
+		}
+		V previous = value( slot );
+		values[slot] = value;
+		return previous;
+	}
+	
+	
+	/**
+	 * @param key
+	 * @return the value of the given key, or null if the map does not hold it.
+	 */
+	public V get( CharSequence key ) {
+		int slot = find( key );
+		return slot < 0 ? null : value( slot );
+	}
+	
+	
+	/**
+	 * @param key
+	 * @param defaultValue
+	 * @return the value of the given key, or defaultValue if the map does not hold it.
+	 */
+	public V getOrDefault( CharSequence key, V defaultValue ) {
+		int slot = find( key );
+		return slot < 0 ? defaultValue : value( slot );
+	}
+	
+	
+	/**
+	 * Removes the given key.
+	 * @param key
+	 * @return the value of the key, or null if the map did not hold it.
+	 */
+	public V remove( CharSequence key ) {
+		int slot = removeKey( key );
+		if ( slot < 0 ) return null;
+		V previous = value( slot );
+		values[slot] = null;
+		return previous;
+	}
+	
+	
+	/**
+	 * Returns the value of the given key, computing and storing it first if the key has 
+	 * no value or a null one. A null computed value is not stored.
+	 * @param key
+	 * @param mappingFunction computes the value from the key
+	 * @return the current or computed value.
+	 */
+	public V computeIfAbsent( CharSequence key, Function<? super String, ? extends V> mappingFunction ) {
+		int slot = find( key );
+		if ( slot >= 0 && values[slot] != null ) return value( slot );
+		
+		V value = mappingFunction.apply( key.toString() );
+		if ( value != null ) put( key, value );
+		return value;
+	}
+	
+	
+	/**
+	 * Calls the given action for every key which starts with the given prefix, in the 
+	 * order of their letter codes.
+	 * @param prefix
+	 * @param action
+	 */
+	public void forEachWithPrefix( CharSequence prefix, BiConsumer<? super String, ? super V> action ) {
+		Cursor cursor = cursor( prefix );
+		while ( cursor.next() ) {
+			action.accept( cursor.key(), value( cursor.slot() ) );
+		}
+	}
+	
+	
+	/**
+	 * Returns a read-only view of the keys which start with the given prefix. The 
+	 * view reflects the later changes of the map.
+	 * @param prefix
+	 * @return the view.
+	 */
+	public Map<String, V> prefixMap( CharSequence prefix ) {
+		return new PrefixMap( prefix.toString() );
+	}
+	
+	
+	@SuppressWarnings( "unchecked" )
+	private V value( int slot ) {
+		return (V) values[slot];
+	}
+	
+	
+	@Override
+	void ensureCapacity( int capacity ) {
+		if ( values.length < capacity ) values = Arrays.copyOf( values, Math.max( capacity, values.length * 2 ) );
+	}
+	
+	
+	@Override
+	void clearValues( int slots ) {
+		Arrays.fill( values, 0, slots, null );
+	}
+	
+	
+	/**
+	 * The view of {@link #prefixMap(CharSequence)}.
+	 */
+	private final class PrefixMap extends AbstractMap<String, V> {
+		
+		private final String prefix;
+		
+		
+		PrefixMap( String prefix ) {
+			this.prefix = prefix;
+		}
+		
+		
+		@Override
+		public V get( Object key ) {
+			return key instanceof CharSequence && startsWith( (CharSequence) key, prefix ) 
+					? TrieMap.this.get( (CharSequence) key ) : null;
+		}
+		
+		
+		@Override
+		public boolean containsKey( Object key ) {
+			return key instanceof CharSequence && startsWith( (CharSequence) key, prefix ) 
+					&& TrieMap.this.containsKey( (CharSequence) key );
+		}
+		
+		
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			return new AbstractSet<Map.Entry<String, V>>() {
+				
+				public Iterator<Map.Entry<String, V>> iterator() {
+					final Cursor cursor = cursor( prefix );
+					return new CursorIterator<Map.Entry<String, V>>( cursor ) {
+						Map.Entry<String, V> current() {
+							return new AbstractMap.SimpleImmutableEntry<String, V>( cursor.key(), value( cursor.slot() ) );
+						}
+					};
+				}
+				
+				public int size() {
+					int size = 0;
+					Cursor cursor = cursor( prefix );
+					while ( cursor.next() ) size++;
+					return size;
+				}
+				
+			};
+		}
+		
+	}
+
+}
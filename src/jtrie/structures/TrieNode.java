@@ -16,20 +16,41 @@
 
 package jtrie.structures;
 
-import java.util.HashMap;
-import java.util.Map;
-
 
 /**
+ * A node of the Trie. The children of a node are kept in one of three layouts, 
+ * chosen automatically as the node grows or shrinks:
+ * <ul>
+ * <li>no children at all (leaf): no arrays are allocated.</li>
+ * <li>sparse: sorted parallel <code>byte[]</code> / <code>TrieNode[]</code> arrays. 
+ * A node with a single child takes the one element fast path.</li>
+ * <li>dense: a <code>TrieNode[]</code> indexed directly by the letter code, 
+ * used for high fan-out nodes near the root.</li>
+ * </ul>
+ * Letters are the codes produced by {@link Trie#charToNumber(char)}, so no boxing
+ * takes place on the lookup or insertion path.
+ * 
  * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
  *
  */
 public class TrieNode {
 
     public static final int ALPHABET = 26;
+    
+    /** The number of children after which a sparse node is turned into a dense one. */
+    public static final int DENSE_THRESHOLD = 8;
 
     private final byte letter;
-    private Map<Byte, TrieNode> children;
+    
+    /* Sorted letters of the children in the sparse layout, null in the leaf and dense layouts. */
+    private byte[] keys;
+    
+    /* Children parallel to keys in the sparse layout, indexed by letter in the dense layout. */
+    private TrieNode[] children;
+    private int size;
+    
+    /* The highest frequency of the words of the subtree of this node, including its own word. */
+    private long maxWeight;
 
     
     /**
@@ -38,33 +59,241 @@ public class TrieNode {
      */
     public TrieNode( byte letter ) {
         this.letter = letter;
-        children = new HashMap<Byte, TrieNode>( ALPHABET );
     }
     
     
     /**
-     * Constructor. Creates a new Trie node.
-     * @param letter
+     * Constructor. Creates a new Trie node which takes over the children of the given node.
+     * @param node
      */
     public TrieNode( TrieNode node ) {
         this.letter = node.getLetter();
-        this.children = node.getChildren();
+        this.keys = node.keys;
+        this.children = node.children;
+        this.size = node.size;
+        this.maxWeight = node.maxWeight;
     }
 
     
     /**
-     * 
+     * Returns the child of this node for the given letter.
      * @param letter
-     * @return
+     * @return the child node or null if there is no such child.
      */
     public TrieNode getChild( byte letter ) {
-
-        if ( children != null ) {
-            if ( children.containsKey( letter ) ) {
-                return children.get( letter ); 
-            }
-        }
-        return null;
+    	byte[] keys = this.keys;
+    	
+    	if ( keys == null ) {
+    		TrieNode[] children = this.children;
+    		if ( children == null || letter < 0 || letter >= children.length ) return null;
+    		return children[letter];
+    	}
+    	
+    	if ( keys[0] == letter ) return children[0];
+    	for ( int i = 1; i < size; i++ ) {
+    		byte key = keys[i];
+    		if ( key == letter ) return children[i];
+    		if ( key > letter ) break;
+    	}
+    	return null;
+    }
+    
+    
+    /**
+     * Adds the given node as a child of this node. If there is already a child 
+     * for the letter of the given node, it is replaced.
+     * @param child
+     */
+    public void setChild( TrieNode child ) {
+    	byte letter = child.getLetter();
+    	
+    	if ( children == null ) {
+    		keys = new byte[] { letter };
+    		children = new TrieNode[] { child };
+    		size = 1;
+    		return;
+    	}
+    	
+    	if ( keys == null ) {
+    		if ( letter >= children.length ) {
+    			children = copyOf( children, letter + 1 );
+    		}
+    		if ( children[letter] == null ) size++;
+    		children[letter] = child;
+    		return;
+    	}
+    	
+    	int index = indexOf( letter );
+    	if ( index >= 0 ) {
+    		children[index] = child;
+    		return;
+    	}
+    	
+    	if ( size == DENSE_THRESHOLD ) {
+    		toDense();
+    		setChild( child );
+    		return;
+    	}
+    	
+    	index = -( index + 1 );
+    	if ( size == keys.length ) {
+    		int capacity = Math.min( size * 2, DENSE_THRESHOLD );
+    		keys = copyOf( keys, capacity );
+    		children = copyOf( children, capacity );
+    	}
+    	System.arraycopy( keys, index, keys, index + 1, size - index );
+    	System.arraycopy( children, index, children, index + 1, size - index );
+    	keys[index] = letter;
+    	children[index] = child;
+    	size++;
+    }
+    
+    
+    /**
+     * Removes the child of this node for the given letter.
+     * @param letter
+     * @return the removed node or null if there was no such child.
+     */
+    public TrieNode removeChild( byte letter ) {
+    	if ( children == null ) return null;
+    	
+    	TrieNode removed;
+    	if ( keys == null ) {
+    		if ( letter < 0 || letter >= children.length ) return null;
+    		removed = children[letter];
+    		if ( removed == null ) return null;
+    		children[letter] = null;
+    		size--;
+    		if ( size <= DENSE_THRESHOLD / 2 ) toSparse();
+    	}
+    	else {
+    		int index = indexOf( letter );
+    		if ( index < 0 ) return null;
+    		removed = children[index];
+    		size--;
+    		System.arraycopy( keys, index + 1, keys, index, size - index );
+    		System.arraycopy( children, index + 1, children, index, size - index );
+    		children[size] = null;
+    	}
+    	
+    	if ( size == 0 ) {
+    		keys = null;
+    		children = null;
+    	}
+    	return removed;
+    }
+    
+    
+    /**
+     * Returns the number of slots that can be read through {@link #getChildAt(int)}.
+     * Slots are ordered by letter.
+     * @return the number of child slots of this node.
+     */
+    public int getChildSlots() {
+    	if ( keys == null ) return children == null ? 0 : children.length;
+    	return size;
+    }
+    
+    
+    /**
+     * Returns the child stored at the given slot. In the dense layout some 
+     * slots are empty, in which case null is returned.
+     * @param slot a slot between 0 and {@link #getChildSlots()} - 1
+     * @return the child at the given slot or null.
+     */
+    public TrieNode getChildAt( int slot ) {
+    	return children[slot];
+    }
+    
+    
+    /**
+     * @return the number of children of this node.
+     */
+    public int getChildCount() {
+    	return size;
+    }
+    
+    
+    /**
+     * @return true if the children of this node are indexed directly by letter.
+     */
+    public boolean isDense() {
+    	return keys == null && children != null;
+    }
+    
+    
+    /**
+     * @return the length of the array of the letters of the children, 0 if there is none.
+     */
+    int getKeyCapacity() {
+    	return keys == null ? 0 : keys.length;
+    }
+    
+    
+    /**
+     * @return the length of the array of the children, 0 if there is none.
+     */
+    int getChildCapacity() {
+    	return children == null ? 0 : children.length;
+    }
+    
+    
+    /*
+     * Binary search over the sparse keys. Returns the index of the letter, or 
+     * ( -( insertion point ) - 1 ) if the letter is not present.
+     */
+    private int indexOf( byte letter ) {
+    	int low = 0;
+    	int high = size - 1;
+    	while ( low <= high ) {
+    		int middle = ( low + high ) >>> 1;
+    		byte key = keys[middle];
+    		if ( key < letter ) low = middle + 1;
+    		else if ( key > letter ) high = middle - 1;
+    		else return middle;
+    	}
+    	return -( low + 1 );
+    }
+    
+    
+    private void toDense() {
+    	int length = keys[size - 1] + 1;
+    	TrieNode[] dense = new TrieNode[length];
+    	for ( int i = 0; i < size; i++ ) {
+    		dense[keys[i]] = children[i];
+    	}
+    	keys = null;
+    	children = dense;
+    }
+    
+    
+    private void toSparse() {
+    	byte[] sparseKeys = new byte[DENSE_THRESHOLD];
+    	TrieNode[] sparseChildren = new TrieNode[DENSE_THRESHOLD];
+    	int index = 0;
+    	for ( int i = 0; i < children.length; i++ ) {
+    		if ( children[i] != null ) {
+    			sparseKeys[index] = (byte) i;
+    			sparseChildren[index] = children[i];
+    			index++;
+    		}
+    	}
+    	keys = sparseKeys;
+    	children = sparseChildren;
+    }
+    
+    
+    private static byte[] copyOf( byte[] array, int length ) {
+    	byte[] copy = new byte[length];
+    	System.arraycopy( array, 0, copy, 0, Math.min( array.length, length ) );
+    	return copy;
+    }
+    
+    
+    private static TrieNode[] copyOf( TrieNode[] array, int length ) {
+    	TrieNode[] copy = new TrieNode[length];
+    	System.arraycopy( array, 0, copy, 0, Math.min( array.length, length ) );
+    	return copy;
     }
 
     
@@ -94,10 +323,27 @@ public class TrieNode {
 
 	
 	/**
-	 * @return the children
+	 * Returns the frequency of the word of this node.
+	 * @return 0, as this node holds no word.
+	 */
+	public long getFrequency() {
+		return 0;
+	}
+
+	
+	/**
+	 * @return the highest frequency of the words of the subtree of this node, including its own word.
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	
+	/**
+	 * @param maxWeight the highest frequency of the words of the subtree of this node
 	 */
-	public Map<Byte, TrieNode> getChildren() {
-		return children;
+	void setMaxWeight( long maxWeight ) {
+		this.maxWeight = maxWeight;
 	}
     
     
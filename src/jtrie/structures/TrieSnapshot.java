@@ -0,0 +1,213 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * A compact binary copy of the words of a Trie together with their frequencies, 
+ * which a Trie can be rebuilt from. Unlike {@link TrieFile} it keeps the frequencies 
+ * and is read back into a Trie which can still be modified. The words are written 
+ * in the order of a walk of the Trie, every word as the number of letters it shares 
+ * with the previous word and the rest of its letters:
+ * <pre>
+ * header  magic "JTSN", version, letters of the alphabet, words (4 ints, big endian)
+ * words   shared letters, new letters (varints), the new letter codes, frequency (varint)
+ * trailer CRC32 of the header and the words (int)
+ * </pre>
+ * Reading inserts every word from the node of the letters it shares with the previous 
+ * one, so only the new letters of every word are walked.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public final class TrieSnapshot {
+	
+	static final int MAGIC = 0x4A54534E;
+	static final int VERSION = 1;
+	
+	
+	private TrieSnapshot() {
+	}
+	
+	
+	/**
+	 * Writes the words of the given Trie. The Trie must not be modified during the call. 
+	 * The stream is not closed.
+	 * @param trie
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void write( Trie trie, OutputStream out ) throws IOException {
+		CheckedOutputStream checked = new CheckedOutputStream( out, new CRC32() );
+		DataOutputStream data = new DataOutputStream( checked );
+		data.writeInt( MAGIC );
+		data.writeInt( VERSION );
+		data.writeInt( trie.getAlphabet().size() );
+		data.writeInt( trie.size() );
+		
+		Writer writer = new Writer( data );
+		TrieNode root = trie.getRoot();
+		for ( int slot = 0, slots = root.getChildSlots(); slot < slots; slot++ ) {
+			TrieNode child = root.getChildAt( slot );
+			if ( child != null ) writer.walk( child, 0 );
+		}
+		if ( writer.count != trie.size() ) throw new IOException( "The Trie was modified while it was written." );
+		
+		data.flush();
+		new DataOutputStream( out ).writeInt( (int) checked.getChecksum().getValue() );
+	}
+	
+	
+	/**
+	 * Reads a snapshot into a new Trie of the given alphabet. The stream is not closed.
+	 * @param in
+	 * @param alphabet the alphabet of the Trie the snapshot was written from
+	 * @return the Trie.
+	 * @throws IOException if the stream cannot be read or does not hold a valid snapshot 
+	 * of a Trie of an alphabet of the same size.
+	 */
+	public static Trie read( InputStream in, Alphabet alphabet ) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream( in, new CRC32() );
+		DataInputStream data = new DataInputStream( checked );
+		if ( data.readInt() != MAGIC ) throw new IOException( "Not a trie snapshot." );
+		int version = data.readInt();
+		if ( version != VERSION ) throw new IOException( "Unsupported trie snapshot version " + version );
+		int letters = data.readInt();
+		if ( letters != alphabet.size() ) {
+			throw new IOException( "The snapshot was written with an alphabet of " + letters + " letters." );
+		}
+		int words = data.readInt();
+		if ( words < 0 ) throw new IOException( "Corrupted trie snapshot." );
+		
+		Trie trie = new Trie( alphabet );
+		TrieNode[] path = new TrieNode[33];
+		path[0] = trie.getRoot();
+		byte[] word = new byte[32];
+		int length = 0;
+		
+		for ( int i = 0; i < words; i++ ) {
+			int shared = readVarint( data );
+			int added = readVarint( data );
+			if ( shared > length || added == 0 ) throw new IOException( "Corrupted trie snapshot." );
+			length = shared + added;
+			if ( length >= path.length ) {
+				path = Arrays.copyOf( path, Math.max( length + 1, path.length * 2 ) );
+				word = Arrays.copyOf( word, path.length );
+			}
+			data.readFully( word, shared, added );
+			for ( int j = shared; j < length; j++ ) {
+				if ( word[j] <= 0 || word[j] > letters ) throw new IOException( "Corrupted trie snapshot." );
+			}
+			
+			long frequency = readVarlong( data );
+			if ( frequency < 0 || !trie.insert( word, length, path, shared, frequency ) ) {
+				throw new IOException( "Corrupted trie snapshot." );
+			}
+		}
+		
+		int checksum = (int) checked.getChecksum().getValue();
+		if ( new DataInputStream( in ).readInt() != checksum ) throw new IOException( "Checksum mismatch." );
+		return trie;
+	}
+	
+	
+	/* Walks the Trie depth first, writing the words in the order they are reached. */
+	private static final class Writer {
+		
+		final DataOutputStream out;
+		byte[] word = new byte[32];
+		int count;
+		
+		/* The number of letters the previous word and the current path have in common. */
+		int shared;
+		
+		
+		Writer( DataOutputStream out ) {
+			this.out = out;
+		}
+		
+		
+		void walk( TrieNode node, int depth ) throws IOException {
+			
+			/* The previous word shares at most the letters above this node. */
+			if ( shared > depth ) shared = depth;
+			if ( depth == word.length ) word = Arrays.copyOf( word, depth * 2 );
+			word[depth] = node.getLetter();
+			
+			if ( node.isWord() ) {
+				int length = depth + 1;
+				writeVarint( out, shared );
+				writeVarint( out, length - shared );
+				out.write( word, shared, length - shared );
+				writeVarlong( out, node.getFrequency() );
+				shared = length;
+				count++;
+			}
+			
+			for ( int slot = 0, slots = node.getChildSlots(); slot < slots; slot++ ) {
+				TrieNode child = node.getChildAt( slot );
+				if ( child != null ) walk( child, depth + 1 );
+			}
+		}
+	}
+	
+	
+	static void writeVarint( DataOutputStream out, int value ) throws IOException {
+		writeVarlong( out, value & 0xFFFFFFFFL );
+	}
+	
+	
+	static void writeVarlong( DataOutputStream out, long value ) throws IOException {
+		while ( ( value & ~0x7FL ) != 0 ) {
+			out.write( (int) ( value & 0x7F ) | 0x80 );
+			value >>>= 7;
+		}
+		out.write( (int) value );
+	}
+	
+	
+	static int readVarint( DataInputStream in ) throws IOException {
+		long value = readVarlong( in );
+		if ( value > Integer.MAX_VALUE ) throw new IOException( "Corrupted trie snapshot." );
+		return (int) value;
+	}
+	
+	
+	static long readVarlong( DataInputStream in ) throws IOException {
+		long value = 0;
+		for ( int shift = 0; shift < 64; shift += 7 ) {
+			int b = in.read();
+			if ( b < 0 ) throw new EOFException();
+			value |= (long) ( b & 0x7F ) << shift;
+			if ( ( b & 0x80 ) == 0 ) return value;
+		}
+		throw new IOException( "Corrupted trie snapshot." );
+	}
+
+}
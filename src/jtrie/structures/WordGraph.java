@@ -0,0 +1,239 @@
+/**
+ * Copyright 2012 Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jtrie.structures;
+
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * A read-only automaton over the letter codes of {@link Trie#code(char)}, in which 
+ * states are plain int identifiers. Compiled representations of a set of words 
+ * extend this class by describing their states and edges, and get exact lookups, 
+ * prefix enumeration and the Levenshtein searches of the Trie from it.
+ * <p>
+ * Implementations are immutable, so all the queries may run concurrently.
+ * 
+ * @author Karabatsis Rafael - Michael <mpatsis13@gmail.com>.
+ *
+ */
+public abstract class WordGraph {
+	
+	/** The maximum number of edges leaving a state, one for every possible letter code. */
+	public static final int MAX_EDGES = 128;
+	
+	/** The state returned by {@link #getChild(int, byte)} when there is no such edge. */
+	public static final int NONE = -1;
+	
+	
+	/**
+	 * @return the initial state.
+	 */
+	public abstract int getRoot();
+	
+	
+	/**
+	 * @param state
+	 * @return true if the words leading to the given state are part of the set.
+	 */
+	public abstract boolean isFinal( int state );
+	
+	
+	/**
+	 * Returns the state reached from the given state with the given letter.
+	 * @param state
+	 * @param letter
+	 * @return the target state, or {@link #NONE} if there is no such edge.
+	 */
+	public abstract int getChild( int state, byte letter );
+	
+	
+	/**
+	 * Reads the edges leaving the given state, ordered by letter.
+	 * @param state
+	 * @param letters receives the letters of the edges, must hold {@link #MAX_EDGES} elements
+	 * @param targets receives the targets of the edges, must hold {@link #MAX_EDGES} elements
+	 * @return the number of edges.
+	 */
+	public abstract int getEdges( int state, byte[] letters, int[] targets );
+	
+	
+	/**
+	 * @return the number of words of the set.
+	 */
+	public abstract int size();
+	
+	
+	/**
+	 * Checks whether the given word is part of the set. No objects are allocated.
+	 * @param word
+	 * @return true if the word is part of the set.
+	 */
+	public boolean contains( CharSequence word ) {
+		int state = getRoot();
+		for ( int i = 0, length = word.length(); i < length; i++ ) {
+			byte letter = Trie.code( word.charAt( i ) );
+			if ( letter == 0 ) return false;
+			state = getChild( state, letter );
+			if ( state == NONE ) return false;
+		}
+		return isFinal( state );
+	}
+	
+	
+	/**
+	 * Checks whether the word in the given range of the array is part of the set.
+	 * @param word
+	 * @param offset
+	 * @param length
+	 * @return true if the word is part of the set.
+	 */
+	public boolean contains( char[] word, int offset, int length ) {
+		int state = getRoot();
+		for ( int i = offset, end = offset + length; i < end; i++ ) {
+			byte letter = Trie.code( word[i] );
+			if ( letter == 0 ) return false;
+			state = getChild( state, letter );
+			if ( state == NONE ) return false;
+		}
+		return isFinal( state );
+	}
+	
+	
+	/**
+	 * Checks whether the given encoded word is part of the set.
+	 * @param word the letter codes of the word
+	 * @return true if the word is part of the set.
+	 */
+	public boolean contains( byte[] word ) {
+		int state = getRoot();
+		for ( int i = 0; i < word.length; i++ ) {
+			state = getChild( state, word[i] );
+			if ( state == NONE ) return false;
+		}
+		return isFinal( state );
+	}
+	
+	
+	/**
+	 * Returns all the words of the set which start with the given prefix, ordered by letter code.
+	 * @param prefix
+	 * @return the words, in capitals.
+	 */
+	public ArrayList<String> wordsWithPrefix( CharSequence prefix ) {
+		ArrayList<String> words = new ArrayList<String>();
+		byte[] codes = Trie.encode( prefix );
+		
+		int state = getRoot();
+		for ( int i = 0; i < codes.length && state != NONE; i++ ) {
+			state = codes[i] == 0 ? NONE : getChild( state, codes[i] );
+		}
+		if ( state == NONE ) return words;
+		
+		byte[] word = Arrays.copyOf( codes, codes.length + 16 );
+		collect( state, word, codes.length, new byte[MAX_EDGES], new int[MAX_EDGES], words );
+		return words;
+	}
+	
+	
+	private byte[] collect( int state, byte[] word, int length, byte[] letters, int[] targets, ArrayList<String> words ) {
+		if ( isFinal( state ) ) words.add( Trie.decode( word, 0, length ) );
+		
+		int edges = getEdges( state, letters, targets );
+		if ( edges == 0 ) return word;
+		if ( length == word.length ) word = Arrays.copyOf( word, length * 2 );
+		
+		/* The buffers are reused by the children, so the edges are kept aside first. */
+		byte[] edgeLetters = Arrays.copyOf( letters, edges );
+		int[] edgeTargets = Arrays.copyOf( targets, edges );
+		for ( int edge = 0; edge < edges; edge++ ) {
+			word[length] = edgeLetters[edge];
+			word = collect( edgeTargets[edge], word, length + 1, letters, targets, words );
+		}
+		return word;
+	}
+	
+	
+	/**
+	 * Computes the minimum Levenshtein Distance between the given word and the words of the set, 
+	 * together with the closest word and all the words within maxDistance.
+	 * @param word the letter codes of the word
+	 * @param maxDistance
+	 * @return the result of the search.
+	 */
+	public SearchResult computeClosestWords( byte[] word, int maxDistance ) {
+		SearchContext context = new SearchContext( word, maxDistance, true );
+		context.run( this );
+		
+		return new SearchResult( context );
+	}
+	
+	
+	/**
+	 * Returns all the words of the set whose Levenshtein Distance from the given word is at most maxDistance.
+	 * @param word
+	 * @param maxDistance
+	 * @return the words, in capitals.
+	 */
+	public ArrayList<String> search( CharSequence word, int maxDistance ) {
+		SearchContext context = new SearchContext( Trie.encode( word ), maxDistance, false );
+		context.run( this );
+		
+		return decode( context.getMatches() );
+	}
+	
+	
+	/**
+	 * Returns all the words of the set accepted by the given automaton.
+	 * @param automaton
+	 * @return the words, in capitals.
+	 */
+	public ArrayList<String> search( LevenshteinAutomaton automaton ) {
+		return decode( automaton.match( this ) );
+	}
+	
+	
+	/**
+	 * Saves the graph in the binary format of {@link TrieFile}.
+	 * @param path
+	 * @throws IOException
+	 */
+	public void save( Path path ) throws IOException {
+		TrieFile.save( this, path );
+	}
+	
+	
+	/* The graphs read and write letters with the default alphabet, as does their file format. */
+	static void checkAlphabet( Trie trie ) {
+		if ( trie.getAlphabet() != Alphabet.DEFAULT ) {
+			throw new IllegalArgumentException( "Only a Trie of the default alphabet can be compiled to a graph." );
+		}
+	}
+	
+	
+	private static ArrayList<String> decode( ArrayList<byte[]> matches ) {
+		ArrayList<String> words = new ArrayList<String>( matches.size() );
+		for ( byte[] match : matches ) {
+			words.add( Trie.decode( match, 0, match.length ) );
+		}
+		return words;
+	}
+
+}